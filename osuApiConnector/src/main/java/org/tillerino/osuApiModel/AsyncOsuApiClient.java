@@ -0,0 +1,86 @@
+package org.tillerino.osuApiModel;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.tillerino.osuApiModel.http.Futures;
+import org.tillerino.osuApiModel.types.*;
+
+/**
+ * Non-blocking counterpart of {@link OsuApiClient}. The returned futures complete with the same values that
+ * the blocking methods return, including {@code null} where the blocking method returns {@code null}.
+ * Failures complete the future exceptionally with the exception that the blocking method would throw.
+ */
+public interface AsyncOsuApiClient {
+    /**
+     * The maximum number of lookups which the default implementations of the bulk methods run at the same time.
+     */
+    int MAX_CONCURRENT_LOOKUPS = 16;
+
+    <T extends OsuApiBeatmap> CompletableFuture<T> getBeatmapAsync(@BeatmapId int beatmapId, long mods, Class<T> cls);
+
+    /**
+     * Non-blocking version of {@link OsuApiClient#getBeatmaps(int[], long, Class)}. The default implementation
+     * calls {@link #getBeatmapAsync(int, long, Class)} for each id, at most {@link #MAX_CONCURRENT_LOOKUPS} at a
+     * time.
+     */
+    default <T extends OsuApiBeatmap> CompletableFuture<Map<Integer, T>> getBeatmapsAsync(
+            int[] beatmapIds, long mods, Class<T> cls) {
+        int[] distinct = Arrays.stream(beatmapIds).distinct().toArray();
+        return present(
+                distinct,
+                Futures.bounded(distinct.length, MAX_CONCURRENT_LOOKUPS, i -> getBeatmapAsync(distinct, i, mods, cls)));
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "the ids are beatmap ids")
+    private <T extends OsuApiBeatmap> CompletableFuture<T> getBeatmapAsync(
+            int[] beatmapIds, int index, long mods, Class<T> cls) {
+        return getBeatmapAsync(beatmapIds[index], mods, cls);
+    }
+
+    /**
+     * Collects the non-null values by id.
+     */
+    private static <T> CompletableFuture<Map<Integer, T>> present(int[] ids, CompletableFuture<List<T>> values) {
+        return values.thenApply(list -> {
+            Map<Integer, T> present = new LinkedHashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                T value = list.get(i);
+                if (value != null) {
+                    present.put(ids[i], value);
+                }
+            }
+            return present;
+        });
+    }
+
+    <T extends OsuApiScore> CompletableFuture<List<T>> getUserTopAsync(
+            @UserId int userId, @GameMode int mode, int limit, Class<T> cls);
+
+    <T extends OsuApiUser> CompletableFuture<T> getUserAsync(@UserId int userId, @GameMode int mode, Class<T> cls);
+
+    /**
+     * Non-blocking version of {@link OsuApiClient#getUsers(int[], int, Class)}. The default implementation calls
+     * {@link #getUserAsync(int, int, Class)} for each id, at most {@link #MAX_CONCURRENT_LOOKUPS} at a time.
+     */
+    default <T extends OsuApiUser> CompletableFuture<Map<Integer, T>> getUsersAsync(
+            int[] userIds, @GameMode int mode, Class<T> cls) {
+        int[] distinct = Arrays.stream(userIds).distinct().toArray();
+        return present(
+                distinct,
+                Futures.bounded(distinct.length, MAX_CONCURRENT_LOOKUPS, i -> getUserAsync(distinct, i, mode, cls)));
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "the ids are user ids and the mode is passed through")
+    private <T extends OsuApiUser> CompletableFuture<T> getUserAsync(int[] userIds, int index, int mode, Class<T> cls) {
+        return getUserAsync(userIds[index], mode, cls);
+    }
+
+    <T extends OsuApiUser> CompletableFuture<T> getUserAsync(String username, @GameMode int mode, Class<T> cls);
+
+    <T extends OsuApiScore> CompletableFuture<List<T>> getUserRecentAsync(
+            @UserId int userid, @GameMode int mode, Class<T> cls);
+}
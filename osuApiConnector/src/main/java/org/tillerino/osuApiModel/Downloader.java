@@ -1,34 +1,47 @@
 package org.tillerino.osuApiModel;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import static org.tillerino.osuApiModel.deserializer.JsonStreams.JACKSON;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.NullNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.type.TypeFactory;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
-import java.util.Collections;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
 import javax.annotation.CheckForNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.tillerino.osuApiModel.deserializer.JsonStreams;
+import org.tillerino.osuApiModel.http.Futures;
+import org.tillerino.osuApiModel.http.Futures.IOFunction;
+import org.tillerino.osuApiModel.http.HttpStatusException;
+import org.tillerino.osuApiModel.http.HttpTransport;
+import org.tillerino.osuApiModel.http.RateLimitExceededException;
+import org.tillerino.osuApiModel.http.RateLimiter;
+import org.tillerino.osuApiModel.http.RequestListener;
+import org.tillerino.osuApiModel.http.RequestRecorder;
+import org.tillerino.osuApiModel.http.RetryPolicy;
+import org.tillerino.osuApiModel.http.SingleFlight;
 import org.tillerino.osuApiModel.types.BeatmapId;
 import org.tillerino.osuApiModel.types.BeatmapSetId;
 import org.tillerino.osuApiModel.types.BitwiseMods;
 import org.tillerino.osuApiModel.types.GameMode;
 import org.tillerino.osuApiModel.types.UserId;
 
-public class Downloader implements OsuApiClient {
+public class Downloader implements OsuApiLeaderboardClient, AsyncOsuApiClient {
     public static final String API_BASE_URL = "https://osu.ppy.sh/api/";
 
     public static final String GET_BEATMAPS = "get_beatmaps";
@@ -41,23 +54,75 @@ public class Downloader implements OsuApiClient {
 
     public static final String GET_USER_RECENT = "get_user_recent";
 
-    static final ObjectMapper JACKSON = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-
     private final String baseUrl;
 
     private final String key;
 
+    private final HttpTransport transport;
+
+    /**
+     * Limits the requests which are sent by this downloader. By default, this is the limiter which is shared by
+     * all downloaders with the same key, see {@link RateLimiter#forCredential(String)}.
+     */
+    @Getter(onMethod_ = @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "shared on purpose"))
+    @Setter(onMethod_ = @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "shared on purpose"))
+    private RateLimiter rateLimiter;
+
+    /**
+     * How long a request may wait for a permit of the {@link #rateLimiter}: null (the default) waits as long as
+     * necessary and {@link Duration#ZERO} fails immediately.
+     */
+    @Getter
+    @Setter
+    @CheckForNull
+    private Duration rateLimitWait = null;
+
+    /**
+     * Decides which failed requests are sent again. Defaults to {@link RetryPolicy#none()}.
+     */
+    @Getter
+    @Setter
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+
+    /**
+     * Coalesces identical requests which are in flight at the same time. Null (the default) disables coalescing.
+     * Responses must be buffered to be shared, so they are no longer decoded while they are being received.
+     */
+    @Getter
+    @Setter
+    @CheckForNull
+    private SingleFlight singleFlight = null;
+
+    /**
+     * Receives timings, sizes and status of every call, e.g. {@link org.tillerino.osuApiModel.http.EndpointMetrics}. Defaults to
+     * {@link RequestListener#NONE}.
+     */
+    @Getter
+    @Setter
+    private RequestListener requestListener = RequestListener.NONE;
+
     public static final String INVALID_API_KEY = "Please provide a valid API key.";
 
     private static final Pattern keyPattern = Pattern.compile("[0-9a-f]{40}");
 
-    public Downloader(URL baseUrl, String key) {
+    /**
+     * @param baseUrl base URL of the API. Defaults to {@link #API_BASE_URL} if null.
+     * @param key valid api key
+     * @param transport the transport to send requests with
+     */
+    public Downloader(URL baseUrl, String key, HttpTransport transport) {
         if (baseUrl != null) {
             this.baseUrl = baseUrl.toString();
         } else {
             this.baseUrl = API_BASE_URL;
         }
         this.key = key;
+        this.transport = transport;
+        this.rateLimiter = RateLimiter.forCredential(key);
+    }
+
+    public Downloader(URL baseUrl, String key) {
+        this(baseUrl, key, HttpTransport.shared());
     }
 
     /**
@@ -111,26 +176,38 @@ public class Downloader implements OsuApiClient {
         }
 
         this.baseUrl = API_BASE_URL;
+        this.transport = HttpTransport.shared();
+        this.rateLimiter = RateLimiter.forCredential(key);
     }
 
     @CheckForNull
     public <T extends OsuApiBeatmap> T getBeatmap(@BeatmapId int beatmapId, Class<T> cls) throws IOException {
-        JsonNode array = get(GET_BEATMAPS, "b", String.valueOf(beatmapId));
-        if (array.size() == 0) {
-            return null;
-        }
-        return JACKSON.treeToValue(array.get(0), cls);
+        return get(parser -> JsonStreams.readFirst(JACKSON, parser, cls), GET_BEATMAPS, "b", String.valueOf(beatmapId));
     }
 
     @CheckForNull
     @Override
     public <T extends OsuApiBeatmap> T getBeatmap(@BeatmapId int beatmapId, long mods, Class<T> cls)
             throws IOException {
-        JsonNode array = get(GET_BEATMAPS, "b", String.valueOf(beatmapId), "mods", String.valueOf(mods));
-        if (array.size() == 0) {
-            return null;
-        }
-        return JACKSON.treeToValue(array.get(0), cls);
+        return get(
+                parser -> JsonStreams.readFirst(JACKSON, parser, cls),
+                GET_BEATMAPS,
+                "b",
+                String.valueOf(beatmapId),
+                "mods",
+                String.valueOf(mods));
+    }
+
+    @Override
+    public <T extends OsuApiBeatmap> CompletableFuture<T> getBeatmapAsync(
+            @BeatmapId int beatmapId, long mods, Class<T> cls) {
+        return getAsync(
+                parser -> JsonStreams.readFirst(JACKSON, parser, cls),
+                GET_BEATMAPS,
+                "b",
+                String.valueOf(beatmapId),
+                "mods",
+                String.valueOf(mods));
     }
 
     /**
@@ -143,31 +220,138 @@ public class Downloader implements OsuApiClient {
     @CheckForNull
     public <T extends OsuApiBeatmap> List<T> getBeatmapSet(@BeatmapSetId int beatmapsetId, Class<T> cls)
             throws IOException {
-        JsonNode array = get(GET_BEATMAPS, "s", String.valueOf(beatmapsetId));
-        if (array.size() == 0) {
+        List<T> beatmaps = get(
+                parser -> JsonStreams.readList(JACKSON, parser, cls, null),
+                GET_BEATMAPS,
+                "s",
+                String.valueOf(beatmapsetId));
+        if (beatmaps.isEmpty()) {
             return null;
         }
-        return JACKSON.treeToValue(array, TypeFactory.defaultInstance().constructCollectionType(List.class, cls));
+        return beatmaps;
+    }
+
+    /**
+     * Final because the lookups do not go through this method. To replace the responses, override
+     * {@link #get(IOFunction, String, String...)} and {@link #getAsync(IOFunction, String, String...)}.
+     */
+    public final JsonNode get(String command, String... parameters) throws IOException {
+        return get(JACKSON::readTree, command, parameters);
     }
 
-    public JsonNode get(String command, String... parameters) throws IOException {
+    /**
+     * Requests the given command and hands the response to the reader while it is being received.
+     *
+     * @param reader reads the value from the response. This is called with a fresh parser which is not positioned
+     *     at the first token yet.
+     */
+    public <T> T get(IOFunction<JsonParser, T> reader, String command, String... parameters) throws IOException {
+        if (singleFlight != null) {
+            // the response must be buffered to be shared, which is what the async path does anyway
+            return Futures.join(getAsync(reader, command, parameters));
+        }
         URL url = formURL(true, command, parameters);
-        String content;
+        RequestRecorder recorder = RequestRecorder.start(requestListener, command, "GET");
         try {
-            content = downloadDirect(url);
-        } catch (SocketTimeoutException e) {
+            T result = retryPolicy.execute(() -> {
+                rateLimiter.acquire(rateLimitWait);
+                return download(
+                        transport,
+                        url,
+                        transport.getRequestTimeout(),
+                        recorder,
+                        inputStream -> read(inputStream, reader));
+            });
+            recorder.finish(null);
+            return result;
+        } catch (IOException e) {
+            recorder.finish(e);
+            throw describe(e, command, parameters);
+        } catch (RuntimeException e) {
+            recorder.finish(e);
             throw e;
-        } catch (IOException e1) {
-            throw new IOException(e1.getMessage() + " for " + formURL(false, command, parameters), e1);
         }
-        if (content.equals(INVALID_API_KEY)) throw new RuntimeException(INVALID_API_KEY);
+    }
+
+    /**
+     * Non-blocking version of {@link #get(String, String...)}. Final for the same reason.
+     */
+    public final CompletableFuture<JsonNode> getAsync(String command, String... parameters) {
+        return getAsync(JACKSON::readTree, command, parameters);
+    }
+
+    /**
+     * Non-blocking version of {@link #get(IOFunction, String, String...)}. The reader is called once the entire
+     * response has been received.
+     */
+    public <T> CompletableFuture<T> getAsync(IOFunction<JsonParser, T> reader, String command, String... parameters) {
+        URL url;
         try {
-            return JACKSON.readTree(content);
-        } catch (JsonProcessingException e) {
-            String shortContent =
-                    content.substring(0, Math.min(content.length(), 100)) + (content.length() < 100 ? "..." : "");
-            throw new RuntimeException("Unable to parse response: " + shortContent, e);
+            url = formURL(true, command, parameters);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        HttpRequest request = newRequest(transport, url, transport.getRequestTimeout());
+        RequestRecorder recorder = RequestRecorder.start(requestListener, command, "GET");
+        CompletableFuture<HttpResponse<byte[]>> response = singleFlight != null
+                ? singleFlight.execute("GET " + url, () -> sendAsync(request, recorder))
+                : sendAsync(request, recorder);
+        return Futures.thenApplyIO(
+                        response, r -> recorder.decode(recorder.bytesBody(r), inputStream -> read(inputStream, reader)))
+                .whenComplete((value, failure) -> recorder.finish(failure != null ? Futures.unwrap(failure) : null))
+                .exceptionallyCompose(e -> {
+                    Throwable cause = Futures.unwrap(e);
+                    if (cause instanceof IOException io) {
+                        try {
+                            cause = describe(io, command, parameters);
+                        } catch (IOException | RuntimeException e1) {
+                            cause = e1;
+                        }
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    /**
+     * Sends the request with rate limiting and retries. Completes with responses which passed
+     * {@link #checkResponse(HttpResponse)}.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request, RequestRecorder recorder) {
+        return retryPolicy.executeAsync(
+                () -> rateLimiter.acquireAsync(rateLimitWait).thenCompose(permit -> {
+                    recorder.attempt();
+                    return Futures.thenApplyIO(
+                            transport.sendAsync(request, recorder.bodyHandler(BodyHandlers.ofByteArray())),
+                            response -> {
+                                checkResponse(response);
+                                return response;
+                            });
+                }));
+    }
+
+    /**
+     * Adds the URL (without the key) to an exception. Timeouts and rate limiting are returned as they are and
+     * responses which are not valid JSON are turned into {@link RuntimeException}s.
+     */
+    private IOException describe(IOException e, String command, String... parameters) throws IOException {
+        if (e instanceof SocketTimeoutException
+                || e instanceof HttpTimeoutException
+                || e instanceof RateLimitExceededException) {
+            return e;
+        }
+        if (e instanceof JsonParseException) {
+            throw new RuntimeException("Unable to parse response from " + formURL(false, command, parameters), e);
         }
+        String message = e.getMessage() + " for " + formURL(false, command, parameters);
+        IOException described = e instanceof HttpStatusException status
+                ? new HttpStatusException(status.getStatusCode(), status.getRetryAfter(), message)
+                : new IOException(message);
+        described.initCause(e);
+        return described;
+    }
+
+    private static <T> T read(InputStream inputStream, IOFunction<JsonParser, T> reader) throws IOException {
+        return JsonStreams.read(JACKSON, JsonStreams.failOnMessage(inputStream, INVALID_API_KEY), reader);
     }
 
     public URL formURL(boolean addKey, String command, String... parameters) throws IOException {
@@ -196,42 +380,70 @@ public class Downloader implements OsuApiClient {
         return downloadDirect(url, 5000);
     }
 
+    /**
+     * @param timeout in milliseconds. Bounds connecting and the wait for the response headers together, and then
+     *     each wait for more data of the body. The connect timeout of the shared transport applies as well, so
+     *     connecting never takes longer than that.
+     */
     public static String downloadDirect(URL url, int timeout) throws IOException {
-        HttpURLConnection httpCon = (HttpURLConnection) url.openConnection();
-        httpCon.setRequestProperty("Accept-Encoding", "gzip");
-        httpCon.setConnectTimeout(timeout);
-        httpCon.setReadTimeout(timeout);
+        return downloadDirect(HttpTransport.shared(), url, Duration.ofMillis(timeout));
+    }
 
-        try {
-            if (httpCon.getResponseCode() != 200) {
-                throw new IOException("response code " + httpCon.getResponseCode());
-            }
+    public static String downloadDirect(HttpTransport transport, URL url, Duration timeout) throws IOException {
+        return download(
+                transport,
+                url,
+                timeout,
+                RequestRecorder.discarding(),
+                inputStream -> new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+    }
 
-            String contentEncoding = httpCon.getContentEncoding();
-            InputStream inputStream = httpCon.getInputStream();
-            try {
-                if (contentEncoding != null && contentEncoding.equalsIgnoreCase("gzip")) {
-                    inputStream = new GZIPInputStream(inputStream);
-                }
+    /**
+     * Downloads the URL and hands the response to the reader while it is being received.
+     */
+    public static <T> T downloadDirect(
+            HttpTransport transport, URL url, Duration timeout, IOFunction<JsonParser, T> reader) throws IOException {
+        return download(
+                transport, url, timeout, RequestRecorder.discarding(), inputStream -> read(inputStream, reader));
+    }
 
-                if (httpCon.getContentType() == null
-                        || !httpCon.getContentType().contains("application/json;")
-                        || !httpCon.getContentType().toLowerCase().contains("charset=utf-8")) {
-                    throw new IOException("unexpected content-type: " + httpCon.getContentType());
-                }
+    private static <T> T download(
+            HttpTransport transport,
+            URL url,
+            Duration timeout,
+            RequestRecorder recorder,
+            IOFunction<InputStream, T> bodyReader)
+            throws IOException {
+        recorder.attempt();
+        HttpResponse<InputStream> response = transport.send(newRequest(transport, url, timeout));
+        recorder.headers(response.statusCode());
 
-                byte[] buf = new byte[1024];
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                for (int len; (len = inputStream.read(buf)) > 0; ) {
-                    baos.write(buf, 0, len);
-                }
+        InputStream inputStream = response.body();
+        try {
+            checkResponse(response);
 
-                return baos.toString("UTF-8");
-            } finally {
-                inputStream.close();
-            }
+            inputStream = recorder.body(response);
+
+            return recorder.decode(inputStream, bodyReader);
         } finally {
-            httpCon.disconnect();
+            inputStream.close();
+        }
+    }
+
+    private static HttpRequest newRequest(HttpTransport transport, URL url, Duration timeout) {
+        return transport.newRequest(URI.create(url.toString()), timeout).GET().build();
+    }
+
+    private static void checkResponse(HttpResponse<?> response) throws IOException {
+        if (response.statusCode() != 200) {
+            throw new HttpStatusException(response.statusCode(), HttpTransport.retryAfter(response));
+        }
+
+        String contentType = HttpTransport.contentType(response);
+        if (contentType == null
+                || !contentType.contains("application/json;")
+                || !contentType.toLowerCase().contains("charset=utf-8")) {
+            throw new IOException("unexpected content-type: " + contentType);
         }
     }
 
@@ -247,18 +459,39 @@ public class Downloader implements OsuApiClient {
     @Override
     public <T extends OsuApiScore> List<T> getUserTop(@UserId int userId, @GameMode int mode, int limit, Class<T> cls)
             throws IOException {
-        JsonNode jsonArray = get(
-                GET_USER_BEST,
-                "u",
-                String.valueOf(userId),
-                "m",
-                String.valueOf(mode),
-                "limit",
-                String.valueOf(limit),
-                "type",
-                "id");
+        return get(scores(mode, cls), GET_USER_BEST, userTopParameters(userId, mode, limit));
+    }
+
+    @Override
+    public <T extends OsuApiScore> CompletableFuture<List<T>> getUserTopAsync(
+            @UserId int userId, @GameMode int mode, int limit, Class<T> cls) {
+        return getAsync(scores(mode, cls), GET_USER_BEST, userTopParameters(userId, mode, limit));
+    }
+
+    private static <T extends OsuApiScore> IOFunction<JsonParser, List<T>> scores(int mode, Class<T> cls) {
+        return parser -> readScores(parser, 0, mode, cls);
+    }
+
+    /**
+     * @param beatmapId is set on all scores unless it is 0.
+     */
+    private static <T extends OsuApiScore> List<T> readScores(JsonParser parser, int beatmapId, int mode, Class<T> cls)
+            throws IOException {
+        return JsonStreams.readList(JACKSON, parser, cls, score -> patchScore(score, beatmapId, mode));
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "ids are passed through lambdas")
+    private static void patchScore(OsuApiScore score, int beatmapId, int mode) {
+        if (beatmapId != 0) {
+            score.setBeatmapId(beatmapId);
+        }
+        score.setMode(mode);
+    }
 
-        return OsuApiScore.fromJsonArray(toArray(jsonArray), cls, mode);
+    private static String[] userTopParameters(@UserId int userId, @GameMode int mode, int limit) {
+        return new String[] {
+            "u", String.valueOf(userId), "m", String.valueOf(mode), "limit", String.valueOf(limit), "type", "id"
+        };
     }
 
     /**
@@ -269,15 +502,16 @@ public class Downloader implements OsuApiClient {
      * @return
      * @throws IOException
      */
+    @Override
     public <T extends OsuApiScore> List<T> getBeatmapTop(@BeatmapId int beatmapId, @GameMode int mode, Class<T> cls)
             throws IOException {
-        ArrayNode jsonArray = toArray(get(GET_SCORES, "b", String.valueOf(beatmapId), "m", String.valueOf(mode)));
-
-        for (JsonNode node : jsonArray) {
-            toObject(node).put("beatmap_id", beatmapId);
-        }
-
-        return OsuApiScore.fromJsonArray(jsonArray, cls, mode);
+        return get(
+                beatmapScores(beatmapId, mode, cls),
+                GET_SCORES,
+                "b",
+                String.valueOf(beatmapId),
+                "m",
+                String.valueOf(mode));
     }
 
     /**
@@ -291,14 +525,23 @@ public class Downloader implements OsuApiClient {
      */
     public <T extends OsuApiScore> List<T> getBeatmapTop(
             @BeatmapId int beatmapId, @GameMode int mode, Class<T> cls, @BitwiseMods long mods) throws IOException {
-        ArrayNode jsonArray = toArray(get(
-                GET_SCORES, "b", String.valueOf(beatmapId), "m", String.valueOf(mode), "mods", String.valueOf(mods)));
-
-        for (JsonNode node : jsonArray) {
-            toObject(node).put("beatmap_id", beatmapId);
-        }
+        return get(
+                beatmapScores(beatmapId, mode, cls),
+                GET_SCORES,
+                "b",
+                String.valueOf(beatmapId),
+                "m",
+                String.valueOf(mode),
+                "mods",
+                String.valueOf(mods));
+    }
 
-        return OsuApiScore.fromJsonArray(jsonArray, cls, mode);
+    /**
+     * The scores endpoint does not include the beatmap id in its response.
+     */
+    private static <T extends OsuApiScore> IOFunction<JsonParser, List<T>> beatmapScores(
+            int beatmapId, int mode, Class<T> cls) {
+        return parser -> readScores(parser, beatmapId, mode, cls);
     }
 
     /**
@@ -308,76 +551,92 @@ public class Downloader implements OsuApiClient {
     @CheckForNull
     public <T extends OsuApiScore> T getScore(
             @UserId int userId, @BeatmapId int beatmapId, @GameMode int mode, Class<T> cls) throws IOException {
-        JsonNode jsonElement =
-                get(GET_SCORES, "b", String.valueOf(beatmapId), "u", String.valueOf(userId), "m", String.valueOf(mode));
-
-        if (jsonElement.isNull()) return null;
-
-        ArrayNode jsonArray = toArray(jsonElement);
+        // there might be more than one score. We get the first one.
+        T score = get(
+                parser -> JsonStreams.readFirst(JACKSON, parser, cls),
+                GET_SCORES,
+                "b",
+                String.valueOf(beatmapId),
+                "u",
+                String.valueOf(userId),
+                "m",
+                String.valueOf(mode));
 
-        if (jsonArray.isEmpty()) {
+        if (score == null) {
             return null;
         }
 
-        // there might be more than one score. We get the
-        ObjectNode jsonObject = toObject(jsonArray.get(0));
-
-        jsonObject.put("beatmap_id", beatmapId);
-
-        return OsuApiScore.fromJsonObject(jsonObject, cls, mode);
+        score.setBeatmapId(beatmapId);
+        score.setMode(mode);
+        return score;
     }
 
     @CheckForNull
     @Override
     public <T extends OsuApiUser> T getUser(@UserId int userId, @GameMode int mode, Class<T> cls) throws IOException {
-        ArrayNode jsonArray =
-                toArray(get(GET_USER, "u", String.valueOf(userId), "m", String.valueOf(mode), "type", "id"));
+        return get(
+                firstUser(mode, cls), GET_USER, "u", String.valueOf(userId), "m", String.valueOf(mode), "type", "id");
+    }
 
-        if (jsonArray.size() == 0) {
-            return null;
-        }
-        T user = OsuApiUser.fromJsonObject(jsonArray.get(0), cls, mode);
-        user.setMode(mode);
-        return user;
+    @Override
+    public <T extends OsuApiUser> CompletableFuture<T> getUserAsync(
+            @UserId int userId, @GameMode int mode, Class<T> cls) {
+        return getAsync(
+                firstUser(mode, cls), GET_USER, "u", String.valueOf(userId), "m", String.valueOf(mode), "type", "id");
     }
 
     @CheckForNull
     @Override
     public <T extends OsuApiUser> T getUser(String username, @GameMode int mode, Class<T> cls) throws IOException {
-        ArrayNode jsonArray = toArray(get(GET_USER, "u", username, "m", String.valueOf(mode), "type", "string"));
+        return get(firstUser(mode, cls), GET_USER, "u", username, "m", String.valueOf(mode), "type", "string");
+    }
 
-        if (jsonArray.size() == 0) {
-            return null;
+    @Override
+    public <T extends OsuApiUser> CompletableFuture<T> getUserAsync(String username, @GameMode int mode, Class<T> cls) {
+        return getAsync(firstUser(mode, cls), GET_USER, "u", username, "m", String.valueOf(mode), "type", "string");
+    }
+
+    private static <T extends OsuApiUser> IOFunction<JsonParser, T> firstUser(int mode, Class<T> cls) {
+        return parser -> readFirstUser(parser, mode, cls);
+    }
+
+    @CheckForNull
+    @SuppressFBWarnings(value = "TQ", justification = "mode is passed through lambdas")
+    private static <T extends OsuApiUser> T readFirstUser(JsonParser parser, int mode, Class<T> cls)
+            throws IOException {
+        T user = JsonStreams.readFirst(JACKSON, parser, cls);
+        if (user != null) {
+            user.setMode(mode);
         }
-        T user = OsuApiUser.fromJsonObject(jsonArray.get(0), cls, mode);
-        user.setMode(mode);
         return user;
     }
 
     @Override
     public <T extends OsuApiScore> List<T> getUserRecent(@UserId int userid, @GameMode int mode, Class<T> cls)
             throws IOException {
-        JsonNode jsonElement =
-                get(GET_USER_RECENT, "u", String.valueOf(userid), "m", String.valueOf(mode), "type", "id");
-        if (jsonElement instanceof NullNode) {
-            return Collections.emptyList();
-        }
-
-        return OsuApiScore.fromJsonArray(toArray(jsonElement), cls, mode);
-    }
-
-    private static ArrayNode toArray(JsonNode n) {
-        if (!n.isArray()) {
-            throw new RuntimeException("Expected array");
-        }
-        return (ArrayNode) n;
+        return get(
+                scores(mode, cls),
+                GET_USER_RECENT,
+                "u",
+                String.valueOf(userid),
+                "m",
+                String.valueOf(mode),
+                "type",
+                "id");
     }
 
-    private static ObjectNode toObject(JsonNode n) {
-        if (!n.isObject()) {
-            throw new RuntimeException("Expected array");
-        }
-        return (ObjectNode) n;
+    @Override
+    public <T extends OsuApiScore> CompletableFuture<List<T>> getUserRecentAsync(
+            @UserId int userid, @GameMode int mode, Class<T> cls) {
+        return getAsync(
+                scores(mode, cls),
+                GET_USER_RECENT,
+                "u",
+                String.valueOf(userid),
+                "m",
+                String.valueOf(mode),
+                "type",
+                "id");
     }
 
     /**
@@ -398,7 +657,8 @@ public class Downloader implements OsuApiClient {
             }
 
             @Override
-            public JsonNode get(String command, String... parameters) throws IOException {
+            public <T> T get(IOFunction<JsonParser, T> reader, String command, String... parameters)
+                    throws IOException {
                 URL url = formURL(false, command, parameters);
                 if (url.toString().contains("&") && !url.toString().contains("?")) {
                     url = new URL(url.toString().replaceFirst("&", "?"));
@@ -408,7 +668,17 @@ public class Downloader implements OsuApiClient {
                     if (in == null) {
                         throw new RuntimeException("Resource not found: " + relPath + " " + url);
                     }
-                    return JACKSON.readTree(in);
+                    return JsonStreams.read(JACKSON, in, reader);
+                }
+            }
+
+            @Override
+            public <T> CompletableFuture<T> getAsync(
+                    IOFunction<JsonParser, T> reader, String command, String... parameters) {
+                try {
+                    return CompletableFuture.completedFuture(get(reader, command, parameters));
+                } catch (IOException e) {
+                    return CompletableFuture.failedFuture(e);
                 }
             }
         }
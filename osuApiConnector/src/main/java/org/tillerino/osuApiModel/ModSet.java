@@ -0,0 +1,259 @@
+package org.tillerino.osuApiModel;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import org.tillerino.osuApiModel.types.BitwiseMods;
+
+/**
+ * Immutable set of {@link Mods} backed by the {@link BitwiseMods} mask. Contains, union and intersection are
+ * single bit operations and {@link #forEach(Consumer)} walks the set bits without allocating.
+ *
+ * <p>Sets of the common mods (all masks below {@value #INTERNED_LIMIT}, which covers every mod with a short name)
+ * are interned, so {@link #of(long)} returns the same instance for the same mask. The string forms are computed
+ * once per instance.
+ *
+ * <p>Bits which do not belong to any of the {@link Mods} are kept in the mask and compared by
+ * {@link #equals(Object)}, but are not part of the set: queries like {@link #containsAll(ModSet)} and
+ * {@link #size()} ignore them.
+ */
+public final class ModSet implements Iterable<Mods> {
+    static final int INTERNED_LIMIT = 1 << 15;
+
+    private static final Mods[] BY_BIT = new Mods[64];
+
+    private static final long KNOWN;
+
+    static {
+        long known = 0;
+        for (Mods mod : Mods.values()) {
+            BY_BIT[Long.numberOfTrailingZeros(mod.bit)] = mod;
+            known |= mod.bit;
+        }
+        KNOWN = known;
+    }
+
+    private static final AtomicReferenceArray<ModSet> INTERNED = new AtomicReferenceArray<>(INTERNED_LIMIT);
+
+    public static final ModSet NONE = of(0);
+
+    @BitwiseMods
+    private final long mask;
+
+    @CheckForNull
+    private String shortNames;
+
+    @CheckForNull
+    private String commaSeparated;
+
+    private ModSet(@BitwiseMods long mask) {
+        this.mask = mask;
+    }
+
+    public static ModSet of(@BitwiseMods long mask) {
+        if (mask < 0 || mask >= INTERNED_LIMIT) {
+            return new ModSet(mask);
+        }
+        ModSet interned = INTERNED.get((int) mask);
+        if (interned == null) {
+            ModSet created = new ModSet(mask);
+            interned = INTERNED.compareAndExchange((int) mask, null, created);
+            if (interned == null) {
+                interned = created;
+            }
+        }
+        return interned;
+    }
+
+    public static ModSet of(Mods... mods) {
+        return of(Mods.getMask(mods));
+    }
+
+    public static ModSet of(Collection<Mods> mods) {
+        return of(Mods.getMask(mods));
+    }
+
+    /**
+     * @param modsString e.g. {@code HD,HR} or {@code None}
+     * @throws IllegalArgumentException if a short name is unknown
+     */
+    @SuppressFBWarnings(value = "TQ", justification = "producer")
+    public static ModSet fromShortNamesCommaSeparated(String modsString) {
+        if (modsString.equals("None")) {
+            return NONE;
+        }
+        long mask = 0;
+        int start = 0;
+        while (start <= modsString.length()) {
+            int end = modsString.indexOf(',', start);
+            if (end < 0) {
+                end = modsString.length();
+            }
+            if (end > start) {
+                Mods mod = end - start == 2
+                        ? Mods.fromShortName(modsString.charAt(start), modsString.charAt(start + 1))
+                        : null;
+                if (mod == null) {
+                    throw new IllegalArgumentException(modsString.substring(start, end));
+                }
+                mask |= mod.bit;
+            }
+            start = end + 1;
+        }
+        return of(mask);
+    }
+
+    /**
+     * The mask which this set was created from, including unknown bits.
+     */
+    @BitwiseMods
+    public long getMask() {
+        return mask;
+    }
+
+    public boolean contains(Mods mod) {
+        return mod.is(mask);
+    }
+
+    public boolean containsAll(ModSet other) {
+        return (mask & other.mask & KNOWN) == (other.mask & KNOWN);
+    }
+
+    public boolean containsAny(ModSet other) {
+        return (mask & other.mask & KNOWN) != 0;
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "producer")
+    public ModSet with(Mods mod) {
+        return of(mask | mod.bit);
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "producer")
+    public ModSet without(Mods mod) {
+        return of(mask & ~mod.bit);
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "producer")
+    public ModSet union(ModSet other) {
+        return of(mask | other.mask);
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "producer")
+    public ModSet intersection(ModSet other) {
+        return of(mask & other.mask);
+    }
+
+    /**
+     * The mods which are {@link Mods#isEffective() effective}.
+     */
+    @SuppressFBWarnings(value = "TQ", justification = "producer")
+    public ModSet effective() {
+        long effective = 0;
+        for (long remaining = mask & KNOWN; remaining != 0; remaining &= remaining - 1) {
+            Mods mod = BY_BIT[Long.numberOfTrailingZeros(remaining)];
+            if (mod.effective) {
+                effective |= mod.bit;
+            }
+        }
+        return of(effective);
+    }
+
+    public int size() {
+        return Long.bitCount(mask & KNOWN);
+    }
+
+    public boolean isEmpty() {
+        return (mask & KNOWN) == 0;
+    }
+
+    /**
+     * Calls the action for each mod in the order of {@link Mods#values()}.
+     */
+    @Override
+    public void forEach(Consumer<? super Mods> action) {
+        for (long remaining = mask & KNOWN; remaining != 0; remaining &= remaining - 1) {
+            action.accept(BY_BIT[Long.numberOfTrailingZeros(remaining)]);
+        }
+    }
+
+    /**
+     * Iterates in the order of {@link Mods#values()}.
+     */
+    @Override
+    public Iterator<Mods> iterator() {
+        return new Iterator<>() {
+            long remaining = mask & KNOWN;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public Mods next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                Mods mod = BY_BIT[Long.numberOfTrailingZeros(remaining)];
+                remaining &= remaining - 1;
+                return mod;
+            }
+        };
+    }
+
+    /**
+     * The short names without separator, e.g. {@code HDHR}. Mods without a short name are left out.
+     */
+    public String getShortNames() {
+        String cached = shortNames;
+        if (cached == null) {
+            shortNames = cached = joinShortNames("");
+        }
+        return cached;
+    }
+
+    /**
+     * The short names separated by commas or {@code None}, as read by {@link #fromShortNamesCommaSeparated(String)}.
+     * Mods without a short name are left out.
+     */
+    public String getShortNamesCommaSeparated() {
+        String cached = commaSeparated;
+        if (cached == null) {
+            cached = joinShortNames(",");
+            commaSeparated = cached = cached.isEmpty() ? "None" : cached;
+        }
+        return cached;
+    }
+
+    private String joinShortNames(String separator) {
+        StringBuilder builder = new StringBuilder();
+        forEach(mod -> {
+            if (mod.shortName != null) {
+                if (builder.length() > 0) {
+                    builder.append(separator);
+                }
+                builder.append(mod.shortName);
+            }
+        });
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof ModSet other && other.mask == mask;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(mask);
+    }
+
+    @Override
+    public String toString() {
+        return getShortNamesCommaSeparated();
+    }
+}
@@ -3,12 +3,12 @@ package org.tillerino.osuApiModel;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.tillerino.osuApiModel.types.BitwiseMods;
+import org.tillerino.osuApiModel.types.GameMode;
 
 public enum Mods {
     /*
@@ -39,7 +39,33 @@ public enum Mods {
     LastMod(4194304, null, false),
     ;
 
-    static HashMap<String, Mods> shortNames = new HashMap<>();
+    /**
+     * The mods with a short name, indexed by {@link #shortNameIndex(char, char)}.
+     */
+    private static final Mods[] BY_SHORT_NAME = new Mods[26 * 26];
+
+    static {
+        for (Mods mod : values()) {
+            if (mod.shortName != null) {
+                BY_SHORT_NAME[shortNameIndex(mod.shortName.charAt(0), mod.shortName.charAt(1))] = mod;
+            }
+        }
+    }
+
+    /**
+     * The mods which change the difficulty attributes, indexed by game mode. Nightcore is left out since
+     * {@link #fixNC(long)} replaces it with DoubleTime. Hidden is left out since it only matters together with
+     * Flashlight, see {@link #canonicalize(long, int)}.
+     */
+    private static final long[] DIFFICULTY_MODS = {
+        getMask(Easy, TouchDevice, HardRock, DoubleTime, Relax, HalfTime, Flashlight, Relax2),
+        getMask(Easy, HardRock, DoubleTime, HalfTime),
+        getMask(Easy, HardRock, DoubleTime, HalfTime),
+        getMask(Easy, HardRock, DoubleTime, HalfTime, Key4, Key5, Key6, Key7, Key8),
+    };
+
+    private static final long ALL_MODES_DIFFICULTY_MODS =
+            Arrays.stream(DIFFICULTY_MODS).reduce(0, (a, b) -> a | b);
 
     private Mods(@BitwiseMods long bit, String shortName, boolean effective) {
         this.bit = bit;
@@ -61,48 +87,73 @@ public enum Mods {
         return (mods & bit) == bit;
     }
 
+    /**
+     * @see ModSet#of(long), which does not allocate a list
+     */
     public static LinkedList<Mods> getMods(@BitwiseMods long mods) {
-        LinkedList<Mods> ret = new LinkedList<>();
-
-        Mods[] values = values();
-
-        for (int i = 0; i < values.length; i++) {
-            if (values[i].is(mods)) ret.add(values[i]);
-        }
-
-        return ret;
+        return toList(ModSet.of(mods));
     }
 
+    /**
+     * @param modsString e.g. {@code HD,HR} or {@code None}
+     * @return the mods in the order of the string, including duplicates
+     * @throws IllegalArgumentException if a short name is unknown
+     * @see ModSet#fromShortNamesCommaSeparated(String), which does not allocate a list, but ignores order and
+     *     duplicates
+     */
     public static LinkedList<Mods> fromShortNamesCommaSeparated(String modsString) {
-        prepare();
         LinkedList<Mods> ret = new LinkedList<>();
-        if (modsString.equals("None")) return ret;
-        String[] modsStrings = modsString.split(",");
-        for (int i = 0; i < modsStrings.length; i++) {
-            if (modsStrings[i].length() == 0) continue;
-
-            Mods mod = shortNames.get(modsStrings[i]);
-            if (mod == null) throw new RuntimeException(modsStrings[i]);
-
+        if (modsString.equals("None")) {
+            return ret;
+        }
+        for (String shortName : modsString.split(",")) {
+            if (shortName.isEmpty()) {
+                continue;
+            }
+            Mods mod = fromShortName(shortName);
+            if (mod == null) {
+                throw new IllegalArgumentException(shortName);
+            }
             ret.add(mod);
         }
         return ret;
     }
 
+    private static LinkedList<Mods> toList(ModSet mods) {
+        LinkedList<Mods> ret = new LinkedList<>();
+        mods.forEach(ret::add);
+        return ret;
+    }
+
+    /**
+     * @param shortName e.g. {@code HD}; case-sensitive
+     */
     @CheckForNull
     public static Mods fromShortName(String shortName) {
-        prepare();
-        return shortNames.get(shortName);
+        return shortName.length() == 2 ? fromShortName(shortName.charAt(0), shortName.charAt(1)) : null;
     }
 
-    private static void prepare() {
-        if (shortNames.isEmpty()) {
-            Mods[] values = values();
-            for (int i = 0; i < values.length; i++) {
-                if (values[i].shortName == null) continue;
-                shortNames.put(values[i].shortName, values[i]);
-            }
+    /**
+     * @return the mod with the short name consisting of the two (upper case) characters or null
+     */
+    @CheckForNull
+    public static Mods fromShortName(char first, char second) {
+        int index = shortNameIndex(first, second);
+        return index < 0 ? null : BY_SHORT_NAME[index];
+    }
+
+    /**
+     * @return an index into {@link #BY_SHORT_NAME} or -1 if either character is not an upper case letter
+     */
+    private static int shortNameIndex(char first, char second) {
+        if (first < 'A' || first > 'Z' || second < 'A' || second > 'Z') {
+            return -1;
         }
+        return (first - 'A') * 26 + (second - 'A');
+    }
+
+    private static char toUpperCase(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
     }
 
     public static @BitwiseMods long getMask(Mods... mods) {
@@ -114,6 +165,9 @@ public enum Mods {
         return mods | modToAdd.bit;
     }
 
+    /**
+     * @see ModSet#effective(), which does not allocate a list
+     */
     public static LinkedList<Mods> getEffectiveMods(List<Mods> mods) {
         LinkedList<Mods> ret = new LinkedList<>();
 
@@ -125,15 +179,7 @@ public enum Mods {
     }
 
     public static LinkedList<Mods> getEffectiveMods() {
-        LinkedList<Mods> ret = new LinkedList<>();
-
-        Mods[] values = values();
-        for (int i = 0; i < values.length; i++) {
-            Mods mod = values[i];
-            if (mod.effective) ret.add(mod);
-        }
-
-        return ret;
+        return toList(ModSet.of(values()).effective());
     }
 
     @SuppressFBWarnings(value = "TQ", justification = "producer")
@@ -152,23 +198,18 @@ public enum Mods {
     @CheckForNull
     @SuppressFBWarnings(value = "TQ", justification = "producer")
     public static @BitwiseMods Long fromShortNamesContinuous(@Nonnull String message) {
+        if (message.length() % 2 != 0) {
+            return null;
+        }
         long mods = 0;
         for (int i = 0; i < message.length(); i += 2) {
-            try {
-                Mods mod = fromShortName(message.substring(i, i + 2).toUpperCase());
-                if (mod == null) {
-                    return null;
-                }
-                if (mod.isEffective()) {
-                    if (mod == Nightcore) {
-                        mods |= getMask(DoubleTime);
-                    } else {
-                        mods |= getMask(mod);
-                    }
-                }
-            } catch (Exception e) {
+            Mods mod = fromShortName(toUpperCase(message.charAt(i)), toUpperCase(message.charAt(i + 1)));
+            if (mod == null) {
                 return null;
             }
+            if (mod.effective) {
+                mods |= mod == Nightcore ? DoubleTime.bit : mod.bit;
+            }
         }
         return mods;
     }
@@ -183,6 +224,40 @@ public enum Mods {
         return ret.toString();
     }
 
+    /**
+     * Reduces the mods to those which change the difficulty attributes in the given mode. Mods which give the same
+     * attributes are reduced to the same value, e.g. HDHR to HR and NC to DT in osu!, so the result can be used
+     * to share requests and cache entries.
+     *
+     * <p>TouchDevice, Relax and Autopilot are kept for osu! since the current difficulty calculation takes them
+     * into account.
+     */
+    @SuppressFBWarnings(value = "TQ", justification = "producer")
+    public static @BitwiseMods long canonicalize(@BitwiseMods long mods, @GameMode int mode) {
+        if (mode < 0 || mode >= DIFFICULTY_MODS.length) {
+            throw new IllegalArgumentException("Invalid mode " + mode);
+        }
+        long relevant = DIFFICULTY_MODS[mode];
+        if (mode == GameModes.OSU && Flashlight.is(mods)) {
+            // the flashlight rating depends on hidden
+            relevant |= Hidden.bit;
+        }
+        return fixNC(mods) & relevant;
+    }
+
+    /**
+     * Like {@link #canonicalize(long, int)} for when the mode is not known, e.g. before a beatmap has been
+     * requested. Keeps all mods which change the difficulty attributes in any mode.
+     */
+    @SuppressFBWarnings(value = "TQ", justification = "producer")
+    public static @BitwiseMods long canonicalize(@BitwiseMods long mods) {
+        long relevant = ALL_MODES_DIFFICULTY_MODS;
+        if (Flashlight.is(mods)) {
+            relevant |= Hidden.bit;
+        }
+        return fixNC(mods) & relevant;
+    }
+
     @SuppressFBWarnings(value = "TQ", justification = "producer")
     public static @BitwiseMods long fixNC(@BitwiseMods long mods) {
         if ((mods & Nightcore.bit) != 0) {
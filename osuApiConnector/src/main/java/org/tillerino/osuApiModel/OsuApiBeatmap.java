@@ -18,7 +18,7 @@ import org.tillerino.osuApiModel.types.GameMode;
 import org.tillerino.osuApiModel.types.MillisSinceEpoch;
 
 @Data
-public class OsuApiBeatmap {
+public class OsuApiBeatmap implements Cloneable {
     @BeatmapId
     @JsonProperty("beatmap_id")
     private int beatmapId;
@@ -260,4 +260,17 @@ public class OsuApiBeatmap {
     public double getCircleSize(@BitwiseMods long mods) {
         return calcCircleSize(getCircleSize(), mods);
     }
+
+    /**
+     * A shallow copy of the same class. The fields of this class are primitives and strings, so the copy can be
+     * modified without changing the original. Fields of subclasses are shared between the copies.
+     */
+    @Override
+    public OsuApiBeatmap clone() {
+        try {
+            return (OsuApiBeatmap) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
@@ -1,7 +1,12 @@
 package org.tillerino.osuApiModel;
 
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import org.tillerino.osuApiModel.types.*;
 
@@ -9,12 +14,60 @@ public interface OsuApiClient {
     @CheckForNull
     <T extends OsuApiBeatmap> T getBeatmap(@BeatmapId int beatmapId, long mods, Class<T> cls) throws IOException;
 
+    /**
+     * Looks up several beatmaps at once. The default implementation calls {@link #getBeatmap(int, long, Class)}
+     * for each id.
+     *
+     * @param beatmapIds may contain duplicates, which are looked up once.
+     * @return the beatmaps by id in the order of the given ids. Beatmaps which do not exist are missing.
+     */
+    @SuppressFBWarnings(value = "TQ", justification = "the ids are beatmap ids")
+    default <T extends OsuApiBeatmap> Map<Integer, T> getBeatmaps(int[] beatmapIds, long mods, Class<T> cls)
+            throws IOException {
+        Map<Integer, T> beatmaps = new LinkedHashMap<>();
+        Set<Integer> requested = new HashSet<>();
+        for (int beatmapId : beatmapIds) {
+            if (!requested.add(beatmapId)) {
+                continue;
+            }
+            T beatmap = getBeatmap(beatmapId, mods, cls);
+            if (beatmap != null) {
+                beatmaps.put(beatmapId, beatmap);
+            }
+        }
+        return beatmaps;
+    }
+
     <T extends OsuApiScore> List<T> getUserTop(@UserId int userId, @GameMode int mode, int limit, Class<T> cls)
             throws IOException;
 
     @CheckForNull
     <T extends OsuApiUser> T getUser(@UserId int userId, @GameMode int mode, Class<T> cls) throws IOException;
 
+    /**
+     * Looks up several users at once. The default implementation calls {@link #getUser(int, int, Class)} for each
+     * id.
+     *
+     * @param userIds may contain duplicates, which are looked up once.
+     * @return the users by id in the order of the given ids. Users which do not exist are missing.
+     */
+    @SuppressFBWarnings(value = "TQ", justification = "the ids are user ids")
+    default <T extends OsuApiUser> Map<Integer, T> getUsers(int[] userIds, @GameMode int mode, Class<T> cls)
+            throws IOException {
+        Map<Integer, T> users = new LinkedHashMap<>();
+        Set<Integer> requested = new HashSet<>();
+        for (int userId : userIds) {
+            if (!requested.add(userId)) {
+                continue;
+            }
+            T user = getUser(userId, mode, cls);
+            if (user != null) {
+                users.put(userId, user);
+            }
+        }
+        return users;
+    }
+
     @CheckForNull
     <T extends OsuApiUser> T getUser(String username, @GameMode int mode, Class<T> cls) throws IOException;
 
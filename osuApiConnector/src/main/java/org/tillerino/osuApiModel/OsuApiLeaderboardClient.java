@@ -0,0 +1,18 @@
+package org.tillerino.osuApiModel;
+
+import java.io.IOException;
+import java.util.List;
+import org.tillerino.osuApiModel.types.*;
+
+/**
+ * An {@link OsuApiClient} which can also look up the leaderboards of beatmaps. Both downloaders implement this.
+ * {@link org.tillerino.osuApiModel.cache.CachingOsuApiLeaderboardClient} caches the leaderboards of another
+ * implementation.
+ */
+public interface OsuApiLeaderboardClient extends OsuApiClient {
+    /**
+     * The leaderboard of a beatmap.
+     */
+    <T extends OsuApiScore> List<T> getBeatmapTop(@BeatmapId int beatmapId, @GameMode int mode, Class<T> cls)
+            throws IOException;
+}
@@ -1,5 +1,8 @@
 package org.tillerino.osuApiModel;
 
+import static org.tillerino.osuApiModel.deserializer.JsonStreams.JACKSON;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -18,7 +21,7 @@ import org.tillerino.osuApiModel.types.MillisSinceEpoch;
 import org.tillerino.osuApiModel.types.UserId;
 
 @Data
-public class OsuApiScore {
+public class OsuApiScore implements Cloneable {
     @JsonProperty("beatmap_id")
     @BeatmapId
     private int beatmapId;
@@ -70,7 +73,7 @@ public class OsuApiScore {
 
     public static <T extends OsuApiScore> T fromJsonObject(JsonNode o, Class<T> cls, @GameMode int mode)
             throws JsonProcessingException {
-        T score = Downloader.JACKSON.treeToValue(o, cls);
+        T score = JACKSON.treeToValue(o, cls);
         score.setMode(mode);
         return score;
     }
@@ -106,7 +109,27 @@ public class OsuApiScore {
         return Mods.getMods(getMods());
     }
 
+    /**
+     * Like {@link #getModsList()} without allocating a list.
+     */
+    @JsonIgnore
+    public ModSet getModSet() {
+        return ModSet.of(getMods());
+    }
+
     public String getPercentagePretty() {
         return percentage.format(getAccuracy());
     }
+
+    /**
+     * A shallow copy of the same class, like {@link OsuApiBeatmap#clone()}.
+     */
+    @Override
+    public OsuApiScore clone() {
+        try {
+            return (OsuApiScore) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package org.tillerino.osuApiModel;
 
+import static org.tillerino.osuApiModel.deserializer.JsonStreams.JACKSON;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -9,7 +11,7 @@ import org.tillerino.osuApiModel.types.OsuName;
 import org.tillerino.osuApiModel.types.UserId;
 
 @Data
-public class OsuApiUser {
+public class OsuApiUser implements Cloneable {
     @JsonProperty("user_id")
     @UserId
     private int userId;
@@ -81,8 +83,20 @@ public class OsuApiUser {
 
     public static <T extends OsuApiUser> T fromJsonObject(JsonNode o, Class<T> cls, @GameMode int mode)
             throws JsonProcessingException {
-        T user = Downloader.JACKSON.treeToValue(o, cls);
+        T user = JACKSON.treeToValue(o, cls);
         user.setMode(mode);
         return user;
     }
+
+    /**
+     * A shallow copy of the same class, like {@link OsuApiBeatmap#clone()}.
+     */
+    @Override
+    public OsuApiUser clone() {
+        try {
+            return (OsuApiUser) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
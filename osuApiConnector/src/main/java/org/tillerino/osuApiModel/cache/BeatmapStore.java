@@ -0,0 +1,55 @@
+package org.tillerino.osuApiModel.cache;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.time.Duration;
+import javax.annotation.CheckForNull;
+import org.tillerino.osuApiModel.OsuApiBeatmap;
+import org.tillerino.osuApiModel.types.BeatmapId;
+import org.tillerino.osuApiModel.types.BitwiseMods;
+
+/**
+ * Second-tier storage for beatmaps below the in-memory cache of {@link CachingOsuApiClient}, e.g.
+ * {@link MappedBeatmapStore}. Beatmaps are stored per beatmap and mods since the difficulty values depend on the
+ * mods.
+ */
+public interface BeatmapStore {
+    /**
+     * A stored beatmap.
+     *
+     * @param age how long ago the beatmap was stored
+     */
+    record Stored<T extends OsuApiBeatmap>(T beatmap, Duration age) {
+        @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "the beatmap is passed on as it is")
+        public Stored {}
+
+        @Override
+        @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "the beatmap is passed on as it is")
+        public T beatmap() {
+            return beatmap;
+        }
+    }
+
+    /**
+     * @param maxAge beatmaps which were stored longer ago are ignored
+     * @return the stored beatmap or null if there is none or it is too old
+     */
+    @CheckForNull
+    <T extends OsuApiBeatmap> Stored<T> getStored(
+            @BeatmapId int beatmapId, @BitwiseMods long mods, Class<T> cls, Duration maxAge) throws IOException;
+
+    /**
+     * Like {@link #getStored(int, long, Class, Duration)} without the age.
+     */
+    @CheckForNull
+    default <T extends OsuApiBeatmap> T get(
+            @BeatmapId int beatmapId, @BitwiseMods long mods, Class<T> cls, Duration maxAge) throws IOException {
+        Stored<T> stored = getStored(beatmapId, mods, cls, maxAge);
+        return stored != null ? stored.beatmap() : null;
+    }
+
+    /**
+     * Stores the beatmap, replacing the beatmap which was stored for the same beatmap and mods.
+     */
+    void put(OsuApiBeatmap beatmap, @BitwiseMods long mods) throws IOException;
+}
@@ -0,0 +1,92 @@
+package org.tillerino.osuApiModel.cache;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Set of longs which can answer that a value was definitely not added, using a few bits per value. Values which
+ * were not added are reported as possibly added with the given false positive rate, as long as no more than the
+ * expected number of values were added.
+ *
+ * <p>Values cannot be removed. All methods are thread-safe and do not lock.
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * @param expectedInsertions number of values the filter is sized for
+     * @param falsePositiveRate e.g. 0.01
+     */
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException("expectedInsertions must be at least 1: " + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1: " + falsePositiveRate);
+        }
+        double bitsPerValue = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long words = Math.max(1, (long) Math.ceil(expectedInsertions * bitsPerValue / 64));
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filter too large: " + words + " words");
+        }
+        this.words = new AtomicLongArray((int) words);
+        this.bitCount = words * 64;
+        this.hashCount = Math.max(1, (int) Math.round(bitsPerValue * Math.log(2)));
+    }
+
+    public void put(long value) {
+        long hash = mix(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0) {
+                long witness = words.compareAndExchange(word, current, current | mask);
+                if (witness == current) {
+                    break;
+                }
+                current = witness;
+            }
+        }
+    }
+
+    /**
+     * @return false if the value was definitely not added
+     */
+    public boolean mightContain(long value) {
+        long hash = mix(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0);
+        }
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreads consecutive ids over all bits.
+     */
+    static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
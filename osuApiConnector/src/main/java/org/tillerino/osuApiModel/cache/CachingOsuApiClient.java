@@ -0,0 +1,619 @@
+package org.tillerino.osuApiModel.cache;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import javax.annotation.CheckForNull;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.tillerino.osuApiModel.Mods;
+import org.tillerino.osuApiModel.OsuApiBeatmap;
+import org.tillerino.osuApiModel.OsuApiClient;
+import org.tillerino.osuApiModel.OsuApiLeaderboardClient;
+import org.tillerino.osuApiModel.OsuApiScore;
+import org.tillerino.osuApiModel.OsuApiUser;
+import org.tillerino.osuApiModel.cache.BeatmapStore.Stored;
+import org.tillerino.osuApiModel.cache.LruCache.Lookup;
+import org.tillerino.osuApiModel.http.Futures.IOConsumer;
+import org.tillerino.osuApiModel.http.Futures.IOFunction;
+import org.tillerino.osuApiModel.http.Futures.IOSupplier;
+import org.tillerino.osuApiModel.types.BeatmapId;
+import org.tillerino.osuApiModel.types.BitwiseMods;
+import org.tillerino.osuApiModel.types.GameMode;
+import org.tillerino.osuApiModel.types.UserId;
+
+/**
+ * Caches the results of another {@link OsuApiClient} in memory.
+ *
+ * <p>How long a result is cached depends on how likely it is to change. Ranked, approved and loved beatmaps
+ * hardly ever change and are cached for {@code stableBeatmapTtl}. Beatmaps with any other status, e.g. pending,
+ * WIP or qualified, are cached for {@code beatmapTtl}. Users and scores have their own TTLs, recent scores being
+ * the shortest.
+ *
+ * <p>Beatmaps are cached per beatmap and {@link Mods#canonicalize(long) canonical mods}, so lookups with mods
+ * which do not change the difficulty share an entry.
+ *
+ * <p>The cache holds up to {@code maxEntries} results. Once it is full, a new result only replaces the least
+ * recently used result if it was looked up at least as often, see {@link LruCache}. A burst of lookups which are
+ * never repeated, e.g. of old scores, does not push out the popular beatmaps.
+ *
+ * <p>A {@link BeatmapStore} can be added as a second tier. Ranked, approved and loved beatmaps are written to it
+ * and read from it when they are not in memory, as long as they are younger than {@code stableBeatmapTtl}. With
+ * a persistent store like {@link MappedBeatmapStore}, these beatmaps survive restarts. Failures of the store are
+ * logged and do not fail the lookup.
+ *
+ * <p>{@link CachingOsuApiLeaderboardClient} caches the leaderboards of an {@link OsuApiLeaderboardClient} as well.
+ *
+ * <p>Users can be served stale while they are refreshed: after {@code userRefreshAfter}, a lookup still returns
+ * the cached value immediately and starts one refresh on {@code refreshExecutor}. Only once the TTL has passed as well does a lookup wait for the delegate. Failed
+ * refreshes are logged and the stale value is served until the TTL has passed. Without these settings, entries
+ * are only requested again after the TTL.
+ *
+ * <p>Every user which is received goes into a {@link UserNameIndex}. Lookups by name use it to go straight to
+ * the users cached by id, and only request the name if it is unknown or the user now has a different name.
+ *
+ * <p>By default, beatmaps and users which do not exist are requested again on every lookup. With {@code missingTtl},
+ * they are remembered in a separate cache of up to {@code maxMissingEntries}, so that repeated lookups of invalid
+ * ids or misspelled names are answered without a request. A {@link BloomFilter} can be added in front of the
+ * missing beatmaps, which saves looking into that cache for beatmaps which were never missing. The cache has the
+ * final say, so false positives of the filter do not hide beatmaps.
+ *
+ * <p>Like the downloaders, every call returns new objects, which the caller may modify. Results are cached as
+ * copies, and every hit returns another copy, see {@link OsuApiBeatmap#clone()}.
+ */
+@Slf4j
+@Getter
+public class CachingOsuApiClient implements OsuApiClient {
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    public static final Duration DEFAULT_STABLE_BEATMAP_TTL = Duration.ofDays(7);
+
+    public static final Duration DEFAULT_BEATMAP_TTL = Duration.ofMinutes(5);
+
+    public static final Duration DEFAULT_USER_TTL = Duration.ofMinutes(5);
+
+    public static final Duration DEFAULT_USER_TOP_TTL = Duration.ofMinutes(5);
+
+    public static final Duration DEFAULT_USER_RECENT_TTL = Duration.ofSeconds(30);
+
+    public static final int DEFAULT_MAX_MISSING_ENTRIES = 100_000;
+
+    public static final Duration DEFAULT_USER_NAME_TTL = Duration.ofDays(1);
+
+    private static final ThreadFactory REFRESH_THREADS =
+            Thread.ofVirtual().name("osu-api-refresh-", 0).factory();
+
+    /**
+     * Runs each refresh on a new virtual thread since refreshes block on the delegate.
+     */
+    public static final Executor DEFAULT_REFRESH_EXECUTOR =
+            task -> REFRESH_THREADS.newThread(task).start();
+
+    private final OsuApiClient delegate;
+
+    /**
+     * Holds copies of the results, see {@link #copy(Object)}.
+     */
+    private final LruCache<Object, Object> cache;
+
+    private final Duration stableBeatmapTtl;
+
+    private final Duration beatmapTtl;
+
+    private final Duration userTtl;
+
+    private final Duration userTopTtl;
+
+    private final Duration userRecentTtl;
+
+    @CheckForNull
+    private final Duration userRefreshAfter;
+
+    @Getter(AccessLevel.NONE)
+    private final Executor refreshExecutor;
+
+    /**
+     * Keys which are being refreshed in the background.
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    @CheckForNull
+    @Getter(onMethod_ = @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "shared on purpose"))
+    private final BeatmapStore beatmapStore;
+
+    /**
+     * Null if missing results are not cached.
+     */
+    @CheckForNull
+    private final Duration missingTtl;
+
+    /**
+     * Keys of beatmaps and users which do not exist.
+     */
+    private final LruCache<Object, Boolean> missing;
+
+    @CheckForNull
+    @Getter(AccessLevel.NONE)
+    private final BloomFilter missingBeatmapFilter;
+
+    @Getter(onMethod_ = @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "exposed for statistics"))
+    private final UserNameIndex userNameIndex;
+
+    private record BeatmapKey(int beatmapId, long mods, Class<?> cls) {}
+
+    private record UserKey(int userId, int mode, Class<?> cls) {}
+
+    private record UserTopKey(int userId, int mode, int limit, Class<?> cls) {}
+
+    private record UserRecentKey(int userId, int mode, Class<?> cls) {}
+
+    private record MissingBeatmapKey(int beatmapId) {}
+
+    private record MissingUserKey(int userId) {}
+
+    private record MissingUserNameKey(String username) {}
+
+    /**
+     * Caches with the default settings.
+     */
+    public CachingOsuApiClient(OsuApiClient delegate) {
+        this(delegate, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * All parameters except the delegate default to the respective {@code DEFAULT_} constant.
+     *
+     * @param maxEntries maximum number of cached results of all kinds
+     * @param userRefreshAfter users older than this are refreshed in the background. Null disables this.
+     * @param refreshExecutor runs background refreshes
+     * @param missingTtl how long beatmaps and users which do not exist are remembered. Null disables this.
+     * @param missingBeatmapFilter filled with the ids of missing beatmaps. Optional, only used with
+     *     {@code missingTtl}.
+     * @param userNameTtl how long a user name is resolved to the same id without seeing the user again
+     */
+    @Builder
+    protected CachingOsuApiClient(
+            OsuApiClient delegate,
+            @CheckForNull Integer maxEntries,
+            @CheckForNull Duration stableBeatmapTtl,
+            @CheckForNull Duration beatmapTtl,
+            @CheckForNull Duration userTtl,
+            @CheckForNull Duration userTopTtl,
+            @CheckForNull Duration userRecentTtl,
+            @CheckForNull Duration userRefreshAfter,
+            @CheckForNull Executor refreshExecutor,
+            @CheckForNull BeatmapStore beatmapStore,
+            @CheckForNull Duration missingTtl,
+            @CheckForNull Integer maxMissingEntries,
+            @CheckForNull BloomFilter missingBeatmapFilter,
+            @CheckForNull Duration userNameTtl) {
+        this.delegate = delegate;
+        this.cache = new LruCache<>(maxEntries != null ? maxEntries : DEFAULT_MAX_ENTRIES, true);
+        this.stableBeatmapTtl = stableBeatmapTtl != null ? stableBeatmapTtl : DEFAULT_STABLE_BEATMAP_TTL;
+        this.beatmapTtl = beatmapTtl != null ? beatmapTtl : DEFAULT_BEATMAP_TTL;
+        this.userTtl = userTtl != null ? userTtl : DEFAULT_USER_TTL;
+        this.userTopTtl = userTopTtl != null ? userTopTtl : DEFAULT_USER_TOP_TTL;
+        this.userRecentTtl = userRecentTtl != null ? userRecentTtl : DEFAULT_USER_RECENT_TTL;
+        this.userRefreshAfter = userRefreshAfter;
+        this.refreshExecutor = refreshExecutor != null ? refreshExecutor : DEFAULT_REFRESH_EXECUTOR;
+        this.beatmapStore = beatmapStore;
+        this.missingTtl = missingTtl;
+        this.missing = new LruCache<>(maxMissingEntries != null ? maxMissingEntries : DEFAULT_MAX_MISSING_ENTRIES);
+        this.missingBeatmapFilter = missingBeatmapFilter;
+        this.userNameIndex = new UserNameIndex(
+                maxEntries != null ? maxEntries : DEFAULT_MAX_ENTRIES,
+                userNameTtl != null ? userNameTtl : DEFAULT_USER_NAME_TTL);
+    }
+
+    /**
+     * Completed by Lombok.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "the beatmap store is shared on purpose")
+    public static class CachingOsuApiClientBuilder {}
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "exposed for statistics")
+    public LruCache<Object, Object> getCache() {
+        return cache;
+    }
+
+    /**
+     * The cache of missing beatmaps and users. Its hits are lookups which were answered without a request.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "exposed for statistics")
+    public LruCache<Object, Boolean> getMissing() {
+        return missing;
+    }
+
+    /**
+     * The TTL of a beatmap with the given status, see {@link OsuApiBeatmap#getApproved()}.
+     */
+    public Duration beatmapTtl(int approved) {
+        return isStable(approved) ? stableBeatmapTtl : beatmapTtl;
+    }
+
+    private static boolean isStable(int approved) {
+        return switch (approved) {
+            case OsuApiBeatmap.RANKED, OsuApiBeatmap.APPROVED, OsuApiBeatmap.LOVED -> true;
+            default -> false;
+        };
+    }
+
+    @Override
+    @CheckForNull
+    public <T extends OsuApiBeatmap> T getBeatmap(@BeatmapId int beatmapId, @BitwiseMods long mods, Class<T> cls)
+            throws IOException {
+        if (isBeatmapMissing(beatmapId)) {
+            return null;
+        }
+        long canonicalMods = Mods.canonicalize(mods);
+        T beatmap = cachedBeatmap(beatmapId, canonicalMods, cls);
+        if (beatmap == null) {
+            beatmap = delegate.getBeatmap(beatmapId, mods, cls);
+            if (beatmap != null) {
+                cacheBeatmap(beatmap, canonicalMods, cls);
+            } else {
+                setBeatmapMissing(beatmapId);
+            }
+        }
+        return beatmap;
+    }
+
+    /**
+     * Only the beatmaps which are not cached are requested from the delegate.
+     */
+    @Override
+    public <T extends OsuApiBeatmap> Map<Integer, T> getBeatmaps(int[] beatmapIds, @BitwiseMods long mods, Class<T> cls)
+            throws IOException {
+        long canonicalMods = Mods.canonicalize(mods);
+        return bulk(
+                beatmapIds,
+                beatmapId -> cachedBeatmap(beatmapId, canonicalMods, cls),
+                uncached -> delegate.getBeatmaps(uncached, mods, cls),
+                beatmap -> cacheBeatmap(beatmap, canonicalMods, cls),
+                this::isBeatmapMissing,
+                this::setBeatmapMissing);
+    }
+
+    /**
+     * Looks in memory, then in the store.
+     */
+    @CheckForNull
+    @SuppressFBWarnings(value = "TQ", justification = "ids and mods are passed through lambdas")
+    private <T extends OsuApiBeatmap> T cachedBeatmap(int beatmapId, long canonicalMods, Class<T> cls)
+            throws IOException {
+        BeatmapKey key = new BeatmapKey(beatmapId, canonicalMods, cls);
+        T beatmap = cached(key, cls);
+        if (beatmap == null && beatmapStore != null) {
+            Stored<T> stored = null;
+            try {
+                stored = beatmapStore.getStored(beatmapId, canonicalMods, cls, stableBeatmapTtl);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Reading beatmap {} from the store failed", beatmapId, e);
+            }
+            if (stored != null) {
+                beatmap = stored.beatmap();
+                // the TTL started when the beatmap was stored
+                Duration ttl = beatmapTtl(beatmap.getApproved()).minus(stored.age());
+                if (ttl.isPositive()) {
+                    cache.put(key, copy(beatmap), ttl);
+                }
+            }
+        }
+        return beatmap;
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "mods are passed through lambdas")
+    private void cacheBeatmap(OsuApiBeatmap beatmap, long canonicalMods, Class<?> cls) {
+        cache.put(
+                new BeatmapKey(beatmap.getBeatmapId(), canonicalMods, cls),
+                copy(beatmap),
+                beatmapTtl(beatmap.getApproved()));
+        setFound(new MissingBeatmapKey(beatmap.getBeatmapId()));
+        if (beatmapStore != null && isStable(beatmap.getApproved())) {
+            try {
+                beatmapStore.put(beatmap, canonicalMods);
+            } catch (IOException | RuntimeException e) {
+                // the beatmap is still cached in memory
+                log.warn("Storing beatmap {} failed", beatmap.getBeatmapId(), e);
+            }
+        }
+    }
+
+    @Override
+    public <T extends OsuApiScore> List<T> getUserTop(@UserId int userId, @GameMode int mode, int limit, Class<T> cls)
+            throws IOException {
+        UserTopKey key = new UserTopKey(userId, mode, limit, cls);
+        List<T> scores = cachedList(key);
+        if (scores == null) {
+            scores = new ArrayList<>(delegate.getUserTop(userId, mode, limit, cls));
+            cache.put(key, copy(scores), userTopTtl);
+        }
+        return scores;
+    }
+
+    @Override
+    @CheckForNull
+    public <T extends OsuApiUser> T getUser(@UserId int userId, @GameMode int mode, Class<T> cls) throws IOException {
+        if (isMissing(new MissingUserKey(userId))) {
+            return null;
+        }
+        UserKey key = new UserKey(userId, mode, cls);
+        T user = cachedRevalidating(key, () -> loadUser(userId, mode, cls), userRefreshAfter, userTtl);
+        if (user == null) {
+            user = loadUser(userId, mode, cls);
+            if (user != null) {
+                putUser(key, user);
+            } else {
+                setMissing(new MissingUserKey(userId));
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Only the users which are not cached are requested from the delegate.
+     */
+    @Override
+    public <T extends OsuApiUser> Map<Integer, T> getUsers(int[] userIds, @GameMode int mode, Class<T> cls)
+            throws IOException {
+        return bulk(
+                userIds,
+                userId -> cached(new UserKey(userId, mode, cls), cls),
+                uncached -> loadUsers(uncached, mode, cls),
+                user -> putUser(new UserKey(user.getUserId(), mode, cls), user),
+                userId -> isMissing(new MissingUserKey(userId)),
+                userId -> setMissing(new MissingUserKey(userId)));
+    }
+
+    @Override
+    @CheckForNull
+    @SuppressFBWarnings(value = "TQ", justification = "the index holds user ids")
+    public <T extends OsuApiUser> T getUser(String username, @GameMode int mode, Class<T> cls) throws IOException {
+        MissingUserNameKey missingKey = new MissingUserNameKey(UserNameIndex.normalize(username));
+        if (isMissing(missingKey)) {
+            return null;
+        }
+        Integer userId = userNameIndex.getUserId(username);
+        if (userId != null) {
+            T user = getUser(userId, mode, cls);
+            if (user != null && UserNameIndex.isSameName(user.getUserName(), username)) {
+                return user;
+            }
+            // renamed, so the name may belong to someone else now
+        }
+        T user = delegate.getUser(username, mode, cls);
+        if (user != null) {
+            indexUser(user);
+            putUser(new UserKey(user.getUserId(), mode, cls), user);
+        } else {
+            setMissing(missingKey);
+        }
+        return user;
+    }
+
+    @Override
+    public <T extends OsuApiScore> List<T> getUserRecent(@UserId int userid, @GameMode int mode, Class<T> cls)
+            throws IOException {
+        UserRecentKey key = new UserRecentKey(userid, mode, cls);
+        List<T> scores = cachedList(key);
+        if (scores == null) {
+            scores = new ArrayList<>(delegate.getUserRecent(userid, mode, cls));
+            cache.put(key, copy(scores), userRecentTtl);
+        }
+        return scores;
+    }
+
+    private void putUser(UserKey key, OsuApiUser user) {
+        put(key, user, userRefreshAfter, userTtl);
+        setFound(new MissingUserKey(key.userId()));
+        if (user.getUserName() != null) {
+            setFound(new MissingUserNameKey(UserNameIndex.normalize(user.getUserName())));
+        }
+    }
+
+    @CheckForNull
+    @SuppressFBWarnings(value = "TQ", justification = "ids and mode are passed through lambdas")
+    private <T extends OsuApiUser> T loadUser(int userId, int mode, Class<T> cls) throws IOException {
+        T user = delegate.getUser(userId, mode, cls);
+        if (user != null) {
+            indexUser(user);
+        }
+        return user;
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "mode is passed through lambdas")
+    private <T extends OsuApiUser> Map<Integer, T> loadUsers(int[] userIds, int mode, Class<T> cls) throws IOException {
+        Map<Integer, T> users = delegate.getUsers(userIds, mode, cls);
+        users.values().forEach(this::indexUser);
+        return users;
+    }
+
+    private void indexUser(OsuApiUser user) {
+        if (user.getUserName() != null) {
+            userNameIndex.put(user.getUserId(), user.getUserName());
+        }
+    }
+
+    /**
+     * Returns the cached value, even if it is stale. Stale values are refreshed in the background with
+     * {@code load}, which may return null if the value no longer exists.
+     *
+     * @param refreshAfter null if values are not served stale
+     * @return null if nothing is cached
+     */
+    @CheckForNull
+    @SuppressWarnings("unchecked")
+    <V> V cachedRevalidating(Object key, IOSupplier<V> load, @CheckForNull Duration refreshAfter, Duration ttl) {
+        Lookup<Object> cached = cache.lookup(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.stale()) {
+            refreshInBackground(key, load, refreshAfter, ttl);
+        }
+        return (V) copy(cached.value());
+    }
+
+    /**
+     * Starts a refresh unless one is already running for the key.
+     */
+    private void refreshInBackground(
+            Object key, IOSupplier<?> load, @CheckForNull Duration refreshAfter, Duration ttl) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    Object value = load.get();
+                    if (value != null) {
+                        put(key, value, refreshAfter, ttl);
+                    } else {
+                        cache.invalidate(key);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Refreshing {} failed", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            log.warn("Refreshing {} was rejected", key, e);
+        }
+    }
+
+    void put(Object key, Object value, @CheckForNull Duration refreshAfter, Duration ttl) {
+        cache.put(key, copy(value), refreshAfter != null ? refreshAfter : ttl, ttl);
+    }
+
+    /**
+     * Results are copied when they are cached and on every hit, so that callers cannot modify the cached result.
+     */
+    private static Object copy(Object value) {
+        return switch (value) {
+            case OsuApiBeatmap beatmap -> beatmap.clone();
+            case OsuApiUser user -> user.clone();
+            case OsuApiScore score -> score.clone();
+            case List<?> list -> {
+                List<Object> copy = new ArrayList<>(list.size());
+                for (Object element : list) {
+                    copy.add(copy(element));
+                }
+                yield copy;
+            }
+            default -> throw new IllegalArgumentException(
+                    "Cannot copy " + value.getClass().getName());
+        };
+    }
+
+    private boolean isMissing(Object key) {
+        return missingTtl != null && missing.get(key) != null;
+    }
+
+    private void setMissing(Object key) {
+        if (missingTtl != null) {
+            missing.put(key, Boolean.TRUE, missingTtl);
+        }
+    }
+
+    /**
+     * Forgets that the key was missing, because it was found since.
+     */
+    private void setFound(Object key) {
+        if (missingTtl != null) {
+            missing.invalidate(key);
+        }
+    }
+
+    private boolean isBeatmapMissing(int beatmapId) {
+        if (missingTtl == null || (missingBeatmapFilter != null && !missingBeatmapFilter.mightContain(beatmapId))) {
+            return false;
+        }
+        return isMissing(new MissingBeatmapKey(beatmapId));
+    }
+
+    private void setBeatmapMissing(int beatmapId) {
+        if (missingTtl == null) {
+            return;
+        }
+        setMissing(new MissingBeatmapKey(beatmapId));
+        if (missingBeatmapFilter != null) {
+            missingBeatmapFilter.put(beatmapId);
+        }
+    }
+
+    /**
+     * Takes what is cached and requests the rest in one call. Ids which are known to be missing are skipped.
+     */
+    private <T> Map<Integer, T> bulk(
+            int[] ids,
+            IOFunction<Integer, T> lookup,
+            IOFunction<int[], Map<Integer, T>> load,
+            IOConsumer<T> store,
+            IntPredicate isMissing,
+            IntConsumer setMissing)
+            throws IOException {
+        // keeps the order of the given ids
+        Map<Integer, T> values = new LinkedHashMap<>();
+        Set<Integer> uncached = new LinkedHashSet<>();
+        for (int id : ids) {
+            if (values.containsKey(id)) {
+                continue;
+            }
+            if (isMissing.test(id)) {
+                values.put(id, null);
+                continue;
+            }
+            T value = lookup.apply(id);
+            values.put(id, value);
+            if (value == null) {
+                uncached.add(id);
+            }
+        }
+        if (!uncached.isEmpty()) {
+            Map<Integer, T> loaded =
+                    load.apply(uncached.stream().mapToInt(Integer::intValue).toArray());
+            for (Integer id : uncached) {
+                T value = loaded.get(id);
+                values.put(id, value);
+                if (value != null) {
+                    store.accept(value);
+                } else {
+                    setMissing.accept(id);
+                }
+            }
+        }
+        values.values().removeIf(Objects::isNull);
+        return values;
+    }
+
+    @CheckForNull
+    private <T> T cached(Object key, Class<T> cls) {
+        Object value = cache.get(key);
+        return value != null ? cls.cast(copy(value)) : null;
+    }
+
+    @CheckForNull
+    @SuppressWarnings("unchecked")
+    private <T> List<T> cachedList(Object key) {
+        Object value = cache.get(key);
+        return value != null ? (List<T>) copy(value) : null;
+    }
+}
@@ -0,0 +1,112 @@
+package org.tillerino.osuApiModel.cache;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import javax.annotation.CheckForNull;
+import lombok.Builder;
+import lombok.Getter;
+import org.tillerino.osuApiModel.OsuApiLeaderboardClient;
+import org.tillerino.osuApiModel.OsuApiScore;
+import org.tillerino.osuApiModel.types.BeatmapId;
+import org.tillerino.osuApiModel.types.GameMode;
+
+/**
+ * A {@link CachingOsuApiClient} which caches the leaderboards of its delegate as well.
+ *
+ * <p>Leaderboards are cached for {@code beatmapTopTtl}. Like users, they can be served stale while they are
+ * refreshed: after {@code beatmapTopRefreshAfter}, a lookup still returns the cached leaderboard immediately and
+ * starts one refresh on {@code refreshExecutor}.
+ */
+@Getter
+public class CachingOsuApiLeaderboardClient extends CachingOsuApiClient implements OsuApiLeaderboardClient {
+    public static final Duration DEFAULT_BEATMAP_TOP_TTL = Duration.ofMinutes(5);
+
+    private final OsuApiLeaderboardClient delegate;
+
+    private final Duration beatmapTopTtl;
+
+    @CheckForNull
+    private final Duration beatmapTopRefreshAfter;
+
+    private record BeatmapTopKey(int beatmapId, int mode, Class<?> cls) {}
+
+    /**
+     * Caches with the default settings.
+     */
+    public CachingOsuApiLeaderboardClient(OsuApiLeaderboardClient delegate) {
+        this(delegate, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * See {@link CachingOsuApiClient#builder()} for all parameters except the following.
+     *
+     * @param beatmapTopTtl defaults to {@link #DEFAULT_BEATMAP_TOP_TTL}
+     * @param beatmapTopRefreshAfter leaderboards older than this are refreshed in the background. Null disables
+     *     this.
+     */
+    @Builder(builderMethodName = "leaderboardBuilder")
+    private CachingOsuApiLeaderboardClient(
+            OsuApiLeaderboardClient delegate,
+            @CheckForNull Integer maxEntries,
+            @CheckForNull Duration stableBeatmapTtl,
+            @CheckForNull Duration beatmapTtl,
+            @CheckForNull Duration userTtl,
+            @CheckForNull Duration userTopTtl,
+            @CheckForNull Duration userRecentTtl,
+            @CheckForNull Duration beatmapTopTtl,
+            @CheckForNull Duration userRefreshAfter,
+            @CheckForNull Duration beatmapTopRefreshAfter,
+            @CheckForNull Executor refreshExecutor,
+            @CheckForNull BeatmapStore beatmapStore,
+            @CheckForNull Duration missingTtl,
+            @CheckForNull Integer maxMissingEntries,
+            @CheckForNull BloomFilter missingBeatmapFilter,
+            @CheckForNull Duration userNameTtl) {
+        super(
+                delegate,
+                maxEntries,
+                stableBeatmapTtl,
+                beatmapTtl,
+                userTtl,
+                userTopTtl,
+                userRecentTtl,
+                userRefreshAfter,
+                refreshExecutor,
+                beatmapStore,
+                missingTtl,
+                maxMissingEntries,
+                missingBeatmapFilter,
+                userNameTtl);
+        this.delegate = delegate;
+        this.beatmapTopTtl = beatmapTopTtl != null ? beatmapTopTtl : DEFAULT_BEATMAP_TOP_TTL;
+        this.beatmapTopRefreshAfter = beatmapTopRefreshAfter;
+    }
+
+    /**
+     * Completed by Lombok.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "the beatmap store is shared on purpose")
+    public static class CachingOsuApiLeaderboardClientBuilder {}
+
+    @Override
+    public <T extends OsuApiScore> List<T> getBeatmapTop(@BeatmapId int beatmapId, @GameMode int mode, Class<T> cls)
+            throws IOException {
+        BeatmapTopKey key = new BeatmapTopKey(beatmapId, mode, cls);
+        List<T> scores = cachedRevalidating(
+                key, () -> loadBeatmapTop(beatmapId, mode, cls), beatmapTopRefreshAfter, beatmapTopTtl);
+        if (scores == null) {
+            scores = new ArrayList<>(loadBeatmapTop(beatmapId, mode, cls));
+            put(key, scores, beatmapTopRefreshAfter, beatmapTopTtl);
+        }
+        return scores;
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "ids and mode are passed through lambdas")
+    private <T extends OsuApiScore> List<T> loadBeatmapTop(int beatmapId, int mode, Class<T> cls) throws IOException {
+        return delegate.getBeatmapTop(beatmapId, mode, cls);
+    }
+}
@@ -0,0 +1,72 @@
+package org.tillerino.osuApiModel.cache;
+
+/**
+ * Estimates how often keys were seen recently, like the count-min sketch of TinyLFU. Every key has a counter in
+ * each of {@value #DEPTH} rows, and its frequency is the smallest of them, so collisions can only make a key look
+ * more frequent. Counters saturate at {@value #MAX_COUNT}. Once ten times as many keys as the sketch is sized for
+ * were seen, all counters are halved, so that keys which were popular a long time ago are forgotten.
+ *
+ * <p>Not thread-safe. {@link LruCache} only uses it while it holds its lock.
+ */
+class FrequencySketch {
+    private static final int DEPTH = 4;
+
+    private static final int MAX_COUNT = 15;
+
+    private final byte[] counters;
+
+    private final int width;
+
+    private final int sampleSize;
+
+    private int samples;
+
+    /**
+     * @param expectedKeys number of distinct keys which are tracked with few collisions, e.g. the size of a cache
+     */
+    FrequencySketch(int expectedKeys) {
+        this.width = Integer.highestOneBit(Math.max(1, Math.min(expectedKeys, 1 << 28)) * 2 - 1);
+        this.counters = new byte[DEPTH * width];
+        this.sampleSize = 10 * width;
+    }
+
+    void increment(Object key) {
+        long hash = BloomFilter.mix(key.hashCode());
+        boolean incremented = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                incremented = true;
+            }
+        }
+        if (incremented && ++samples >= sampleSize) {
+            age();
+        }
+    }
+
+    /**
+     * @return between 0 and {@value #MAX_COUNT}
+     */
+    int frequency(Object key) {
+        long hash = BloomFilter.mix(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return row * width + ((h1 + row * h2) & (width - 1));
+    }
+
+    private void age() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>= 1;
+        }
+        samples /= 2;
+    }
+}
@@ -0,0 +1,198 @@
+package org.tillerino.osuApiModel.cache;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.annotation.CheckForNull;
+
+/**
+ * Bounded in-memory cache with a time to live per entry. Beyond {@code maxSize} entries, the least recently used
+ * entry is evicted. Expired entries are dropped when they are read or when they are the eldest entry.
+ *
+ * <p>With frequency admission, the cache counts the lookups of every key in a {@link FrequencySketch}, like
+ * TinyLFU. When the cache is full, a new entry is only admitted if its key was looked up at least as often as
+ * the key of the least recently used entry. Otherwise the new entry is rejected, so that many lookups of keys
+ * which are rarely looked up again do not push out entries which are popular, but were not used for a while.
+ *
+ * <p>All methods are synchronized. Lookups only touch a hash map, so contention is low compared to the cost of
+ * the requests which the cache saves.
+ */
+public class LruCache<K, V> {
+    private final LongSupplier nanoClock;
+
+    private final int maxSize;
+
+    /**
+     * Null without frequency admission.
+     */
+    @CheckForNull
+    private final FrequencySketch sketch;
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    private record Entry<V>(V value, long refreshAt, long expiresAt) {}
+
+    /**
+     * @param stale the value is past its refresh time and should be replaced
+     */
+    public record Lookup<V>(V value, boolean stale) {}
+
+    public LruCache(int maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * @param frequencyAdmission only admit new entries to a full cache if they are looked up at least as often as
+     *     the entry which they would evict
+     */
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    public LruCache(int maxSize, boolean frequencyAdmission) {
+        this(maxSize, frequencyAdmission, System::nanoTime);
+    }
+
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    LruCache(int maxSize, boolean frequencyAdmission, LongSupplier nanoClock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1: " + maxSize);
+        }
+        this.nanoClock = nanoClock;
+        this.maxSize = maxSize;
+        // small caches would share few counters between all keys
+        this.sketch = frequencyAdmission ? new FrequencySketch(Math.max(maxSize, 256)) : null;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (super.size() > maxSize || isExpired(eldest.getValue(), nanoClock.getAsLong())) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the value or null if there is no entry or it has expired
+     */
+    @CheckForNull
+    public V get(K key) {
+        Lookup<V> lookup = lookup(key);
+        return lookup != null ? lookup.value() : null;
+    }
+
+    /**
+     * Like {@link #get(Object)}, but also tells if the value is past its refresh time.
+     *
+     * @return null if there is no entry or it has expired
+     */
+    @CheckForNull
+    public synchronized Lookup<V> lookup(K key) {
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long now = nanoClock.getAsLong();
+        if (isExpired(entry, now)) {
+            entries.remove(key);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new Lookup<>(entry.value(), now - entry.refreshAt() >= 0);
+    }
+
+    /**
+     * @param ttl the entry expires after this time. Zero or negative durations are not cached at all.
+     */
+    public void put(K key, V value, Duration ttl) {
+        put(key, value, ttl, ttl);
+    }
+
+    /**
+     * @param refreshAfter after this time, {@link #lookup(Object)} reports the entry as stale
+     * @param ttl the entry expires after this time. Zero or negative durations are not cached at all.
+     */
+    public synchronized void put(K key, V value, Duration refreshAfter, Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            entries.remove(key);
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        if (!isAdmitted(key, now)) {
+            rejections.increment();
+            return;
+        }
+        entries.put(key, new Entry<>(value, now + refreshAfter.toNanos(), now + ttl.toNanos()));
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * The number of entries including expired entries which have not been dropped yet.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The number of entries which were dropped because the cache was full or they had expired.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * The number of new entries which were not cached because the entry which they would have evicted was looked
+     * up more often. Always 0 without frequency admission.
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Only called while locked.
+     */
+    private boolean isAdmitted(K key, long now) {
+        if (sketch == null || entries.size() < maxSize || entries.containsKey(key)) {
+            return true;
+        }
+        // iterating does not count as an access
+        Map.Entry<K, Entry<V>> eldest = entries.entrySet().iterator().next();
+        return isExpired(eldest.getValue(), now) || sketch.frequency(key) >= sketch.frequency(eldest.getKey());
+    }
+
+    private static boolean isExpired(Entry<?> entry, long now) {
+        return now - entry.expiresAt() >= 0;
+    }
+}
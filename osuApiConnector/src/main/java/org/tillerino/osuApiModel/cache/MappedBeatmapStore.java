@@ -0,0 +1,355 @@
+package org.tillerino.osuApiModel.cache;
+
+import static org.tillerino.osuApiModel.deserializer.JsonStreams.JACKSON;
+
+import com.fasterxml.jackson.core.JacksonException;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import javax.annotation.CheckForNull;
+import lombok.extern.slf4j.Slf4j;
+import org.tillerino.osuApiModel.OsuApiBeatmap;
+import org.tillerino.osuApiModel.types.BeatmapId;
+import org.tillerino.osuApiModel.types.BitwiseMods;
+
+/**
+ * {@link BeatmapStore} in two memory-mapped files in a directory. Since the data lives in the page cache and not
+ * on the heap, the store can hold millions of beatmaps.
+ *
+ * <p>{@value #INDEX_FILE} is addressed directly by beatmap id: the slot of a beatmap holds the offset of its
+ * newest record in {@value #DATA_FILE}. Each record contains the offset of the previous record for the same
+ * beatmap, so the records of a beatmap form a chain which is searched for the requested mods. A lookup therefore
+ * reads one index slot and typically one record and only deserializes that record.
+ *
+ * <p>Records are only appended. Storing a beatmap again for the same mods shadows the old record, which still
+ * takes space. The data file is mapped in segments of {@link #DEFAULT_SEGMENT_SIZE} bytes which records do not
+ * span.
+ *
+ * <p>Writes are not flushed to disk until {@link #flush()} or {@link #close()}. After a crash, index slots may
+ * point to records which were not written or only partly written. Each record carries a CRC32 of its header and
+ * JSON. Records with a wrong checksum or JSON which cannot be read are treated as missing, so the beatmap is
+ * requested again and a new record shadows the broken one.
+ */
+@Slf4j
+public class MappedBeatmapStore implements BeatmapStore, Closeable {
+    public static final String DATA_FILE = "beatmaps.dat";
+
+    public static final String INDEX_FILE = "beatmaps.idx";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int MAGIC = 0x6f73755f;
+
+    private static final int VERSION = 2;
+
+    /**
+     * magic, version, end of data
+     */
+    private static final int DATA_HEADER = 16;
+
+    /**
+     * magic, version
+     */
+    private static final int INDEX_HEADER = 8;
+
+    /**
+     * beatmap id, mods, offset of the previous record, stored at (epoch millis), length of the JSON, CRC32 of the
+     * preceding header fields and the JSON
+     */
+    private static final int RECORD_HEADER = 4 + 8 + 8 + 8 + 4 + 4;
+
+    private static final int CHECKSUM = RECORD_HEADER - 4;
+
+    private static final int MAX_INDEX_SLOTS = (Integer.MAX_VALUE - INDEX_HEADER) / 8;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Clock clock;
+
+    private final int segmentSize;
+
+    private final FileChannel dataChannel;
+
+    private final FileChannel indexChannel;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private MappedByteBuffer index;
+
+    private int indexSlots;
+
+    private long end;
+
+    private boolean closed = false;
+
+    private MappedBeatmapStore(FileChannel dataChannel, FileChannel indexChannel, int segmentSize, Clock clock) {
+        this.dataChannel = dataChannel;
+        this.indexChannel = indexChannel;
+        this.segmentSize = segmentSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if necessary.
+     */
+    public static MappedBeatmapStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, Clock.systemUTC());
+    }
+
+    static MappedBeatmapStore open(Path directory, int segmentSize, Clock clock) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel data = FileChannel.open(
+                directory.resolve(DATA_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileChannel index;
+        try {
+            index = FileChannel.open(
+                    directory.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+        MappedBeatmapStore store = new MappedBeatmapStore(data, index, segmentSize, clock);
+        try {
+            store.init();
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void init() throws IOException {
+        boolean newData = dataChannel.size() == 0;
+        MappedByteBuffer first = segment(0);
+        if (newData) {
+            first.putInt(0, MAGIC);
+            first.putInt(4, VERSION);
+            first.putLong(8, DATA_HEADER);
+        } else {
+            checkHeader(first.getInt(0), first.getInt(4), DATA_FILE);
+        }
+        end = first.getLong(8);
+        segment((int) ((end - 1) / segmentSize));
+
+        long indexSize = indexChannel.size();
+        mapIndex(Math.max(1024, (int) Math.min(MAX_INDEX_SLOTS, (indexSize - INDEX_HEADER) / 8)));
+        if (indexSize == 0) {
+            index.putInt(0, MAGIC);
+            index.putInt(4, VERSION);
+        } else {
+            checkHeader(index.getInt(0), index.getInt(4), INDEX_FILE);
+        }
+    }
+
+    private static void checkHeader(int magic, int version, String file) throws IOException {
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("Not a beatmap store or unsupported version: " + file);
+        }
+    }
+
+    @Override
+    @CheckForNull
+    public <T extends OsuApiBeatmap> Stored<T> getStored(
+            @BeatmapId int beatmapId, @BitwiseMods long mods, Class<T> cls, Duration maxAge) throws IOException {
+        long now = clock.millis();
+        byte[] json = null;
+        long storedAt = 0;
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            long offset = find(beatmapId, mods, now - maxAge.toMillis());
+            if (offset >= 0) {
+                MappedByteBuffer segment = segments.get((int) (offset / segmentSize));
+                int position = (int) (offset % segmentSize);
+                storedAt = segment.getLong(position + 20);
+                json = readJson(segment, position);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (json == null) {
+            return null;
+        }
+        try {
+            return new Stored<>(JACKSON.readValue(json, cls), Duration.ofMillis(Math.max(0, now - storedAt)));
+        } catch (JacksonException e) {
+            log.warn("Ignoring unreadable record of beatmap {}", beatmapId, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the offset of the newest record for the mods or -1
+     */
+    private long find(int beatmapId, long mods, long minStoredAt) {
+        if (beatmapId < 0 || beatmapId >= indexSlots) {
+            return -1;
+        }
+        long offset = index.getLong(INDEX_HEADER + beatmapId * 8);
+        // the chain is ordered from new to old, so the first match is the newest
+        while (isValidOffset(offset)) {
+            MappedByteBuffer segment = segments.get((int) (offset / segmentSize));
+            int position = (int) (offset % segmentSize);
+            if (segment.getInt(position) != beatmapId) {
+                // not written completely before a crash
+                return -1;
+            }
+            long next = segment.getLong(position + 12);
+            if (segment.getLong(position + 4) == mods) {
+                return segment.getLong(position + 20) < minStoredAt ? -1 : offset;
+            }
+            if (next >= offset) {
+                // chains only point backwards
+                return -1;
+            }
+            offset = next;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the JSON of the record or null if the record was not written completely before a crash
+     */
+    @CheckForNull
+    private byte[] readJson(MappedByteBuffer segment, int position) {
+        int length = segment.getInt(position + 28);
+        if (length < 0 || position + RECORD_HEADER + (long) length > segmentSize) {
+            return null;
+        }
+        byte[] json = new byte[length];
+        segment.get(position + RECORD_HEADER, json);
+        if (segment.getInt(position + CHECKSUM) != checksum(segment, position, json)) {
+            return null;
+        }
+        return json;
+    }
+
+    private static int checksum(MappedByteBuffer segment, int position, byte[] json) {
+        CRC32 crc = new CRC32();
+        crc.update(segment.slice(position, CHECKSUM));
+        crc.update(json);
+        return (int) crc.getValue();
+    }
+
+    private boolean isValidOffset(long offset) {
+        return offset >= DATA_HEADER && offset + RECORD_HEADER <= end;
+    }
+
+    @Override
+    @SuppressFBWarnings(value = "TQ", justification = "range check of the id")
+    public void put(OsuApiBeatmap beatmap, @BitwiseMods long mods) throws IOException {
+        int beatmapId = beatmap.getBeatmapId();
+        if (beatmapId < 0 || beatmapId >= MAX_INDEX_SLOTS) {
+            throw new IllegalArgumentException("Beatmap id out of range: " + beatmapId);
+        }
+        byte[] json = JACKSON.writeValueAsBytes(beatmap);
+        if (RECORD_HEADER + (long) json.length > segmentSize - DATA_HEADER) {
+            throw new IllegalArgumentException("Beatmap too large to store: " + json.length + " bytes");
+        }
+
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (beatmapId >= indexSlots) {
+                mapIndex((int) Math.min(MAX_INDEX_SLOTS, Math.max(beatmapId + 1L, indexSlots * 2L)));
+            }
+
+            long offset = end;
+            if (offset % segmentSize + RECORD_HEADER + json.length > segmentSize) {
+                // records do not span segments
+                offset = (offset / segmentSize + 1) * segmentSize;
+            }
+            MappedByteBuffer segment = segment((int) (offset / segmentSize));
+            int position = (int) (offset % segmentSize);
+            int slot = INDEX_HEADER + beatmapId * 8;
+            segment.putInt(position, beatmapId);
+            segment.putLong(position + 4, mods);
+            segment.putLong(position + 12, index.getLong(slot));
+            segment.putLong(position + 20, clock.millis());
+            segment.putInt(position + 28, json.length);
+            segment.put(position + RECORD_HEADER, json);
+            segment.putInt(position + CHECKSUM, checksum(segment, position, json));
+
+            // publish the record only after it has been written
+            end = offset + RECORD_HEADER + json.length;
+            segments.get(0).putLong(8, end);
+            index.putLong(slot, offset);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all changes to disk.
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            segments.forEach(MappedByteBuffer::force);
+            index.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try (FileChannel data = dataChannel;
+                    FileChannel indexData = indexChannel) {
+                segments.forEach(MappedByteBuffer::force);
+                if (index != null) {
+                    index.force();
+                }
+            } finally {
+                segments.clear();
+                index = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private MappedByteBuffer segment(int number) throws IOException {
+        while (segments.size() <= number) {
+            segments.add(dataChannel.map(MapMode.READ_WRITE, (long) segments.size() * segmentSize, segmentSize));
+        }
+        return segments.get(number);
+    }
+
+    private void mapIndex(int slots) throws IOException {
+        index = indexChannel.map(MapMode.READ_WRITE, 0, INDEX_HEADER + slots * 8L);
+        indexSlots = slots;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("store is closed");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.tillerino.osuApiModel.cache;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import org.tillerino.osuApiModel.types.UserId;
+
+/**
+ * Case-insensitive index of user names to user ids, which {@link CachingOsuApiClient} fills from every user it
+ * receives.
+ *
+ * <p>Users can change their name, and a name which was given up can be taken by another user. When a user id
+ * comes back with a new name, the old name is dropped. When a name comes back with a new user id, it is moved to
+ * that id. Renames which were not seen are covered by the TTL, after which a name is resolved again.
+ */
+public class UserNameIndex {
+    private final LruCache<String, Integer> ids;
+
+    private final LruCache<Integer, String> names;
+
+    private final Duration ttl;
+
+    private final LongAdder renames = new LongAdder();
+
+    public UserNameIndex(int maxSize, Duration ttl) {
+        this.ids = new LruCache<>(maxSize);
+        this.names = new LruCache<>(maxSize);
+        this.ttl = ttl;
+    }
+
+    /**
+     * @return the id of the user who had the name when it was last seen or null if it is unknown
+     */
+    @CheckForNull
+    public Integer getUserId(String username) {
+        return ids.get(normalize(username));
+    }
+
+    public synchronized void put(@UserId int userId, String username) {
+        String name = normalize(username);
+        String previous = names.get(userId);
+        if (previous != null && !previous.equals(name)) {
+            renames.increment();
+            ids.invalidate(previous);
+        }
+        Integer previousId = ids.get(name);
+        if (previousId != null && previousId != userId) {
+            names.invalidate(previousId);
+        }
+        ids.put(name, userId, ttl);
+        names.put(userId, name, ttl);
+    }
+
+    /**
+     * @return true if both names are the same for the index
+     */
+    public static boolean isSameName(String a, String b) {
+        return normalize(a).equals(normalize(b));
+    }
+
+    /**
+     * User names are not case-sensitive.
+     */
+    static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The number of user ids which came back with a new name.
+     */
+    public long getRenames() {
+        return renames.sum();
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    public synchronized void clear() {
+        ids.clear();
+        names.clear();
+    }
+}
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import java.io.IOException;
+import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -15,6 +16,11 @@ import java.time.format.DateTimeFormatter;
 /**
  * We store datetimes as longs and use this deserializer to deserialize ISO datetimes directly to longs
  * as an alternative to integer values.
+ *
+ * <p>Dates in the format of the v1 API ({@code 2016-05-08 08:47:44}, UTC) and in ISO-8601 as returned by the v2
+ * API ({@code 2016-05-08T08:47:44Z}, {@code 2016-05-08T08:47:44+00:00}, optionally with a fraction) are parsed
+ * from the parser's buffer without creating any objects. Anything else, e.g. out-of-range fields, is left to
+ * {@link #dateTimeFormatter} or {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME}.
  */
 public class DateToLong extends StdDeserializer<Long> {
     public DateToLong() {
@@ -25,16 +31,165 @@ public class DateToLong extends StdDeserializer<Long> {
     public static final DateTimeFormatter dateTimeFormatter =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
 
+    /**
+     * Returned by {@link #parseFast(char[], int, int)} for dates which it does not parse. This is not a valid
+     * result since the fast path only parses years 0000 to 9999.
+     */
+    private static final long NOT_PARSED = Long.MIN_VALUE;
+
     @Override
     public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException, JacksonException {
         if (p.currentToken() == JsonToken.VALUE_NUMBER_INT) {
             return p.getLongValue();
         }
         if (p.currentToken() == JsonToken.VALUE_STRING) {
-            return ZonedDateTime.parse(p.getValueAsString(), dateTimeFormatter)
+            return parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        }
+        throw MismatchedInputException.from(p, _valueType, "Expected a string or an integer");
+    }
+
+    /**
+     * Parses a date in the v1 format or in ISO-8601.
+     *
+     * @return milliseconds since epoch
+     * @throws java.time.format.DateTimeParseException if the date cannot be parsed
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        long millis = parseFast(chars, offset, length);
+        return millis != NOT_PARSED ? millis : parseSlow(new String(chars, offset, length));
+    }
+
+    /**
+     * @see #parse(char[], int, int)
+     */
+    public static long parse(String date) {
+        // a copy is cheaper than parsing with the formatter
+        return parse(date.toCharArray(), 0, date.length());
+    }
+
+    private static long parseSlow(String date) {
+        if (date.indexOf('T') >= 0) {
+            return OffsetDateTime.parse(date, DateTimeFormatter.ISO_OFFSET_DATE_TIME)
                     .toInstant()
                     .toEpochMilli();
         }
-        throw MismatchedInputException.from(p, _valueType, "Expected a string or an integer");
+        return ZonedDateTime.parse(date, dateTimeFormatter).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd HH:mm:ss} and {@code yyyy-MM-ddTHH:mm:ss[.fraction](Z|+HH:MM|-HH:MM)}. Fractions
+     * are truncated to milliseconds like {@link java.time.Instant#toEpochMilli()} does.
+     *
+     * @return {@link #NOT_PARSED} if the date has a different format or a field is out of range
+     */
+    private static long parseFast(char[] chars, int offset, int length) {
+        if (length < 19) {
+            return NOT_PARSED;
+        }
+        char separator = chars[offset + 10];
+        if (chars[offset + 4] != '-'
+                || chars[offset + 7] != '-'
+                || (separator != ' ' && separator != 'T')
+                || chars[offset + 13] != ':'
+                || chars[offset + 16] != ':') {
+            return NOT_PARSED;
+        }
+        int year = digits(chars, offset, 4);
+        int month = digits(chars, offset + 5, 2);
+        int day = digits(chars, offset + 8, 2);
+        int hour = digits(chars, offset + 11, 2);
+        int minute = digits(chars, offset + 14, 2);
+        int second = digits(chars, offset + 17, 2);
+        if (year < 0
+                || month < 1
+                || month > 12
+                || day < 1
+                || day > daysInMonth(year, month)
+                || hour < 0
+                || hour > 23
+                || minute < 0
+                || minute > 59
+                || second < 0
+                || second > 59) {
+            return NOT_PARSED;
+        }
+        long seconds = epochDay(year, month, day) * 86400L + hour * 3600 + minute * 60 + second;
+
+        if (separator == ' ') {
+            // the v1 format has no fraction and no zone
+            return length == 19 ? seconds * 1000L : NOT_PARSED;
+        }
+
+        int position = offset + 19;
+        int end = offset + length;
+        int millis = 0;
+        if (position < end && chars[position] == '.') {
+            position++;
+            int fractionStart = position;
+            while (position < end && chars[position] >= '0' && chars[position] <= '9') {
+                if (position - fractionStart < 3) {
+                    millis = millis * 10 + (chars[position] - '0');
+                }
+                position++;
+            }
+            int fractionDigits = position - fractionStart;
+            if (fractionDigits == 0 || fractionDigits > 9) {
+                return NOT_PARSED;
+            }
+            for (int i = fractionDigits; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+
+        // ISO-8601 requires a zone
+        if (position == end - 1 && chars[position] == 'Z') {
+            return seconds * 1000L + millis;
+        }
+        if (position == end - 6 && (chars[position] == '+' || chars[position] == '-') && chars[position + 3] == ':') {
+            int offsetHours = digits(chars, position + 1, 2);
+            int offsetMinutes = digits(chars, position + 4, 2);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return NOT_PARSED;
+            }
+            int offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (chars[position] == '-' ? -1 : 1);
+            return (seconds - offsetSeconds) * 1000L + millis;
+        }
+        return NOT_PARSED;
+    }
+
+    /**
+     * @return the number or -1 if any of the characters is not a digit
+     */
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar, see
+     * <a href="https://howardhinnant.github.io/date_algorithms.html#days_from_civil">days_from_civil</a>.
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
     }
 }
@@ -0,0 +1,120 @@
+package org.tillerino.osuApiModel.deserializer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+import org.tillerino.osuApiModel.http.Futures.IOFunction;
+
+/**
+ * Binds API responses straight from the response stream, without copying the body into a String or building a
+ * {@link com.fasterxml.jackson.databind.JsonNode} tree first.
+ */
+public class JsonStreams {
+    /**
+     * The mapper of the whole library. Unknown properties are ignored since the API keeps adding fields. It must not
+     * be reconfigured.
+     */
+    public static final ObjectMapper JACKSON =
+            new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private JsonStreams() {}
+
+    /**
+     * Opens a parser on the stream, hands it to the reader and reads the rest of the stream afterwards so that the
+     * underlying connection can be reused.
+     */
+    public static <T> T read(ObjectMapper mapper, InputStream in, IOFunction<JsonParser, T> reader) throws IOException {
+        try (JsonParser parser = mapper.createParser(in)) {
+            T value = reader.apply(parser);
+            in.transferTo(OutputStream.nullOutputStream());
+            return value;
+        }
+    }
+
+    /**
+     * Reads an array of objects. A JSON null is read as an empty list.
+     *
+     * @param patch is called with every element right after it was bound. May be null.
+     */
+    public static <T> List<T> readList(
+            ObjectMapper mapper, JsonParser parser, Class<T> cls, @CheckForNull Consumer<? super T> patch)
+            throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.VALUE_NULL) {
+            return Collections.emptyList();
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw MismatchedInputException.from(parser, List.class, "Expected array, but found " + token);
+        }
+        List<T> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            T element = mapper.readValue(parser, cls);
+            if (patch != null) {
+                patch.accept(element);
+            }
+            list.add(element);
+        }
+        return list;
+    }
+
+    /**
+     * Reads the first element of an array, or a single object. Returns null for an empty array and for a JSON null.
+     */
+    @CheckForNull
+    public static <T> T readFirst(ObjectMapper mapper, JsonParser parser, Class<T> cls) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null || token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.START_OBJECT) {
+            return mapper.readValue(parser, cls);
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw MismatchedInputException.from(parser, cls, "Expected array or object, but found " + token);
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return null;
+        }
+        return mapper.readValue(parser, cls);
+    }
+
+    /**
+     * Some errors are reported as plain text instead of JSON. This peeks at the beginning of the stream and throws a
+     * {@link RuntimeException} with the message if the stream consists of exactly that message.
+     *
+     * @return a stream which still contains all of the data
+     */
+    public static InputStream failOnMessage(InputStream in, String message) throws IOException {
+        byte[] expected = message.getBytes(StandardCharsets.UTF_8);
+        PushbackInputStream pushback = new PushbackInputStream(in, expected.length + 1);
+        int first = pushback.read();
+        if (first < 0) {
+            return pushback;
+        }
+        if (first != expected[0]) {
+            pushback.unread(first);
+            return pushback;
+        }
+        byte[] actual = new byte[expected.length + 1];
+        actual[0] = (byte) first;
+        int length = 1 + pushback.readNBytes(actual, 1, expected.length);
+        if (length == expected.length && Arrays.equals(expected, 0, expected.length, actual, 0, length)) {
+            throw new RuntimeException(message);
+        }
+        pushback.unread(actual, 0, length);
+        return pushback;
+    }
+}
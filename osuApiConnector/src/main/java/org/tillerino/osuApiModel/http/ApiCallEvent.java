@@ -0,0 +1,52 @@
+package org.tillerino.osuApiModel.http;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for one call of the osu! API, including all of its retries. This carries the same values
+ * as {@link RequestEvent}, but is emitted regardless of the {@link RequestListener} of the downloader.
+ */
+@Name("org.tillerino.osuApiModel.ApiCall")
+@Label("osu! API Call")
+@Category("osu! API")
+@Description("A call of the osu! API, including retries and decoding of the response")
+@StackTrace(false)
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "the fields are read by the flight recorder")
+final class ApiCallEvent extends jdk.jfr.Event {
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Method")
+    String method;
+
+    @Label("Status")
+    @Description("Status code of the last response or 0 if no response was received")
+    int status;
+
+    @Label("Headers Time")
+    @Description("Time from sending the last attempt until its response headers arrived")
+    @Timespan(Timespan.NANOSECONDS)
+    long headersTime;
+
+    @Label("Compressed Bytes")
+    @DataAmount
+    long compressedBytes;
+
+    @Label("Decompressed Bytes")
+    @DataAmount
+    long decompressedBytes;
+
+    @Label("Retries")
+    int retries;
+
+    @Label("Failure")
+    @Description("Class of the exception if the call failed")
+    String failure;
+}
@@ -0,0 +1,182 @@
+package org.tillerino.osuApiModel.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+
+/**
+ * Fails a response body if no data arrives for the timeout while the body subscriber is waiting for data, like the
+ * read timeout of {@link java.net.HttpURLConnection}. {@link java.net.http.HttpRequest#timeout()} only bounds the
+ * wait for the headers.
+ *
+ * <p>A body which is not read, e.g. an {@link InputStream} which is consumed slowly, does not time out, since it
+ * does not ask for more data. The body is checked by a timer once per timeout.
+ */
+class BodyTimeout<T> implements BodySubscriber<T> {
+    private final BodySubscriber<T> delegate;
+
+    private final Duration timeout;
+
+    /**
+     * Items which were requested, but not received yet. Saturates at {@link Long#MAX_VALUE}.
+     */
+    private final AtomicLong demand = new AtomicLong();
+
+    /**
+     * When data last arrived or was requested while none was requested.
+     */
+    private volatile long lastProgress = System.nanoTime();
+
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    @CheckForNull
+    private volatile HttpTimeoutException timedOut;
+
+    @CheckForNull
+    private volatile Flow.Subscription subscription;
+
+    private BodyTimeout(BodySubscriber<T> delegate, Duration timeout) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+    }
+
+    static <T> BodyHandler<T> handler(BodyHandler<T> handler, Duration timeout) {
+        return responseInfo -> new BodyTimeout<>(handler.apply(responseInfo), timeout);
+    }
+
+    /**
+     * Like {@link java.net.http.HttpResponse.BodyHandlers#ofInputStream()}. Reads of a body which timed out throw
+     * the {@link HttpTimeoutException}.
+     */
+    static BodyHandler<InputStream> inputStreamHandler(Duration timeout) {
+        return responseInfo -> {
+            BodyTimeout<InputStream> subscriber = new BodyTimeout<>(BodySubscribers.ofInputStream(), timeout);
+            return BodySubscribers.mapping(subscriber, in -> new TimeoutInputStream(in, subscriber));
+        };
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return delegate.getBody();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        delegate.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (demand.getAndUpdate(d -> d + n < 0 ? Long.MAX_VALUE : d + n) == 0) {
+                    lastProgress = System.nanoTime();
+                }
+                subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                done.set(true);
+                subscription.cancel();
+            }
+        });
+        check(timeout.toNanos());
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> item) {
+        demand.getAndUpdate(d -> d == Long.MAX_VALUE ? d : d - 1);
+        lastProgress = System.nanoTime();
+        delegate.onNext(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done.compareAndSet(false, true)) {
+            delegate.onError(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (done.compareAndSet(false, true)) {
+            delegate.onComplete();
+        }
+    }
+
+    private void check(long delayNanos) {
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, Runnable::run)
+                .execute(this::check);
+    }
+
+    private void check() {
+        if (done.get()) {
+            return;
+        }
+        long waited = System.nanoTime() - lastProgress;
+        if (demand.get() == 0 || waited < timeout.toNanos()) {
+            check(demand.get() == 0 ? timeout.toNanos() : timeout.toNanos() - waited);
+            return;
+        }
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        HttpTimeoutException exception = new HttpTimeoutException("received no data for " + timeout);
+        timedOut = exception;
+        // the error must arrive first, cancelling makes the client report an error of its own
+        delegate.onError(exception);
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private static class TimeoutInputStream extends FilterInputStream {
+        private final BodyTimeout<?> body;
+
+        TimeoutInputStream(InputStream in, BodyTimeout<?> body) {
+            super(in);
+            this.body = body;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw timedOut(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                throw timedOut(e);
+            }
+        }
+
+        private IOException timedOut(IOException e) {
+            HttpTimeoutException timedOut = body.timedOut;
+            if (timedOut == null) {
+                return e;
+            }
+            HttpTimeoutException exception = new HttpTimeoutException(timedOut.getMessage());
+            exception.initCause(e);
+            return exception;
+        }
+    }
+}
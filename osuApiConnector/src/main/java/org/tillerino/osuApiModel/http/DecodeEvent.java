@@ -0,0 +1,29 @@
+package org.tillerino.osuApiModel.http;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for reading the response body of an osu! API call into objects.
+ */
+@Name("org.tillerino.osuApiModel.Decode")
+@Label("osu! API Decode")
+@Category("osu! API")
+@Description("Decoding of an osu! API response. Bodies which are decoded while they are received also include"
+        + " the time spent waiting for the body.")
+@StackTrace(false)
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "the fields are read by the flight recorder")
+final class DecodeEvent extends jdk.jfr.Event {
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Bytes")
+    @Description("Decompressed bytes which were read while decoding")
+    @DataAmount
+    long bytes;
+}
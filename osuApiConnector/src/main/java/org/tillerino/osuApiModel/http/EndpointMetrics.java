@@ -0,0 +1,128 @@
+package org.tillerino.osuApiModel.http;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.CheckForNull;
+import lombok.Getter;
+
+/**
+ * {@link RequestListener} which keeps counters and {@link Histogram}s per endpoint. It can be shared
+ * between downloaders. Recording does not lock.
+ */
+public class EndpointMetrics implements RequestListener {
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * The metrics of a single endpoint. Times are in nanoseconds.
+     */
+    public static class Endpoint {
+        @Getter
+        private final Histogram totalTime = new Histogram();
+
+        /**
+         * Time until the response headers of the last attempt arrived, for calls which measured it.
+         */
+        @Getter
+        private final Histogram headersTime = new Histogram();
+
+        @Getter
+        private final Histogram decodeTime = new Histogram();
+
+        /**
+         * Decompressed size of the response bodies.
+         */
+        @Getter
+        private final Histogram responseSize = new Histogram();
+
+        private final LongAdder failures = new LongAdder();
+
+        private final LongAdder retries = new LongAdder();
+
+        private final LongAdder compressedBytes = new LongAdder();
+
+        private final LongAdder decompressedBytes = new LongAdder();
+
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(RequestEvent event) {
+            totalTime.record(event.totalNanos());
+            if (event.headersNanos() >= 0) {
+                headersTime.record(event.headersNanos());
+            }
+            decodeTime.record(event.decodeNanos());
+            responseSize.record(event.decompressedBytes());
+            if (!event.isSuccess()) {
+                failures.increment();
+            }
+            retries.add(event.retries());
+            compressedBytes.add(event.compressedBytes());
+            decompressedBytes.add(event.decompressedBytes());
+            statuses.computeIfAbsent(event.status(), status -> new LongAdder()).increment();
+        }
+
+        public long getCalls() {
+            return totalTime.getCount();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        public long getCompressedBytes() {
+            return compressedBytes.sum();
+        }
+
+        public long getDecompressedBytes() {
+            return decompressedBytes.sum();
+        }
+
+        /**
+         * Number of calls per status code of the last response. 0 counts calls which received no response.
+         */
+        public Map<Integer, Long> getStatuses() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+
+        @Override
+        public String toString() {
+            return "Endpoint[calls=" + getCalls() + ", failures=" + getFailures() + ", retries=" + getRetries()
+                    + ", p50=" + totalTime.getValueAtPercentile(50) + "ns, p99=" + totalTime.getValueAtPercentile(99)
+                    + "ns, bytes=" + getCompressedBytes() + "/" + getDecompressedBytes() + ", statuses="
+                    + getStatuses() + "]";
+        }
+    }
+
+    @Override
+    public void onRequest(RequestEvent event) {
+        endpoints.computeIfAbsent(event.endpoint(), endpoint -> new Endpoint()).record(event);
+    }
+
+    /**
+     * @param endpoint see {@link RequestEvent#endpoint()}
+     * @return null if the endpoint was not called yet
+     */
+    @CheckForNull
+    public Endpoint getEndpoint(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * All endpoints which were called, sorted by name.
+     */
+    public Map<String, Endpoint> getEndpoints() {
+        return Collections.unmodifiableMap(new TreeMap<>(endpoints));
+    }
+
+    public void clear() {
+        endpoints.clear();
+    }
+}
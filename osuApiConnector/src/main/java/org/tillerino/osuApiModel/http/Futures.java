@@ -0,0 +1,296 @@
+package org.tillerino.osuApiModel.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * Helpers for composing {@link CompletableFuture}s with steps which throw {@link IOException}.
+ */
+public class Futures {
+    private Futures() {}
+
+    @FunctionalInterface
+    public interface IOFunction<T, R> {
+        R apply(T t) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface IOConsumer<T> {
+        void accept(T t) throws IOException;
+    }
+
+    /**
+     * Like {@link CompletableFuture#thenApply}, but the function may throw an {@link IOException}, which
+     * completes the returned future exceptionally.
+     */
+    public static <T, R> CompletableFuture<R> thenApplyIO(CompletableFuture<T> future, IOFunction<T, R> fn) {
+        return future.thenCompose(t -> {
+            try {
+                return CompletableFuture.completedFuture(fn.apply(t));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    /**
+     * Like {@link CompletableFuture#thenCompose}, but the function may throw an {@link IOException}, which
+     * completes the returned future exceptionally. Cancelling the returned future cancels the future which the
+     * function returned, but not the given future, which may be shared.
+     */
+    public static <T, R> CompletableFuture<R> thenComposeIO(
+            CompletableFuture<T> future, IOFunction<T, CompletableFuture<R>> fn) {
+        AtomicReference<CompletableFuture<R>> composed = new AtomicReference<>();
+        CompletableFuture<R> result = future.thenCompose(t -> {
+            try {
+                CompletableFuture<R> next = fn.apply(t);
+                composed.set(next);
+                return next;
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+        result.whenComplete((value, failure) -> {
+            CompletableFuture<R> next = composed.get();
+            if (result.isCancelled() && next != null) {
+                next.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Combines the values of two futures which run concurrently. If either future fails, the other one is
+     * cancelled and the returned future fails with the first failure. Cancelling the returned future cancels both.
+     */
+    public static <A, B, R> CompletableFuture<R> both(
+            CompletableFuture<A> a, CompletableFuture<B> b, BiFunction<? super A, ? super B, ? extends R> fn) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        failFast(result, List.of(a, b));
+        a.thenCombine(b, fn).whenComplete((value, failure) -> complete(result, value, failure));
+        return result;
+    }
+
+    /**
+     * Collects the values of futures which run concurrently, in the same order. If any future fails, the others
+     * are cancelled and the returned future fails with the first failure. Cancelling the returned future cancels
+     * all of them.
+     */
+    public static <T> CompletableFuture<List<T>> all(List<CompletableFuture<T>> futures) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        failFast(result, futures);
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                complete(result, null, failure);
+                return;
+            }
+            List<T> values = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                values.add(future.join());
+            }
+            result.complete(values);
+        });
+        return result;
+    }
+
+    /**
+     * Like {@link #all(List)}, but the futures are created by starting the tasks {@code 0} to {@code count - 1}
+     * one after another, so that at most {@code maxInFlight} of them run at the same time. The values may be null.
+     * If a task fails, no more tasks are started, the running ones are cancelled and the returned future fails
+     * with the first failure. Cancelling the returned future does the same.
+     */
+    public static <T> CompletableFuture<List<T>> bounded(
+            int count, int maxInFlight, IntFunction<CompletableFuture<T>> task) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1: " + maxInFlight);
+        }
+        return new Bounded<>(count, task).start(Math.min(count, maxInFlight));
+    }
+
+    private static class Bounded<T> {
+        private final int count;
+
+        private final IntFunction<CompletableFuture<T>> task;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final AtomicInteger remaining;
+
+        private final AtomicReferenceArray<T> values;
+
+        private final Set<CompletableFuture<T>> running = ConcurrentHashMap.newKeySet();
+
+        private final CompletableFuture<List<T>> result = new CompletableFuture<>();
+
+        Bounded(int count, IntFunction<CompletableFuture<T>> task) {
+            this.count = count;
+            this.task = task;
+            this.remaining = new AtomicInteger(count);
+            this.values = new AtomicReferenceArray<>(count);
+        }
+
+        CompletableFuture<List<T>> start(int lanes) {
+            if (count == 0) {
+                result.complete(List.of());
+                return result;
+            }
+            result.whenComplete((value, failure) -> {
+                if (failure != null) {
+                    running.forEach(future -> future.cancel(true));
+                }
+            });
+            for (int i = 0; i < lanes; i++) {
+                drain();
+            }
+            return result;
+        }
+
+        /**
+         * Starts tasks until one of them does not complete right away. Tasks which do are handled in this loop, so
+         * that many cached results do not build up a deep stack of callbacks.
+         */
+        private void drain() {
+            while (!result.isDone()) {
+                int i = next.getAndIncrement();
+                if (i >= count) {
+                    return;
+                }
+                CompletableFuture<T> future;
+                try {
+                    future = task.apply(i);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                if (!future.isDone()) {
+                    CompletableFuture<T> started = future;
+                    running.add(started);
+                    started.whenComplete((value, failure) -> {
+                        running.remove(started);
+                        if (collect(i, started)) {
+                            drain();
+                        }
+                    });
+                    if (result.isDone()) {
+                        started.cancel(true);
+                    }
+                    return;
+                }
+                if (!collect(i, future)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return false if the future failed
+         */
+        private boolean collect(int i, CompletableFuture<T> future) {
+            try {
+                values.set(i, future.join());
+            } catch (CompletionException | CancellationException e) {
+                result.completeExceptionally(unwrap(e));
+                return false;
+            }
+            if (remaining.decrementAndGet() == 0) {
+                List<T> list = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    list.add(values.get(j));
+                }
+                result.complete(list);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Cancels the source future once the dependent future is cancelled. {@link CompletableFuture} only passes
+     * results down the chain, never cancellation up.
+     */
+    public static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((value, failure) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    private static void failFast(CompletableFuture<?> result, List<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete((value, failure) -> {
+                if (failure != null) {
+                    result.completeExceptionally(unwrap(failure));
+                }
+            });
+        }
+        result.whenComplete((value, failure) -> {
+            if (failure != null) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        });
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, T value, Throwable failure) {
+        if (failure != null) {
+            result.completeExceptionally(unwrap(failure));
+        } else {
+            result.complete(value);
+        }
+    }
+
+    /**
+     * Removes the {@link CompletionException} and {@link ExecutionException} wrappers which
+     * {@link CompletableFuture} puts around exceptions thrown by dependent stages.
+     */
+    public static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    /**
+     * Waits for the future and rethrows its failure as it was thrown inside of the future.
+     */
+    public static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("interrupted while waiting for response");
+            interrupted.initCause(e);
+            throw interrupted;
+        } catch (ExecutionException | CancellationException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
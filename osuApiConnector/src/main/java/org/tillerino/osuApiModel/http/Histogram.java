@@ -0,0 +1,112 @@
+package org.tillerino.osuApiModel.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values, e.g. nanoseconds or bytes, with a relative error of less than 1%. Like an HDR
+ * histogram, the buckets are log-linear: each power of two is split into {@value #SUB_BUCKETS} buckets of equal
+ * width, so 3712 counters (29 KiB) cover all longs. Percentiles are reported as the middle of their bucket, which is
+ * off by at most half of a bucket, i.e. 1/128 of the value.
+ *
+ * <p>Recording does not lock and does not allocate. Reading while values are being recorded is safe, but may not
+ * see a consistent snapshot.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 6;
+
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Negative values are recorded as zero.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the middle of the bucket of the value at the percentile, at most {@link #getMax()}. The highest
+     *     percentile is {@link #getMax()}. 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        // the counts are read as they are, values which are recorded meanwhile may or may not be seen
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        if (rank >= total) {
+            return getMax();
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(middleValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long middleValue(int bucket) {
+        long highest = highestValue(bucket);
+        return highest - (highest - lowestValue(bucket)) / 2;
+    }
+
+    static long lowestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return lowestValue(bucket) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,33 @@
+package org.tillerino.osuApiModel.http;
+
+import java.io.IOException;
+import java.time.Duration;
+import javax.annotation.CheckForNull;
+import lombok.Getter;
+
+/**
+ * The server responded with a status code other than 200.
+ */
+public class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    @Getter
+    private final int statusCode;
+
+    /**
+     * The delay requested by the server in the {@code Retry-After} header or null if there was none.
+     */
+    @Getter
+    @CheckForNull
+    private final Duration retryAfter;
+
+    public HttpStatusException(int statusCode, @CheckForNull Duration retryAfter) {
+        this(statusCode, retryAfter, "response code " + statusCode);
+    }
+
+    public HttpStatusException(int statusCode, @CheckForNull Duration retryAfter, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+}
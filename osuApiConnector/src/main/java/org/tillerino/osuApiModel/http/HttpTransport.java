@@ -0,0 +1,187 @@
+package org.tillerino.osuApiModel.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+import javax.annotation.CheckForNull;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * HTTP transport shared by {@link org.tillerino.osuApiModel.Downloader} and
+ * {@link org.tillerino.osuApiModel.v2.DownloaderV2}. It wraps a single {@link HttpClient}, which keeps
+ * connections alive between calls and multiplexes requests over HTTP/2 where the server supports it.
+ *
+ * <p>All downloaders use {@link #shared()} unless they are given a transport of their own. A custom
+ * transport can be created through {@link #builder()}. Each transport owns its own connection pool, so
+ * transports should be created once and reused.
+ */
+public class HttpTransport {
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final HttpTransport SHARED = builder().build();
+
+    @Getter
+    private final HttpClient client;
+
+    /**
+     * Default time to wait for the response headers of a request and, while the body is received, for more data.
+     */
+    @Getter
+    private final Duration requestTimeout;
+
+    /**
+     * @param version the preferred HTTP version. Defaults to HTTP/2, which falls back to HTTP/1.1 if the server
+     *     does not support it.
+     * @param connectTimeout time to wait for a new connection to be established. Defaults to {@link #DEFAULT_TIMEOUT}.
+     * @param requestTimeout default time to wait for the response headers and then for each part of the body.
+     *     Defaults to {@link #DEFAULT_TIMEOUT}.
+     * @param executor executor for asynchronous tasks of the client. Defaults to the client's own executor.
+     */
+    @Builder
+    private HttpTransport(
+            @CheckForNull HttpClient.Version version,
+            @CheckForNull Duration connectTimeout,
+            @CheckForNull Duration requestTimeout,
+            @CheckForNull Executor executor) {
+        HttpClient.Builder clientBuilder = HttpClient.newBuilder()
+                .version(version != null ? version : HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout != null ? connectTimeout : DEFAULT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (executor != null) {
+            clientBuilder.executor(executor);
+        }
+        this.client = clientBuilder.build();
+        this.requestTimeout = requestTimeout != null ? requestTimeout : DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * The transport which is used by all downloaders which were not given a transport explicitly.
+     */
+    public static HttpTransport shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts a request which asks for a gzip-compressed response.
+     *
+     * @param timeout bounds connecting and the wait for the response headers. Once the headers have arrived, it
+     *     bounds each wait for more data of the body, so a body which stops arriving fails with an
+     *     {@link java.net.http.HttpTimeoutException}. The transport's connect timeout applies as well.
+     */
+    public HttpRequest.Builder newRequest(URI uri, Duration timeout) {
+        return HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").timeout(timeout);
+    }
+
+    /**
+     * Sends the request and returns as soon as the response headers have been received. The body must be
+     * closed by the caller.
+     */
+    public HttpResponse<InputStream> send(HttpRequest request) throws IOException {
+        try {
+            return client.send(request, BodyTimeout.inputStreamHandler(timeout(request)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted =
+                    new InterruptedIOException("interrupted while waiting for " + request.uri());
+            interrupted.initCause(e);
+            throw interrupted;
+        }
+    }
+
+    /**
+     * Sends the request without blocking. The returned future completes once the entire body has been
+     * received.
+     */
+    public CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request) {
+        return sendAsync(request, BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Sends the request without blocking, using the given body handler.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, BodyHandler<T> bodyHandler) {
+        return client.sendAsync(request, BodyTimeout.handler(bodyHandler, timeout(request)));
+    }
+
+    private Duration timeout(HttpRequest request) {
+        return request.timeout().orElse(requestTimeout);
+    }
+
+    /**
+     * Returns the body of the response, decompressing it if the server used gzip.
+     */
+    public static InputStream body(HttpResponse<InputStream> response) throws IOException {
+        return decompress(response, response.body());
+    }
+
+    /**
+     * Returns the body of a response which was received with {@link #sendAsync(HttpRequest)}, decompressing
+     * it if the server used gzip.
+     */
+    public static InputStream bytesBody(HttpResponse<byte[]> response) throws IOException {
+        return decompress(response, new ByteArrayInputStream(response.body()));
+    }
+
+    static InputStream decompress(HttpResponse<?> response, InputStream inputStream) throws IOException {
+        String contentEncoding =
+                response.headers().firstValue("Content-Encoding").orElse(null);
+        if (contentEncoding != null && contentEncoding.equalsIgnoreCase("gzip")) {
+            try {
+                inputStream = new GZIPInputStream(inputStream);
+            } catch (IOException e) {
+                inputStream.close();
+                throw e;
+            }
+        }
+        return inputStream;
+    }
+
+    /**
+     * Returns the content type of the response or null if the header is missing.
+     */
+    @CheckForNull
+    public static String contentType(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Type").orElse(null);
+    }
+
+    /**
+     * Returns the delay which the server requested in the {@code Retry-After} header. The header contains either
+     * a number of seconds or an HTTP date. Returns null if the header is missing or malformed.
+     */
+    @CheckForNull
+    public static Duration retryAfter(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            // not a number, so it should be a date
+        }
+        try {
+            Duration delay =
+                    Duration.between(Instant.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
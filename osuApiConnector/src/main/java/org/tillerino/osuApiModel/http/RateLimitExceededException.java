@@ -0,0 +1,24 @@
+package org.tillerino.osuApiModel.http;
+
+import java.io.IOException;
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * Thrown by {@link RateLimiter} if a request would have to wait longer for a permit than the caller allows.
+ * The request was not sent.
+ */
+public class RateLimitExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * How long the request would have had to wait.
+     */
+    @Getter
+    private final Duration wait;
+
+    public RateLimitExceededException(Duration wait) {
+        super("rate limit exceeded, next permit in " + wait.toMillis() + "ms");
+        this.wait = wait;
+    }
+}
@@ -0,0 +1,269 @@
+package org.tillerino.osuApiModel.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.CheckForNull;
+
+/**
+ * Token bucket which limits the rate of requests. The bucket holds up to {@code burst} permits and is refilled
+ * at {@code permitsPerSecond}. A request which finds the bucket empty reserves the next permit and waits until
+ * it has been refilled.
+ *
+ * <p>The osu! API limits requests per API key (v1) or client (v2), so downloaders do not create their own
+ * limiters but use {@link #forCredential(String)}. All downloaders with the same credential share one limiter.
+ * Limiters are unlimited until {@link #setLimit(double, int)} is called or the server reports a low budget.
+ *
+ * <p>The limiter also adapts to the budget which the server reports, see {@link #updateBudget(int, int)}. While
+ * the remaining budget is above {@link #getLowBudgetFraction()} of the limit, only the configured rate applies.
+ * Below that, the remaining requests are spread over {@link #getBudgetWindow()} so that the budget is not
+ * exhausted before the server refills it. Once the server reports a larger budget again, the limiter returns to
+ * the configured rate.
+ *
+ * <p>How long a request may wait for a permit is given by the caller: {@code null} waits as long as necessary,
+ * {@link Duration#ZERO} fails immediately if no permit is available and any other duration fails if the permit
+ * would not become available within that duration. Failing throws a {@link RateLimitExceededException}.
+ */
+public class RateLimiter {
+    private static final ConcurrentHashMap<String, RateLimiter> BY_CREDENTIAL = new ConcurrentHashMap<>();
+
+    private final LongSupplier nanoClock;
+
+    private double permitsPerSecond = Double.POSITIVE_INFINITY;
+
+    private double burst = 1;
+
+    private double permits = 1;
+
+    private long lastRefill;
+
+    /**
+     * The rate derived from the budget which the server reported. Infinite while there is enough budget.
+     */
+    private double budgetPermitsPerSecond = Double.POSITIVE_INFINITY;
+
+    @CheckForNull
+    private Budget budget = null;
+
+    private double lowBudgetFraction = 0.2;
+
+    private Duration budgetWindow = Duration.ofMinutes(1);
+
+    /**
+     * The request budget as reported by the server.
+     *
+     * @param remaining number of requests which can still be made in the current window
+     * @param limit total number of requests per window
+     */
+    public record Budget(int remaining, int limit) {}
+
+    public RateLimiter() {
+        this(System::nanoTime);
+    }
+
+    RateLimiter(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Returns the limiter which is shared by all downloaders using the given credential.
+     *
+     * @param credential the API key or client id
+     */
+    public static RateLimiter forCredential(String credential) {
+        return BY_CREDENTIAL.computeIfAbsent(credential, c -> new RateLimiter());
+    }
+
+    /**
+     * @param permitsPerSecond the rate at which the bucket is refilled. {@link Double#POSITIVE_INFINITY} disables
+     *     the limit.
+     * @param burst the number of permits which can be used at once after the limiter was idle.
+     */
+    public synchronized void setLimit(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        }
+        refill(nanoClock.getAsLong());
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.permits = Math.min(permits, burst);
+    }
+
+    public synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * The rate which currently applies: the configured rate or less if the server reported a low budget.
+     */
+    public synchronized double getEffectivePermitsPerSecond() {
+        return rate();
+    }
+
+    public synchronized int getBurst() {
+        return (int) burst;
+    }
+
+    /**
+     * The budget which the server reported last or null if no budget was reported yet.
+     */
+    @CheckForNull
+    public synchronized Budget getBudget() {
+        return budget;
+    }
+
+    public synchronized double getLowBudgetFraction() {
+        return lowBudgetFraction;
+    }
+
+    /**
+     * @param lowBudgetFraction the limiter slows down once the remaining budget falls below this fraction of the
+     *     limit. Defaults to 0.2.
+     */
+    public synchronized void setLowBudgetFraction(double lowBudgetFraction) {
+        if (!(lowBudgetFraction >= 0 && lowBudgetFraction <= 1)) {
+            throw new IllegalArgumentException("lowBudgetFraction must be between 0 and 1: " + lowBudgetFraction);
+        }
+        this.lowBudgetFraction = lowBudgetFraction;
+    }
+
+    public synchronized Duration getBudgetWindow() {
+        return budgetWindow;
+    }
+
+    /**
+     * @param budgetWindow the time over which a low budget is spread. The osu! API refills its budget every
+     *     minute, which is the default.
+     */
+    public synchronized void setBudgetWindow(Duration budgetWindow) {
+        if (budgetWindow.isNegative() || budgetWindow.isZero()) {
+            throw new IllegalArgumentException("budgetWindow must be positive: " + budgetWindow);
+        }
+        this.budgetWindow = budgetWindow;
+    }
+
+    /**
+     * Records the budget which the server reported and adjusts the rate accordingly.
+     */
+    public synchronized void updateBudget(int remaining, int limit) {
+        refill(nanoClock.getAsLong());
+        budget = new Budget(remaining, limit);
+        if (remaining < limit * lowBudgetFraction) {
+            budgetPermitsPerSecond =
+                    Math.max(remaining, 1) * (double) TimeUnit.SECONDS.toNanos(1) / budgetWindow.toNanos();
+        } else {
+            budgetPermitsPerSecond = Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Reads the {@code X-RateLimit-Remaining} and {@code X-RateLimit-Limit} headers of the response and updates
+     * the budget if both are present.
+     */
+    public void updateBudget(HttpResponse<?> response) {
+        OptionalInt remaining = intHeader(response, "X-RateLimit-Remaining");
+        OptionalInt limit = intHeader(response, "X-RateLimit-Limit");
+        if (remaining.isPresent() && limit.isPresent()) {
+            updateBudget(remaining.getAsInt(), limit.getAsInt());
+        }
+    }
+
+    private static OptionalInt intHeader(HttpResponse<?> response, String name) {
+        String value = response.headers().firstValue(name).orElse(null);
+        if (value == null) {
+            return OptionalInt.empty();
+        }
+        try {
+            return OptionalInt.of(Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Takes a permit, waiting for it if necessary.
+     *
+     * @param maxWait see class documentation
+     * @throws RateLimitExceededException if no permit is available within {@code maxWait}
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public void acquire(@CheckForNull Duration maxWait) throws IOException {
+        long wait = reserve(maxWait);
+        if (wait == 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("interrupted while waiting for rate limit");
+            interrupted.initCause(e);
+            throw interrupted;
+        }
+    }
+
+    /**
+     * Non-blocking version of {@link #acquire(Duration)}. The returned future completes once the permit is
+     * available.
+     */
+    public CompletableFuture<Void> acquireAsync(@CheckForNull Duration maxWait) {
+        long wait;
+        try {
+            wait = reserve(maxWait);
+        } catch (RateLimitExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (wait == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Reserves a permit.
+     *
+     * @return the number of nanoseconds until the reserved permit can be used
+     */
+    synchronized long reserve(@CheckForNull Duration maxWait) throws RateLimitExceededException {
+        double rate = rate();
+        if (rate == Double.POSITIVE_INFINITY) {
+            return 0;
+        }
+        refill(nanoClock.getAsLong());
+        if (permits >= 1) {
+            permits -= 1;
+            return 0;
+        }
+        long wait = (long) Math.ceil((1 - permits) / rate * TimeUnit.SECONDS.toNanos(1));
+        if (maxWait != null && wait > maxWait.toNanos()) {
+            throw new RateLimitExceededException(Duration.ofNanos(wait));
+        }
+        // the bucket goes into debt, so later requests queue up behind this one
+        permits -= 1;
+        return wait;
+    }
+
+    private double rate() {
+        return Math.min(permitsPerSecond, budgetPermitsPerSecond);
+    }
+
+    private void refill(long now) {
+        double rate = rate();
+        if (rate != Double.POSITIVE_INFINITY) {
+            permits = Math.min(burst, permits + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        } else {
+            permits = burst;
+        }
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,47 @@
+package org.tillerino.osuApiModel.http;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import javax.annotation.CheckForNull;
+
+/**
+ * One call of an API endpoint as reported to a {@link RequestListener}. A call includes all of its retries. Times
+ * are in nanoseconds.
+ *
+ * @param endpoint the command without its query, e.g. {@code get_beatmaps} or {@code beatmaps/{beatmap}}
+ * @param method the HTTP method
+ * @param status status code of the last response or 0 if no response was received
+ * @param headersNanos time from sending the last attempt until its response headers arrived or -1 if the
+ *     response was shared with another call, see {@link SingleFlight}
+ * @param totalNanos time of the entire call, including retries, rate limiting and decoding
+ * @param compressedBytes size of the response body as it was received
+ * @param decompressedBytes size of the response body after decompression, as far as it was read
+ * @param decodeNanos time spent reading the response body. Bodies which are decoded while they are received also
+ *     include the time spent waiting for the body.
+ * @param retries number of attempts after the first one
+ * @param failure null if the call succeeded
+ */
+public record RequestEvent(
+        String endpoint,
+        String method,
+        int status,
+        long headersNanos,
+        long totalNanos,
+        long compressedBytes,
+        long decompressedBytes,
+        long decodeNanos,
+        int retries,
+        @CheckForNull Throwable failure) {
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "the failure is passed on as it is")
+    public RequestEvent {}
+
+    @Override
+    @CheckForNull
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "the failure is passed on as it is")
+    public Throwable failure() {
+        return failure;
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
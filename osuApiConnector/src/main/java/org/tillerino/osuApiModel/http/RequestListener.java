@@ -0,0 +1,18 @@
+package org.tillerino.osuApiModel.http;
+
+/**
+ * Receives a {@link RequestEvent} for every call which a downloader makes, e.g. {@link EndpointMetrics}.
+ */
+@FunctionalInterface
+public interface RequestListener {
+    /**
+     * Ignores all events. This is the default of all downloaders.
+     */
+    RequestListener NONE = event -> {};
+
+    /**
+     * Called once per call on the thread which completed the call. This should be fast since it delays the
+     * caller.
+     */
+    void onRequest(RequestEvent event);
+}
@@ -0,0 +1,229 @@
+package org.tillerino.osuApiModel.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import lombok.extern.slf4j.Slf4j;
+import org.tillerino.osuApiModel.http.Futures.IOFunction;
+
+/**
+ * Measures a single call for a {@link RequestListener}. The downloaders create one recorder per call and report
+ * each attempt, response and body to it. {@link #finish(Throwable)} hands the resulting {@link RequestEvent} to
+ * the listener.
+ *
+ * <p>Calls and decoding are also emitted as flight recorder events ({@code org.tillerino.osuApiModel.ApiCall} and
+ * {@code org.tillerino.osuApiModel.Decode}) so that they can be lined up with GC and thread activity. These cost
+ * next to nothing while no recording has them enabled.
+ */
+@Slf4j
+public class RequestRecorder {
+    private final RequestListener listener;
+
+    private final String endpoint;
+
+    private final String method;
+
+    private final long start = System.nanoTime();
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    private final AtomicLong attemptStart = new AtomicLong(-1);
+
+    private final AtomicLong headersNanos = new AtomicLong(-1);
+
+    private final AtomicInteger status = new AtomicInteger();
+
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    private final AtomicLong decompressedBytes = new AtomicLong();
+
+    private final AtomicLong decodeNanos = new AtomicLong();
+
+    @CheckForNull
+    private final ApiCallEvent callEvent;
+
+    private RequestRecorder(RequestListener listener, String endpoint, String method, boolean emitEvents) {
+        this.listener = listener;
+        this.endpoint = endpoint;
+        this.method = method;
+        if (emitEvents) {
+            callEvent = new ApiCallEvent();
+            callEvent.begin();
+        } else {
+            callEvent = null;
+        }
+    }
+
+    /**
+     * @param command the command as passed to the downloader. The query is removed so that each endpoint is
+     *     reported under one name.
+     */
+    public static RequestRecorder start(RequestListener listener, String command, String method) {
+        int query = command.indexOf('?');
+        return new RequestRecorder(listener, query >= 0 ? command.substring(0, query) : command, method, true);
+    }
+
+    /**
+     * A recorder which reports to nobody and emits no events.
+     */
+    public static RequestRecorder discarding() {
+        return new RequestRecorder(RequestListener.NONE, "", "", false);
+    }
+
+    /**
+     * Called right before each attempt is sent.
+     */
+    public void attempt() {
+        attempts.incrementAndGet();
+        attemptStart.set(System.nanoTime());
+        headersNanos.set(-1);
+    }
+
+    /**
+     * Called when the response headers of the current attempt arrive.
+     */
+    public void headers(int statusCode) {
+        status.set(statusCode);
+        long attemptStarted = attemptStart.get();
+        if (attemptStarted != -1) {
+            headersNanos.set(System.nanoTime() - attemptStarted);
+        }
+    }
+
+    /**
+     * Wraps a body handler so that the arrival of the response headers is recorded.
+     */
+    public <T> BodyHandler<T> bodyHandler(BodyHandler<T> handler) {
+        return responseInfo -> {
+            headers(responseInfo.statusCode());
+            return handler.apply(responseInfo);
+        };
+    }
+
+    /**
+     * Counting version of {@link HttpTransport#body(HttpResponse)}.
+     */
+    public InputStream body(HttpResponse<InputStream> response) throws IOException {
+        InputStream compressed = new CountingInputStream(response.body(), compressedBytes);
+        return new CountingInputStream(HttpTransport.decompress(response, compressed), decompressedBytes);
+    }
+
+    /**
+     * Counting version of {@link HttpTransport#bytesBody(HttpResponse)}. Also records the status since the
+     * response may have been received by another call.
+     */
+    public InputStream bytesBody(HttpResponse<byte[]> response) throws IOException {
+        status.set(response.statusCode());
+        compressedBytes.addAndGet(response.body().length);
+        return new CountingInputStream(HttpTransport.bytesBody(response), decompressedBytes);
+    }
+
+    /**
+     * Applies the reader and records the time it took.
+     */
+    public <T> T decode(InputStream inputStream, IOFunction<InputStream, T> reader) throws IOException {
+        DecodeEvent decodeEvent = new DecodeEvent();
+        long bytesBefore = decompressedBytes.get();
+        decodeEvent.begin();
+        long decodeStart = System.nanoTime();
+        try {
+            return reader.apply(inputStream);
+        } finally {
+            decodeNanos.addAndGet(System.nanoTime() - decodeStart);
+            decodeEvent.end();
+            if (callEvent != null && decodeEvent.shouldCommit()) {
+                decodeEvent.endpoint = endpoint;
+                decodeEvent.bytes = decompressedBytes.get() - bytesBefore;
+                decodeEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * Reports the call to the listener. Exceptions of the listener are logged and not passed on.
+     *
+     * @param failure null if the call succeeded
+     */
+    public void finish(@CheckForNull Throwable failure) {
+        int statusCode = status.get();
+        if (statusCode == 0 && failure instanceof HttpStatusException httpStatus) {
+            statusCode = httpStatus.getStatusCode();
+        }
+        RequestEvent event = new RequestEvent(
+                endpoint,
+                method,
+                statusCode,
+                headersNanos.get(),
+                System.nanoTime() - start,
+                compressedBytes.get(),
+                decompressedBytes.get(),
+                decodeNanos.get(),
+                Math.max(0, attempts.get() - 1),
+                failure);
+        commitCallEvent(event);
+        try {
+            listener.onRequest(event);
+        } catch (RuntimeException e) {
+            log.warn("Request listener failed", e);
+        }
+    }
+
+    private void commitCallEvent(RequestEvent event) {
+        if (callEvent == null) {
+            return;
+        }
+        callEvent.end();
+        if (!callEvent.shouldCommit()) {
+            return;
+        }
+        callEvent.endpoint = event.endpoint();
+        callEvent.method = event.method();
+        callEvent.status = event.status();
+        callEvent.headersTime = event.headersNanos();
+        callEvent.compressedBytes = event.compressedBytes();
+        callEvent.decompressedBytes = event.decompressedBytes();
+        callEvent.retries = event.retries();
+        Throwable failure = event.failure();
+        callEvent.failure = failure != null ? failure.getClass().getName() : null;
+        callEvent.commit();
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final AtomicLong count;
+
+        CountingInputStream(InputStream in, AtomicLong count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                count.incrementAndGet();
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count.addAndGet(skipped);
+            return skipped;
+        }
+    }
+}
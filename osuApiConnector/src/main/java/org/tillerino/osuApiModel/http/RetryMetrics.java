@@ -0,0 +1,52 @@
+package org.tillerino.osuApiModel.http;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the attempts made by a {@link RetryPolicy}. The counters are cumulative since the policy was created.
+ */
+public class RetryMetrics {
+    final LongAdder calls = new LongAdder();
+
+    final LongAdder attempts = new LongAdder();
+
+    final LongAdder retries = new LongAdder();
+
+    final LongAdder exhausted = new LongAdder();
+
+    /**
+     * Number of calls, each of which consists of one or more attempts.
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Number of requests which were sent, including the first attempt of each call.
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    /**
+     * Number of attempts which were made because an earlier attempt failed.
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Number of calls which failed with a retryable error, but were not retried further because the attempts or
+     * the retry budget were used up. Calls made with a policy which does not retry at all, like
+     * {@link RetryPolicy#none()}, are not counted.
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryMetrics[calls=" + getCalls() + ", attempts=" + getAttempts() + ", retries=" + getRetries()
+                + ", exhausted=" + getExhausted() + "]";
+    }
+}
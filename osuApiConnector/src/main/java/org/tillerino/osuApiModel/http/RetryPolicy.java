@@ -0,0 +1,184 @@
+package org.tillerino.osuApiModel.http;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import lombok.Builder;
+import lombok.Getter;
+import org.tillerino.osuApiModel.http.Futures.IOSupplier;
+
+/**
+ * Decides whether and when a failed request is sent again.
+ *
+ * <p>Rate limiting (429), server errors (5xx) and timeouts are retried. All other failures, e.g. 401 or 404,
+ * are permanent and are thrown right away. Retries are delayed by an exponential backoff with full jitter: the
+ * n-th retry waits a random time between zero and {@code initialBackoff * 2^(n-1)}, at most {@code maxBackoff}.
+ * If the server sent a {@code Retry-After} header, that delay is used instead.
+ *
+ * <p>A call gives up once {@code maxAttempts} requests were sent or once the next delay would make the total
+ * time spent waiting exceed {@code retryBudget}. In that case, the last failure is thrown.
+ *
+ * <p>A policy can be shared between downloaders. {@link #getMetrics()} counts the attempts of all calls made
+ * with this policy.
+ */
+@Getter
+public class RetryPolicy {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(200);
+
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(10);
+
+    public static final Duration DEFAULT_RETRY_BUDGET = Duration.ofSeconds(30);
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final Duration retryBudget;
+
+    private final RetryMetrics metrics = new RetryMetrics();
+
+    /**
+     * @param maxAttempts maximum number of requests per call including the first one. Defaults to
+     *     {@link #DEFAULT_MAX_ATTEMPTS}.
+     * @param initialBackoff upper bound of the delay before the first retry. Defaults to
+     *     {@link #DEFAULT_INITIAL_BACKOFF}.
+     * @param maxBackoff upper bound of the delay before any retry. Defaults to {@link #DEFAULT_MAX_BACKOFF}.
+     * @param retryBudget maximum total delay per call. Defaults to {@link #DEFAULT_RETRY_BUDGET}.
+     */
+    @Builder
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    private RetryPolicy(
+            @CheckForNull Integer maxAttempts,
+            @CheckForNull Duration initialBackoff,
+            @CheckForNull Duration maxBackoff,
+            @CheckForNull Duration retryBudget) {
+        this.maxAttempts = maxAttempts != null ? maxAttempts : DEFAULT_MAX_ATTEMPTS;
+        this.initialBackoff = initialBackoff != null ? initialBackoff : DEFAULT_INITIAL_BACKOFF;
+        this.maxBackoff = maxBackoff != null ? maxBackoff : DEFAULT_MAX_BACKOFF;
+        this.retryBudget = retryBudget != null ? retryBudget : DEFAULT_RETRY_BUDGET;
+        if (this.maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + this.maxAttempts);
+        }
+    }
+
+    /**
+     * A policy which never retries. This is the default of all downloaders.
+     */
+    public static RetryPolicy none() {
+        return builder().maxAttempts(1).build();
+    }
+
+    /**
+     * Returns true for failures which might go away if the request is sent again: 429, 5xx and timeouts.
+     */
+    public boolean isRetryable(IOException failure) {
+        if (failure instanceof HttpStatusException status) {
+            return status.getStatusCode() == 429 || status.getStatusCode() >= 500;
+        }
+        return failure instanceof SocketTimeoutException || failure instanceof HttpTimeoutException;
+    }
+
+    /**
+     * The delay before the given retry.
+     *
+     * @param retry 1 for the first retry
+     */
+    public Duration backoff(int retry, IOException failure) {
+        if (failure instanceof HttpStatusException status && status.getRetryAfter() != null) {
+            return status.getRetryAfter();
+        }
+        long cap = initialBackoff.toNanos();
+        for (int i = 1; i < retry && cap < maxBackoff.toNanos(); i++) {
+            cap *= 2;
+        }
+        cap = Math.min(cap, maxBackoff.toNanos());
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    /**
+     * @return the delay before the next attempt or null if the failure is final
+     */
+    @CheckForNull
+    private Duration nextDelay(int attempt, IOException failure, long waitedNanos) {
+        if (!isRetryable(failure)) {
+            return null;
+        }
+        if (maxAttempts == 1) {
+            // retries are disabled, so there is nothing to exhaust
+            return null;
+        }
+        Duration delay = attempt < maxAttempts ? backoff(attempt, failure) : null;
+        if (delay == null || waitedNanos + delay.toNanos() > retryBudget.toNanos()) {
+            metrics.exhausted.increment();
+            return null;
+        }
+        metrics.retries.increment();
+        return delay;
+    }
+
+    /**
+     * Makes the call, retrying it according to this policy.
+     */
+    public <T> T execute(IOSupplier<T> call) throws IOException {
+        metrics.calls.increment();
+        long waitedNanos = 0;
+        for (int attempt = 1; ; attempt++) {
+            metrics.attempts.increment();
+            try {
+                return call.get();
+            } catch (IOException e) {
+                Duration delay = nextDelay(attempt, e, waitedNanos);
+                if (delay == null) {
+                    throw e;
+                }
+                sleep(delay);
+                waitedNanos += delay.toNanos();
+            }
+        }
+    }
+
+    /**
+     * Non-blocking version of {@link #execute(IOSupplier)}. The call is made again if the returned future fails.
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> call) {
+        metrics.calls.increment();
+        return attemptAsync(call, 1, 0);
+    }
+
+    private <T> CompletableFuture<T> attemptAsync(Supplier<CompletableFuture<T>> call, int attempt, long waitedNanos) {
+        metrics.attempts.increment();
+        return call.get().exceptionallyCompose(e -> {
+            Throwable cause = Futures.unwrap(e);
+            Duration delay = cause instanceof IOException io ? nextDelay(attempt, io, waitedNanos) : null;
+            if (delay == null) {
+                return CompletableFuture.failedFuture(cause);
+            }
+            return CompletableFuture.runAsync(
+                            () -> {}, CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS))
+                    .thenCompose(ignored -> attemptAsync(call, attempt + 1, waitedNanos + delay.toNanos()));
+        });
+    }
+
+    private static void sleep(Duration delay) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interrupted = new InterruptedIOException("interrupted while waiting for retry");
+            interrupted.initCause(e);
+            throw interrupted;
+        }
+    }
+}
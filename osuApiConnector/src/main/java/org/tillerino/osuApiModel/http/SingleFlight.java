@@ -0,0 +1,67 @@
+package org.tillerino.osuApiModel.http;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical requests which are in flight at the same time: the first caller sends the request and all
+ * callers which arrive with the same key before it completes receive the same result. Once the request has
+ * completed, the next caller sends a new one. Nothing is cached beyond that.
+ *
+ * <p>Downloaders share the raw response, not the decoded objects. The API model classes are mutable, so every
+ * caller decodes its own copy.
+ *
+ * <p>Downloaders key requests by method, URI and request body. An instance can be shared between downloaders, in
+ * which case identical requests are coalesced across them.
+ */
+public class SingleFlight {
+    private final ConcurrentHashMap<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Returns the result of the call which is currently in flight for the key or makes the call.
+     *
+     * <p>Each caller receives its own future, so cancelling it does not affect the other callers.
+     */
+    public <T> CompletableFuture<T> execute(String key, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> leader = new CompletableFuture<>();
+        @SuppressWarnings("unchecked")
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        try {
+            call.get().whenComplete((value, failure) -> {
+                inFlight.remove(key, leader);
+                if (failure != null) {
+                    leader.completeExceptionally(Futures.unwrap(failure));
+                } else {
+                    leader.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, leader);
+            leader.completeExceptionally(e);
+        }
+        return leader.copy();
+    }
+
+    /**
+     * The number of calls which did not send a request but received the result of an identical one.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * The number of requests which are currently in flight.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,183 @@
+package org.tillerino.osuApiModel.v2;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import org.tillerino.osuApiModel.http.Futures;
+import org.tillerino.osuApiModel.types.BeatmapId;
+import org.tillerino.osuApiModel.types.BitwiseMods;
+import org.tillerino.osuApiModel.v2.DownloaderV2.BeatmapAttributesResponse;
+
+/**
+ * Caches beatmaps for {@link DownloaderV2} in two levels. The beatmap info (title, artist, checksum, lengths,
+ * status, ...) does not depend on mods and is cached once per beatmap. The difficulty attributes are cached per
+ * beatmap and mods, which {@link DownloaderV2} reduces with {@link org.tillerino.osuApiModel.Mods#canonicalize(long)}
+ * first. The mode of the beatmap is not used for this, so the key does not depend on whether the info was
+ * cached. Looking up a beatmap with mods which were not requested before therefore only requests the
+ * attributes.
+ *
+ * <p>Both levels hold up to a maximum number of entries and evict the least recently used one beyond that.
+ * Entries expire after {@code ttl} since the status of a beatmap, and with it its attributes, can change.
+ * Concurrent lookups of the same entry share one request. Failed requests and beatmaps which do not exist are
+ * not cached.
+ */
+public class BeatmapCache {
+    public static final int DEFAULT_MAX_BEATMAPS = 10_000;
+
+    public static final int DEFAULT_MAX_ATTRIBUTES = 50_000;
+
+    public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+
+    private final LongSupplier nanoClock;
+
+    private final long ttlNanos;
+
+    private final Map<Integer, Entry<OsuApiBeatmapV2>> infos;
+
+    private final Map<AttributesKey, Entry<BeatmapAttributesResponse>> attributes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private record Entry<T>(CompletableFuture<T> value, long loadedAt) {}
+
+    private record AttributesKey(int beatmapId, long mods) {}
+
+    public BeatmapCache() {
+        this(DEFAULT_MAX_BEATMAPS, DEFAULT_MAX_ATTRIBUTES, DEFAULT_TTL);
+    }
+
+    /**
+     * @param maxBeatmaps maximum number of cached beatmap infos
+     * @param maxAttributes maximum number of cached attributes, i.e. beatmap and mods combinations
+     * @param ttl time after which an entry is requested again
+     */
+    public BeatmapCache(int maxBeatmaps, int maxAttributes, Duration ttl) {
+        this(maxBeatmaps, maxAttributes, ttl, System::nanoTime);
+    }
+
+    BeatmapCache(int maxBeatmaps, int maxAttributes, Duration ttl, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.ttlNanos = ttl.toNanos();
+        this.infos = lru(maxBeatmaps);
+        this.attributes = lru(maxAttributes);
+    }
+
+    private static <K, V> Map<K, V> lru(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    CompletableFuture<OsuApiBeatmapV2> info(
+            @BeatmapId int beatmapId, Supplier<CompletableFuture<OsuApiBeatmapV2>> load) {
+        return get(infos, beatmapId, load);
+    }
+
+    /**
+     * @return the cached info or null if it is not cached. Does not request anything.
+     */
+    @CheckForNull
+    CompletableFuture<OsuApiBeatmapV2> cachedInfo(int beatmapId) {
+        synchronized (this) {
+            Entry<OsuApiBeatmapV2> existing = infos.get(beatmapId);
+            if (existing == null || !isFresh(existing)) {
+                return null;
+            }
+            hits.increment();
+            return existing.value().copy();
+        }
+    }
+
+    /**
+     * Caches beatmap infos which were requested in bulk.
+     */
+    void putInfo(OsuApiBeatmapV2 info) {
+        synchronized (this) {
+            infos.put(info.id(), new Entry<>(CompletableFuture.completedFuture(info), nanoClock.getAsLong()));
+        }
+    }
+
+    CompletableFuture<BeatmapAttributesResponse> attributes(
+            @BeatmapId int beatmapId,
+            @BitwiseMods long mods,
+            Supplier<CompletableFuture<BeatmapAttributesResponse>> load) {
+        return get(attributes, new AttributesKey(beatmapId, mods), load);
+    }
+
+    /**
+     * @return a copy of the cached future, so that callers cannot complete or cancel the cached one
+     */
+    private <K, T> CompletableFuture<T> get(Map<K, Entry<T>> map, K key, Supplier<CompletableFuture<T>> load) {
+        Entry<T> entry;
+        synchronized (this) {
+            Entry<T> existing = map.get(key);
+            if (existing != null && isFresh(existing)) {
+                hits.increment();
+                return existing.value().copy();
+            }
+            misses.increment();
+            entry = new Entry<>(new CompletableFuture<>(), nanoClock.getAsLong());
+            map.put(key, entry);
+        }
+
+        // the request is started outside of the lock since it may request a token
+        CompletableFuture<T> loaded;
+        try {
+            loaded = load.get();
+        } catch (RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.whenComplete((value, failure) -> {
+            if (failure != null || isMissing(value)) {
+                synchronized (this) {
+                    map.remove(key, entry);
+                }
+            }
+            if (failure != null) {
+                entry.value().completeExceptionally(Futures.unwrap(failure));
+            } else {
+                entry.value().complete(value);
+            }
+        });
+        return entry.value().copy();
+    }
+
+    private boolean isFresh(Entry<?> entry) {
+        return nanoClock.getAsLong() - entry.loadedAt() < ttlNanos;
+    }
+
+    private static boolean isMissing(@CheckForNull Object value) {
+        return value == null || (value instanceof OsuApiBeatmapV2 info && info.id() == 0);
+    }
+
+    /**
+     * The number of lookups which were answered from the cache, including lookups which joined a pending request.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of lookups which sent a request.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public synchronized void clear() {
+        infos.clear();
+        attributes.clear();
+    }
+}
@@ -1,45 +1,131 @@
 package org.tillerino.osuApiModel.v2;
 
+import static org.tillerino.osuApiModel.deserializer.JsonStreams.JACKSON;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.NullNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.type.TypeFactory;
-import java.io.ByteArrayOutputStream;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.*;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
 import javax.annotation.CheckForNull;
+import lombok.Getter;
+import lombok.Setter;
 import org.mapstruct.factory.Mappers;
 import org.tillerino.osuApiModel.*;
+import org.tillerino.osuApiModel.deserializer.JsonStreams;
+import org.tillerino.osuApiModel.http.Futures;
+import org.tillerino.osuApiModel.http.Futures.IOFunction;
+import org.tillerino.osuApiModel.http.HttpStatusException;
+import org.tillerino.osuApiModel.http.HttpTransport;
+import org.tillerino.osuApiModel.http.RateLimitExceededException;
+import org.tillerino.osuApiModel.http.RateLimiter;
+import org.tillerino.osuApiModel.http.RequestListener;
+import org.tillerino.osuApiModel.http.RequestRecorder;
+import org.tillerino.osuApiModel.http.RetryPolicy;
+import org.tillerino.osuApiModel.http.SingleFlight;
 import org.tillerino.osuApiModel.types.*;
 import org.tillerino.osuApiModel.v2.TokenHelper.TokenCache;
 
-public class DownloaderV2 implements OsuApiClient {
+public class DownloaderV2 implements OsuApiLeaderboardClient, AsyncOsuApiClient {
     public static final URI PROD_API_BASE = URI.create("https://osu.ppy.sh");
 
     static final V2Mapper MAPPER = Mappers.getMapper(V2Mapper.class);
 
-    static final ObjectMapper JACKSON = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
-
     private final String baseUrl;
 
     private final TokenCache tokenCache;
 
+    private final HttpTransport transport;
+
+    /**
+     * Limits the requests which are sent by this downloader. By default, this is the limiter which is shared by
+     * all downloaders with the same client id, see {@link RateLimiter#forCredential(String)}. The budget which the
+     * API reports in the X-RateLimit headers is passed to the limiter and can be read from
+     * {@link RateLimiter#getBudget()}.
+     */
+    @Getter(onMethod_ = @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "shared on purpose"))
+    @Setter(onMethod_ = @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "shared on purpose"))
+    private RateLimiter rateLimiter;
+
+    /**
+     * How long a request may wait for a permit of the {@link #rateLimiter}: null (the default) waits as long as
+     * necessary and {@link Duration#ZERO} fails immediately.
+     */
+    @Getter
+    @Setter
+    @CheckForNull
+    private Duration rateLimitWait = null;
+
+    /**
+     * Decides which failed requests are sent again. Defaults to {@link RetryPolicy#none()}.
+     */
+    @Getter
+    @Setter
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+
+    /**
+     * Coalesces identical requests which are in flight at the same time. Null (the default) disables coalescing.
+     * Responses must be buffered to be shared, so they are no longer decoded while they are being received.
+     */
+    @Getter
+    @Setter
+    @CheckForNull
+    private SingleFlight singleFlight = null;
+
+    /**
+     * Caches beatmap infos and attributes. Null (the default) disables caching. A cache can be shared between
+     * downloaders.
+     */
+    @Getter(onMethod_ = @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "shared on purpose"))
+    @Setter(onMethod_ = @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "shared on purpose"))
+    @CheckForNull
+    private BeatmapCache beatmapCache = null;
+
+    /**
+     * Receives timings, sizes and status of every call, e.g. {@link org.tillerino.osuApiModel.http.EndpointMetrics}.
+     * Defaults to {@link RequestListener#NONE}.
+     */
+    @Getter
+    @Setter
+    private RequestListener requestListener = RequestListener.NONE;
+
     public static final String INVALID_API_KEY = "Please provide a valid API key.";
 
-    public DownloaderV2(URI baseUrl, TokenCache tokenCache) {
+    /**
+     * @param baseUrl base URI of the API, see {@link #PROD_API_BASE}
+     * @param tokenCache the token cache to use
+     * @param transport the transport to send requests with
+     */
+    public DownloaderV2(URI baseUrl, TokenCache tokenCache, HttpTransport transport) {
         this.baseUrl = baseUrl.toString();
         this.tokenCache = tokenCache;
+        this.transport = transport;
+        this.rateLimiter = RateLimiter.forCredential(tokenCache.getClientId());
+    }
+
+    public DownloaderV2(URI baseUrl, TokenCache tokenCache) {
+        this(baseUrl, tokenCache, HttpTransport.shared());
     }
 
     /**
@@ -60,27 +146,211 @@ public class DownloaderV2 implements OsuApiClient {
         this(TokenCache.inMemory(PROD_API_BASE, TokenHelper.Credentials.fromEnvOrProps()));
     }
 
+    /**
+     * Requests the beatmap and its difficulty attributes concurrently.
+     */
     @CheckForNull
     public <T extends OsuApiBeatmap> T getBeatmap(@BeatmapId int beatmapId, @BitwiseMods long mods, Class<T> cls)
             throws IOException {
-        record BeatmapAttributesRequestBody(@BitwiseMods long mods) {}
+        return Futures.join(getBeatmapAsync(beatmapId, mods, cls));
+    }
 
+    /**
+     * Requests the beatmap and its difficulty attributes concurrently. If either request fails, the other one is
+     * cancelled. Only the mods which change the attributes are sent, see {@link Mods#canonicalize(long)}.
+     */
+    @Override
+    public <T extends OsuApiBeatmap> CompletableFuture<T> getBeatmapAsync(
+            @BeatmapId int beatmapId, @BitwiseMods long mods, Class<T> cls) {
         // Required to retrieve the same information that was retrieved on the old get_beatmaps endpoint
-        JsonNode beatmapInfoNode = fetch("beatmaps/{beatmap}", "GET", null, "{beatmap}", beatmapId);
-        JsonNode beatmapAttrNode = fetch(
+        CompletableFuture<OsuApiBeatmapV2> beatmapInfo = beatmapCache != null
+                ? beatmapCache.info(beatmapId, () -> fetchInfoAsync(beatmapId))
+                : fetchInfoAsync(beatmapId);
+        CompletableFuture<BeatmapAttributesResponse> beatmapAttributes =
+                attributesAsync(beatmapId, new BeatmapAttributesRequestBody(Mods.canonicalize(mods)));
+        return Futures.both(beatmapInfo, beatmapAttributes, (info, attributes) -> toBeatmap(info, attributes, cls));
+    }
+
+    private CompletableFuture<OsuApiBeatmapV2> fetchInfoAsync(int beatmapId) {
+        return fetchAsync(
+                parser -> JsonStreams.readFirst(JACKSON, parser, OsuApiBeatmapV2.class),
+                "beatmaps/{beatmap}",
+                "GET",
+                null,
+                "{beatmap}",
+                beatmapId);
+    }
+
+    /**
+     * Requests the attributes or takes them from the cache.
+     */
+    private CompletableFuture<BeatmapAttributesResponse> attributesAsync(
+            @BeatmapId int beatmapId, BeatmapAttributesRequestBody attributesRequest) {
+        return beatmapCache != null
+                ? beatmapCache.attributes(
+                        beatmapId, attributesRequest.mods(), () -> fetchAttributesAsync(beatmapId, attributesRequest))
+                : fetchAttributesAsync(beatmapId, attributesRequest);
+    }
+
+    private CompletableFuture<BeatmapAttributesResponse> fetchAttributesAsync(
+            int beatmapId, BeatmapAttributesRequestBody attributesRequest) {
+        return fetchAsync(
+                parser -> JsonStreams.readFirst(JACKSON, parser, BeatmapAttributesResponse.class),
                 "beatmaps/{beatmap}/attributes",
                 "POST",
-                new BeatmapAttributesRequestBody(mods),
+                attributesRequest,
                 "{beatmap}",
                 beatmapId);
+    }
 
-        JsonNode beatmapData = ((ObjectNode) beatmapInfoNode).setAll((ObjectNode) beatmapAttrNode);
-        if (beatmapData.isEmpty()) {
+    /**
+     * The maximum number of ids which the {@code beatmaps} and {@code users} endpoints accept per request.
+     */
+    static final int IDS_CHUNK_SIZE = 50;
+
+    /**
+     * Looks up the beatmaps with the {@code beatmaps} endpoint, {@value #IDS_CHUNK_SIZE} per request. The
+     * difficulty attributes have to be requested for each beatmap separately. These requests are sent in parallel.
+     */
+    @Override
+    public <T extends OsuApiBeatmap> Map<Integer, T> getBeatmaps(int[] beatmapIds, @BitwiseMods long mods, Class<T> cls)
+            throws IOException {
+        return Futures.join(getBeatmapsAsync(beatmapIds, mods, cls));
+    }
+
+    @Override
+    public <T extends OsuApiBeatmap> CompletableFuture<Map<Integer, T>> getBeatmapsAsync(
+            int[] beatmapIds, @BitwiseMods long mods, Class<T> cls) {
+        return fetchChunked(beatmapIds, chunk -> getBeatmapsChunk(chunk, mods, cls), OsuApiBeatmap::getBeatmapId);
+    }
+
+    /**
+     * The attributes are requested together with the beatmaps, so there may be requests for beatmaps which do not
+     * exist. Those are answered with 404 and skipped. Beatmaps are returned in no particular order.
+     */
+    @SuppressFBWarnings(value = "TQ", justification = "the ids are beatmap ids")
+    private <T extends OsuApiBeatmap> CompletableFuture<List<T>> getBeatmapsChunk(
+            int[] beatmapIds, long mods, Class<T> cls) {
+        // infos which are cached are not requested again
+        List<CompletableFuture<OsuApiBeatmapV2>> cachedInfos = new ArrayList<>();
+        int[] uncachedIds = beatmapIds;
+        if (beatmapCache != null) {
+            BeatmapCache cache = beatmapCache;
+            uncachedIds = Arrays.stream(beatmapIds)
+                    .filter(beatmapId -> {
+                        CompletableFuture<OsuApiBeatmapV2> cached = cache.cachedInfo(beatmapId);
+                        if (cached != null) {
+                            cachedInfos.add(cached);
+                        }
+                        return cached == null;
+                    })
+                    .toArray();
+        }
+        CompletableFuture<List<OsuApiBeatmapV2>> fetchedInfos = uncachedIds.length == 0
+                ? CompletableFuture.completedFuture(List.of())
+                : fetchAsync(
+                                parser -> JsonStreams.readFirst(JACKSON, parser, BeatmapsResponse.class),
+                                "beatmaps?" + idsQuery(uncachedIds),
+                                "GET",
+                                null)
+                        .thenApply(response -> {
+                            List<OsuApiBeatmapV2> fetched =
+                                    response != null && response.beatmaps() != null ? response.beatmaps() : List.of();
+                            if (beatmapCache != null) {
+                                fetched.forEach(beatmapCache::putInfo);
+                            }
+                            return fetched;
+                        });
+        CompletableFuture<List<OsuApiBeatmapV2>> infos =
+                Futures.both(fetchedInfos, Futures.all(cachedInfos), (fetched, cached) -> {
+                    List<OsuApiBeatmapV2> all = new ArrayList<>(fetched);
+                    all.addAll(cached);
+                    return all;
+                });
+        List<CompletableFuture<BeatmapAttributesResponse>> attributes = new ArrayList<>(beatmapIds.length);
+        for (int beatmapId : beatmapIds) {
+            BeatmapAttributesRequestBody attributesRequest = new BeatmapAttributesRequestBody(Mods.canonicalize(mods));
+            attributes.add(attributesAsync(beatmapId, attributesRequest).exceptionallyCompose(e -> {
+                Throwable cause = Futures.unwrap(e);
+                if (cause instanceof HttpStatusException status && status.getStatusCode() == 404) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return CompletableFuture.failedFuture(cause);
+            }));
+        }
+
+        return Futures.both(infos, Futures.all(attributes), (beatmapInfos, attributesList) -> {
+            Map<Integer, BeatmapAttributesResponse> attributesById = new HashMap<>();
+            for (int i = 0; i < beatmapIds.length; i++) {
+                attributesById.put(beatmapIds[i], attributesList.get(i));
+            }
+            List<T> beatmaps = new ArrayList<>(beatmapInfos.size());
+            for (OsuApiBeatmapV2 info : beatmapInfos) {
+                T beatmap = toBeatmap(info, attributesById.get(info.id()), cls);
+                if (beatmap != null) {
+                    beatmaps.add(beatmap);
+                }
+            }
+            return beatmaps;
+        });
+    }
+
+    /**
+     * Splits the ids into chunks of {@value #IDS_CHUNK_SIZE}, fetches the chunks in parallel and collects the
+     * results in the order of the given ids. Duplicate ids are fetched once.
+     */
+    private static <T> CompletableFuture<Map<Integer, T>> fetchChunked(
+            int[] ids, Function<int[], CompletableFuture<List<T>>> fetchChunk, ToIntFunction<T> idOf) {
+        int[] distinct = Arrays.stream(ids).distinct().toArray();
+        List<CompletableFuture<List<T>>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.length; from += IDS_CHUNK_SIZE) {
+            chunks.add(fetchChunk.apply(
+                    Arrays.copyOfRange(distinct, from, Math.min(distinct.length, from + IDS_CHUNK_SIZE))));
+        }
+        return Futures.all(chunks).thenApply(chunkValues -> {
+            Map<Integer, T> byId = new HashMap<>();
+            for (List<T> chunk : chunkValues) {
+                for (T value : chunk) {
+                    byId.put(idOf.applyAsInt(value), value);
+                }
+            }
+            Map<Integer, T> values = new LinkedHashMap<>();
+            for (int id : distinct) {
+                T value = byId.get(id);
+                if (value != null) {
+                    values.put(id, value);
+                }
+            }
+            return values;
+        });
+    }
+
+    private static String idsQuery(int[] ids) {
+        return Arrays.stream(ids).mapToObj(id -> "ids[]=" + id).collect(Collectors.joining("&"));
+    }
+
+    record BeatmapsResponse(@CheckForNull List<OsuApiBeatmapV2> beatmaps) {}
+
+    record BeatmapAttributesRequestBody(@BitwiseMods long mods) {}
+
+    record BeatmapAttributesResponse(@CheckForNull OsuApiBeatmapV2.Attributes attributes) {}
+
+    /**
+     * @return null if the beatmap info is empty, i.e. the beatmap does not exist.
+     */
+    @CheckForNull
+    private static <T extends OsuApiBeatmap> T toBeatmap(
+            @CheckForNull OsuApiBeatmapV2 beatmapInfo,
+            @CheckForNull BeatmapAttributesResponse beatmapAttributes,
+            Class<T> cls) {
+        if (beatmapInfo == null || beatmapInfo.id() == 0) {
             return null;
         }
 
-        OsuApiBeatmapV2 beatmapNode = JACKSON.treeToValue(beatmapData, OsuApiBeatmapV2.class);
-        return MAPPER.mapBeatmapToV1(beatmapNode, cls);
+        if (beatmapAttributes != null && beatmapAttributes.attributes() != null) {
+            beatmapInfo = beatmapInfo.withAttributes(beatmapAttributes.attributes());
+        }
+        return MAPPER.mapBeatmapToV1(beatmapInfo, cls);
     }
 
     /**
@@ -100,27 +370,162 @@ public class DownloaderV2 implements OsuApiClient {
         return JACKSON.treeToValue(array, TypeFactory.defaultInstance().constructCollectionType(List.class, cls));
     }
 
-    public JsonNode fetch(String command, String method, @CheckForNull Object requestBody, Object... parameters)
+    /**
+     * Final because the lookups do not go through this method. To replace the responses, override
+     * {@link #fetch(IOFunction, String, String, Object, Object...)} and
+     * {@link #fetchAsync(IOFunction, String, String, Object, Object...)}.
+     */
+    public final JsonNode fetch(String command, String method, @CheckForNull Object requestBody, Object... parameters)
+            throws IOException {
+        return fetch(JACKSON::readTree, command, method, requestBody, parameters);
+    }
+
+    /**
+     * Requests the given command and hands the response to the reader while it is being received.
+     *
+     * @param reader reads the value from the response. This is called with a fresh parser which is not positioned
+     *     at the first token yet.
+     */
+    public <T> T fetch(
+            IOFunction<JsonParser, T> reader,
+            String command,
+            String method,
+            @CheckForNull Object requestBody,
+            Object... parameters)
             throws IOException {
+        if (singleFlight != null) {
+            // the response must be buffered to be shared, which is what the async path does anyway
+            return Futures.join(fetchAsync(reader, command, method, requestBody, parameters));
+        }
         URI uri = formURI(command, parameters);
         String token = tokenCache.getToken();
-        String content;
 
+        RequestRecorder recorder = RequestRecorder.start(requestListener, command, method);
         try {
-            content = downloadDirect(uri, token, method, requestBody);
-        } catch (SocketTimeoutException e) {
+            T result = retryPolicy.execute(() -> {
+                rateLimiter.acquire(rateLimitWait);
+                return download(
+                        transport,
+                        uri,
+                        transport.getRequestTimeout(),
+                        token,
+                        method,
+                        requestBody,
+                        rateLimiter,
+                        recorder,
+                        inputStream -> read(inputStream, reader));
+            });
+            recorder.finish(null);
+            return result;
+        } catch (IOException e) {
+            recorder.finish(e);
+            throw describe(e, uri);
+        } catch (RuntimeException e) {
+            recorder.finish(e);
             throw e;
-        } catch (IOException e1) {
-            throw new IOException(e1.getMessage() + " for " + uri, e1);
         }
-        if (content.equals(INVALID_API_KEY)) throw new RuntimeException(INVALID_API_KEY);
+    }
+
+    /**
+     * Non-blocking version of {@link #fetch(String, String, Object, Object...)}. If the token has expired, the
+     * request waits for a new token without blocking, see {@link TokenCache#getTokenAsync()}. Final for the same
+     * reason.
+     */
+    public final CompletableFuture<JsonNode> fetchAsync(
+            String command, String method, @CheckForNull Object requestBody, Object... parameters) {
+        return fetchAsync(JACKSON::readTree, command, method, requestBody, parameters);
+    }
+
+    /**
+     * Non-blocking version of {@link #fetch(IOFunction, String, String, Object, Object...)}. The reader is called
+     * once the entire response has been received.
+     */
+    public <T> CompletableFuture<T> fetchAsync(
+            IOFunction<JsonParser, T> reader,
+            String command,
+            String method,
+            @CheckForNull Object requestBody,
+            Object... parameters) {
+        URI uri;
+        String singleFlightKey;
         try {
-            return JACKSON.readTree(content);
-        } catch (JsonProcessingException e) {
-            String shortContent =
-                    content.substring(0, Math.min(content.length(), 100)) + (content.length() < 100 ? "..." : "");
-            throw new RuntimeException("Unable to parse response: " + shortContent, e);
+            uri = formURI(command, parameters);
+            singleFlightKey =
+                    method + " " + uri + (requestBody != null ? " " + JACKSON.writeValueAsString(requestBody) : "");
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        RequestRecorder recorder = RequestRecorder.start(requestListener, command, method);
+        CompletableFuture<HttpResponse<byte[]>> response = Futures.thenComposeIO(tokenCache.getTokenAsync(), token -> {
+            HttpRequest request = newRequest(transport, uri, transport.getRequestTimeout(), token, method, requestBody);
+            return singleFlight != null
+                    ? singleFlight.execute(singleFlightKey, () -> sendAsync(request, recorder))
+                    : sendAsync(request, recorder);
+        });
+        CompletableFuture<T> result = Futures.thenApplyIO(
+                        response, r -> recorder.decode(recorder.bytesBody(r), inputStream -> read(inputStream, reader)))
+                .whenComplete((value, failure) -> recorder.finish(failure != null ? Futures.unwrap(failure) : null))
+                .exceptionallyCompose(e -> {
+                    Throwable cause = Futures.unwrap(e);
+                    if (cause instanceof IOException io) {
+                        cause = describe(io, uri);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+        return Futures.cancelling(result, response);
+    }
+
+    /**
+     * Sends the request with rate limiting and retries. Completes with responses which passed
+     * {@link #checkResponse(HttpResponse)}.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> sendAsync(HttpRequest request, RequestRecorder recorder) {
+        // cancellation is passed on to the exchange which is currently in flight
+        AtomicReference<CompletableFuture<?>> exchange = new AtomicReference<>();
+        CompletableFuture<HttpResponse<byte[]>> result = retryPolicy.executeAsync(
+                () -> rateLimiter.acquireAsync(rateLimitWait).thenCompose(permit -> {
+                    recorder.attempt();
+                    CompletableFuture<HttpResponse<byte[]>> sent =
+                            transport.sendAsync(request, recorder.bodyHandler(BodyHandlers.ofByteArray()));
+                    exchange.set(sent);
+                    return Futures.thenApplyIO(sent, response -> {
+                        rateLimiter.updateBudget(response);
+                        checkResponse(response);
+                        return response;
+                    });
+                }));
+        result.whenComplete((response, failure) -> {
+            CompletableFuture<?> sent = exchange.get();
+            if (result.isCancelled() && sent != null) {
+                sent.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Adds the URI to an exception. Timeouts and rate limiting are returned as they are and responses which are
+     * not valid JSON are turned into {@link RuntimeException}s.
+     */
+    private static IOException describe(IOException e, URI uri) {
+        if (e instanceof SocketTimeoutException
+                || e instanceof HttpTimeoutException
+                || e instanceof RateLimitExceededException) {
+            return e;
+        }
+        if (e instanceof JsonParseException) {
+            throw new RuntimeException("Unable to parse response from " + uri, e);
         }
+        String message = e.getMessage() + " for " + uri;
+        IOException described = e instanceof HttpStatusException status
+                ? new HttpStatusException(status.getStatusCode(), status.getRetryAfter(), message)
+                : new IOException(message);
+        described.initCause(e);
+        return described;
+    }
+
+    private static <T> T read(InputStream inputStream, IOFunction<JsonParser, T> reader) throws IOException {
+        return JsonStreams.read(JACKSON, JsonStreams.failOnMessage(inputStream, INVALID_API_KEY), reader);
     }
 
     public URI formURI(String command, Object... parameters) {
@@ -135,7 +540,13 @@ public class DownloaderV2 implements OsuApiClient {
             if (!command.contains(s)) {
                 throw new IllegalArgumentException("command must contain parameter " + s + "!");
             }
-            command = command.replace(s, URLEncoder.encode(String.valueOf(parameters[i + 1]), StandardCharsets.UTF_8));
+            String value = URLEncoder.encode(String.valueOf(parameters[i + 1]), StandardCharsets.UTF_8);
+            int query = command.indexOf('?');
+            if (query < 0 || command.indexOf(s) < query) {
+                // + is only a space in the query
+                value = value.replace("+", "%20");
+            }
+            command = command.replace(s, value);
         }
 
         return URI.create(baseUrl + "/api/v2/" + command);
@@ -147,49 +558,108 @@ public class DownloaderV2 implements OsuApiClient {
 
     public static String downloadDirect(URI uri, int timeout, String key, String method, Object requestBody)
             throws IOException {
-        HttpURLConnection httpCon = (HttpURLConnection) uri.toURL().openConnection();
+        return downloadDirect(HttpTransport.shared(), uri, Duration.ofMillis(timeout), key, method, requestBody);
+    }
+
+    public static String downloadDirect(
+            HttpTransport transport, URI uri, Duration timeout, String key, String method, Object requestBody)
+            throws IOException {
+        return download(
+                transport,
+                uri,
+                timeout,
+                key,
+                method,
+                requestBody,
+                null,
+                RequestRecorder.discarding(),
+                inputStream -> new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Downloads the URI and hands the response to the reader while it is being received.
+     */
+    public static <T> T downloadDirect(
+            HttpTransport transport,
+            URI uri,
+            Duration timeout,
+            String key,
+            String method,
+            @CheckForNull Object requestBody,
+            IOFunction<JsonParser, T> reader)
+            throws IOException {
+        return download(
+                transport,
+                uri,
+                timeout,
+                key,
+                method,
+                requestBody,
+                null,
+                RequestRecorder.discarding(),
+                inputStream -> read(inputStream, reader));
+    }
 
-        httpCon.setRequestMethod(method);
-        httpCon.setRequestProperty("Authorization", "Bearer " + key);
-        httpCon.setRequestProperty("Accept-Encoding", "gzip");
-        httpCon.setConnectTimeout(timeout);
-        httpCon.setReadTimeout(timeout);
+    /**
+     * @param rateLimiter is updated with the budget which the server reports. May be null.
+     */
+    private static <T> T download(
+            HttpTransport transport,
+            URI uri,
+            Duration timeout,
+            String key,
+            String method,
+            @CheckForNull Object requestBody,
+            @CheckForNull RateLimiter rateLimiter,
+            RequestRecorder recorder,
+            IOFunction<InputStream, T> bodyReader)
+            throws IOException {
+        HttpRequest request = newRequest(transport, uri, timeout, key, method, requestBody);
+        recorder.attempt();
+        HttpResponse<InputStream> response = transport.send(request);
+        recorder.headers(response.statusCode());
 
+        InputStream inputStream = response.body();
         try {
-            if (requestBody != null) {
-                httpCon.setDoOutput(true);
-                httpCon.setRequestProperty("Content-Type", "application/json");
-                JACKSON.writeValue(httpCon.getOutputStream(), requestBody);
+            if (rateLimiter != null) {
+                rateLimiter.updateBudget(response);
             }
+            checkResponse(response);
 
-            if (httpCon.getResponseCode() != 200) {
-                throw new IOException("response code " + httpCon.getResponseCode());
-            }
+            inputStream = recorder.body(response);
 
-            String contentEncoding = httpCon.getContentEncoding();
-            InputStream inputStream = httpCon.getInputStream();
-            try {
-                if (contentEncoding != null && contentEncoding.equalsIgnoreCase("gzip")) {
-                    inputStream = new GZIPInputStream(inputStream);
-                }
+            return recorder.decode(inputStream, bodyReader);
+        } finally {
+            inputStream.close();
+        }
+    }
 
-                String contentType = httpCon.getContentType();
-                if (contentType == null || !contentType.contains("application/json")) {
-                    throw new IOException("unexpected content-type: " + contentType);
-                }
+    private static HttpRequest newRequest(
+            HttpTransport transport,
+            URI uri,
+            Duration timeout,
+            String key,
+            String method,
+            @CheckForNull Object requestBody)
+            throws JsonProcessingException {
+        HttpRequest.Builder request = transport.newRequest(uri, timeout).header("Authorization", "Bearer " + key);
+        if (requestBody != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(JACKSON.writeValueAsBytes(requestBody)));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        return request.build();
+    }
 
-                byte[] buf = new byte[1024];
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                for (int len; (len = inputStream.read(buf)) > 0; ) {
-                    baos.write(buf, 0, len);
-                }
+    private static void checkResponse(HttpResponse<?> response) throws IOException {
+        if (response.statusCode() != 200) {
+            throw new HttpStatusException(response.statusCode(), HttpTransport.retryAfter(response));
+        }
 
-                return baos.toString(StandardCharsets.UTF_8);
-            } finally {
-                inputStream.close();
-            }
-        } finally {
-            httpCon.disconnect();
+        String contentType = HttpTransport.contentType(response);
+        if (contentType == null || !contentType.contains("application/json")) {
+            throw new IOException("unexpected content-type: " + contentType);
         }
     }
 
@@ -204,24 +674,31 @@ public class DownloaderV2 implements OsuApiClient {
      */
     public <T extends OsuApiScore> List<T> getUserTop(@UserId int userId, @GameMode int mode, int limit, Class<T> cls)
             throws IOException {
-        JsonNode jsonArray = fetch(
-                "users/{user}/scores/best?mode={mode}&limit={limit}",
-                "GET",
-                null,
-                "{user}",
-                userId,
-                "{mode}",
-                GameModes.getRulesetName(mode),
-                "{limit}",
-                limit);
-
-        List<OsuApiScoreV2> scores = new ArrayList<>();
-        for (JsonNode elem : jsonArray) {
-            OsuApiScoreV2 scoreV2 = JACKSON.treeToValue(elem, OsuApiScoreV2.class);
-            scores.add(scoreV2);
-        }
+        return fetch(scores(cls), USER_TOP, "GET", null, userTopParameters(userId, mode, limit));
+    }
 
-        return scores.stream().map(scoreV2 -> MAPPER.mapScoreToV1(scoreV2, cls)).collect(Collectors.toList());
+    @Override
+    public <T extends OsuApiScore> CompletableFuture<List<T>> getUserTopAsync(
+            @UserId int userId, @GameMode int mode, int limit, Class<T> cls) {
+        return fetchAsync(scores(cls), USER_TOP, "GET", null, userTopParameters(userId, mode, limit));
+    }
+
+    private static final String USER_TOP = "users/{user}/scores/best?mode={mode}&limit={limit}";
+
+    private static Object[] userTopParameters(@UserId int userId, @GameMode int mode, int limit) {
+        return new Object[] {"{user}", userId, "{mode}", GameModes.getRulesetName(mode), "{limit}", limit};
+    }
+
+    /**
+     * Reads a list of scores. A JSON null is read as an empty list.
+     */
+    private static <T extends OsuApiScore> IOFunction<JsonParser, List<T>> scores(Class<T> cls) {
+        return parser -> {
+            List<OsuApiScoreV2> scores = JsonStreams.readList(JACKSON, parser, OsuApiScoreV2.class, null);
+            return scores.stream()
+                    .map(scoreV2 -> MAPPER.mapScoreToV1(scoreV2, cls))
+                    .collect(Collectors.toList());
+        };
     }
 
     /**
@@ -232,6 +709,7 @@ public class DownloaderV2 implements OsuApiClient {
      * @return
      * @throws IOException
      */
+    @Override
     public <T extends OsuApiScore> List<T> getBeatmapTop(@BeatmapId int beatmapId, @GameMode int mode, Class<T> cls)
             throws IOException {
         return getBeatmapTop(beatmapId, mode, new String[0], cls);
@@ -255,20 +733,18 @@ public class DownloaderV2 implements OsuApiClient {
             modsQuery.append("&mods[]=").append(URLEncoder.encode(mod, StandardCharsets.UTF_8));
         }
 
-        ArrayNode jsonArray = toArray(fetch(
+        BeatmapScoresResponse response = fetch(
+                parser -> JsonStreams.readFirst(JACKSON, parser, BeatmapScoresResponse.class),
                 "beatmaps/{beatmap}/scores?mode={mode}" + modsQuery,
                 "GET",
                 null,
                 "{beatmap}",
                 beatmapId,
                 "{mode}",
-                modeRuleset));
-        ArrayNode scoresArray = (ArrayNode) jsonArray.get(0).get("scores");
-
-        List<OsuApiScoreBeatmapV2> scores = new ArrayList<>();
-        for (JsonNode elem : scoresArray) {
-            OsuApiScoreBeatmapV2 scoreV2 = JACKSON.treeToValue(elem, OsuApiScoreBeatmapV2.class);
-            scores.add(scoreV2);
+                modeRuleset);
+        List<OsuApiScoreBeatmapV2> scores = response != null ? response.scores() : null;
+        if (scores == null) {
+            throw new RuntimeException("Expected scores");
         }
 
         return scores.stream()
@@ -276,6 +752,8 @@ public class DownloaderV2 implements OsuApiClient {
                 .collect(Collectors.toList());
     }
 
+    record BeatmapScoresResponse(@CheckForNull List<OsuApiScoreBeatmapV2> scores) {}
+
     /**
      * @deprecated because the API might return multiple scores
      */
@@ -283,7 +761,9 @@ public class DownloaderV2 implements OsuApiClient {
     @CheckForNull
     public <T extends OsuApiScore> T getScore(
             @UserId int userId, @BeatmapId int beatmapId, @GameMode int mode, Class<T> cls) throws IOException {
-        JsonNode jsonElement = fetch(
+        // there might be more than one score. We get the first one
+        BeatmapUserScoreResponse response = fetch(
+                parser -> JsonStreams.readFirst(JACKSON, parser, BeatmapUserScoreResponse.class),
                 "beatmaps/{beatmap}/scores/users/{user}?mode={mode}",
                 "GET",
                 null,
@@ -294,103 +774,125 @@ public class DownloaderV2 implements OsuApiClient {
                 "{mode}",
                 GameModes.getRulesetName(mode));
 
-        if (jsonElement.isNull()) return null;
-
-        ArrayNode jsonArray = toArray(jsonElement);
-
-        if (jsonArray.isEmpty()) {
+        if (response == null) {
             return null;
         }
+        OsuApiScoreV2 scoreV2 = response.score();
+        if (scoreV2 == null) {
+            throw new RuntimeException("Expected score");
+        }
 
-        // there might be more than one score. We get the first one
-        ObjectNode jsonObject = toObject(jsonArray.get(0).path("score"));
-
-        OsuApiScoreV2 scoreV2 = JACKSON.treeToValue(jsonObject, OsuApiScoreV2.class);
         return MAPPER.mapScoreToV1(scoreV2, cls);
     }
 
+    record BeatmapUserScoreResponse(@CheckForNull OsuApiScoreV2 score) {}
+
     @CheckForNull
     public <T extends OsuApiUser> T getUser(@UserId int userId, @GameMode int mode, Class<T> cls) throws IOException {
-        ArrayNode jsonArray = toArray(fetch(
-                "users/{user}?mode={mode}&key=id".replace("{user}", String.valueOf(userId)),
-                "GET",
-                null,
-                "{mode}",
-                GameModes.getRulesetName(mode)));
+        return fetch(user(mode, cls), USER_BY_ID, "GET", null, userParameters(userId, mode));
+    }
 
-        if (jsonArray.isEmpty()) {
-            return null;
-        }
+    @Override
+    public <T extends OsuApiUser> CompletableFuture<T> getUserAsync(
+            @UserId int userId, @GameMode int mode, Class<T> cls) {
+        return fetchAsync(user(mode, cls), USER_BY_ID, "GET", null, userParameters(userId, mode));
+    }
 
-        OsuApiUserV2 userV2 = JACKSON.treeToValue(jsonArray.get(0), OsuApiUserV2.class);
-        T user = MAPPER.mapUserToV1(userV2, cls);
-        user.setMode(mode);
+    private static final String USER_BY_ID = "users/{user}?mode={mode}&key=id";
 
-        return user;
+    private static final String USER_BY_NAME = "users/{user}?mode={mode}&key=username";
+
+    /**
+     * @param user id or name
+     */
+    private static Object[] userParameters(Object user, @GameMode int mode) {
+        return new Object[] {"{user}", user, "{mode}", GameModes.getRulesetName(mode)};
     }
 
     @CheckForNull
     public <T extends OsuApiUser> T getUser(String username, @GameMode int mode, Class<T> cls) throws IOException {
-        ArrayNode jsonArray = toArray(fetch(
-                "users/{user}?mode={mode}&key=username".replace("{user}", username),
-                "GET",
-                null,
-                "{mode}",
-                GameModes.getRulesetName(mode)));
+        return fetch(user(mode, cls), USER_BY_NAME, "GET", null, userParameters(username, mode));
+    }
 
-        if (jsonArray.isEmpty()) {
-            return null;
-        }
+    @Override
+    public <T extends OsuApiUser> CompletableFuture<T> getUserAsync(String username, @GameMode int mode, Class<T> cls) {
+        return fetchAsync(user(mode, cls), USER_BY_NAME, "GET", null, userParameters(username, mode));
+    }
 
-        OsuApiUserV2 userV2 = JACKSON.treeToValue(jsonArray.get(0), OsuApiUserV2.class);
-        T user = MAPPER.mapUserToV1(userV2, cls);
-        user.setMode(mode);
+    /**
+     * Looks up the users with the {@code users} endpoint, {@value #IDS_CHUNK_SIZE} per request.
+     */
+    @Override
+    public <T extends OsuApiUser> Map<Integer, T> getUsers(int[] userIds, @GameMode int mode, Class<T> cls)
+            throws IOException {
+        return Futures.join(getUsersAsync(userIds, mode, cls));
+    }
 
-        return user;
+    @Override
+    public <T extends OsuApiUser> CompletableFuture<Map<Integer, T>> getUsersAsync(
+            int[] userIds, @GameMode int mode, Class<T> cls) {
+        IOFunction<JsonParser, List<T>> reader = users(mode, cls);
+        return fetchChunked(
+                userIds, chunk -> fetchAsync(reader, "users?" + idsQuery(chunk), "GET", null), OsuApiUser::getUserId);
     }
 
-    public <T extends OsuApiScore> List<T> getUserRecent(@UserId int userid, @GameMode int mode, Class<T> cls)
+    record UsersResponse(@CheckForNull List<OsuApiUserV2> users) {}
+
+    private static <T extends OsuApiUser> IOFunction<JsonParser, List<T>> users(int mode, Class<T> cls) {
+        return parser -> readUsers(parser, mode, cls);
+    }
+
+    @SuppressFBWarnings(value = "TQ", justification = "mode is passed through lambdas")
+    private static <T extends OsuApiUser> List<T> readUsers(JsonParser parser, int mode, Class<T> cls)
             throws IOException {
-        JsonNode jsonElement = fetch(
-                "users/{user}/scores/recent?mode={mode}&limit={limit}",
-                "GET",
-                null,
-                "{user}",
-                userid,
-                "{mode}",
-                GameModes.getRulesetName(mode),
-                "{limit}",
-                "10");
-        if (jsonElement instanceof NullNode) {
-            return Collections.emptyList();
+        UsersResponse response = JsonStreams.readFirst(JACKSON, parser, UsersResponse.class);
+        List<OsuApiUserV2> usersV2 = response != null ? response.users() : null;
+        if (usersV2 == null) {
+            return List.of();
         }
 
-        List<OsuApiScoreV2> scores = new ArrayList<>();
-        for (JsonNode elem : jsonElement) {
-            OsuApiScoreV2 scoreV2 = JACKSON.treeToValue(elem, OsuApiScoreV2.class);
-            scores.add(scoreV2);
+        String ruleset = GameModes.getRulesetName(mode);
+        List<T> users = new ArrayList<>(usersV2.size());
+        for (OsuApiUserV2 userV2 : usersV2) {
+            T user = MAPPER.mapUserToV1(userV2.withRulesetStatistics(ruleset), cls);
+            user.setMode(mode);
+            users.add(user);
         }
+        return users;
+    }
 
-        return scores.stream().map(scoreV2 -> MAPPER.mapScoreToV1(scoreV2, cls)).collect(Collectors.toList());
+    private static <T extends OsuApiUser> IOFunction<JsonParser, T> user(int mode, Class<T> cls) {
+        return parser -> readUser(parser, mode, cls);
     }
 
-    private static ArrayNode toArray(JsonNode n) {
-        if (n.isArray()) {
-            return (ArrayNode) n;
-        } else if (n.isObject()) {
-            ArrayNode arr = JACKSON.createArrayNode();
-            arr.add(n);
-            return arr;
+    @CheckForNull
+    @SuppressFBWarnings(value = "TQ", justification = "mode is passed through lambdas")
+    private static <T extends OsuApiUser> T readUser(JsonParser parser, int mode, Class<T> cls) throws IOException {
+        OsuApiUserV2 userV2 = JsonStreams.readFirst(JACKSON, parser, OsuApiUserV2.class);
+        if (userV2 == null) {
+            return null;
         }
 
-        throw new RuntimeException("Expected array");
+        T user = MAPPER.mapUserToV1(userV2, cls);
+        user.setMode(mode);
+        return user;
     }
 
-    private static ObjectNode toObject(JsonNode n) {
-        if (!n.isObject()) {
-            throw new RuntimeException("Expected array");
-        }
-        return (ObjectNode) n;
+    public <T extends OsuApiScore> List<T> getUserRecent(@UserId int userid, @GameMode int mode, Class<T> cls)
+            throws IOException {
+        return fetch(scores(cls), USER_RECENT, "GET", null, userRecentParameters(userid, mode));
+    }
+
+    @Override
+    public <T extends OsuApiScore> CompletableFuture<List<T>> getUserRecentAsync(
+            @UserId int userid, @GameMode int mode, Class<T> cls) {
+        return fetchAsync(scores(cls), USER_RECENT, "GET", null, userRecentParameters(userid, mode));
+    }
+
+    private static final String USER_RECENT = "users/{user}/scores/recent?mode={mode}&limit={limit}";
+
+    private static Object[] userRecentParameters(@UserId int userid, @GameMode int mode) {
+        return new Object[] {"{user}", userid, "{mode}", GameModes.getRulesetName(mode), "{limit}", "10"};
     }
 
     /**
@@ -411,7 +913,12 @@ public class DownloaderV2 implements OsuApiClient {
             }
 
             @Override
-            public JsonNode fetch(String command, String method, Object requestBody, Object... parameters)
+            public <T> T fetch(
+                    IOFunction<JsonParser, T> reader,
+                    String command,
+                    String method,
+                    Object requestBody,
+                    Object... parameters)
                     throws IOException {
                 URI uri = formURI(command, parameters);
                 if (uri.toString().contains("&") && !uri.toString().contains("?")) {
@@ -422,7 +929,21 @@ public class DownloaderV2 implements OsuApiClient {
                     if (in == null) {
                         throw new RuntimeException("Resource not found: " + relPath + " " + uri);
                     }
-                    return JACKSON.readTree(in);
+                    return JsonStreams.read(JACKSON, in, reader);
+                }
+            }
+
+            @Override
+            public <T> CompletableFuture<T> fetchAsync(
+                    IOFunction<JsonParser, T> reader,
+                    String command,
+                    String method,
+                    Object requestBody,
+                    Object... parameters) {
+                try {
+                    return CompletableFuture.completedFuture(fetch(reader, command, method, requestBody, parameters));
+                } catch (IOException e) {
+                    return CompletableFuture.failedFuture(e);
                 }
             }
         }
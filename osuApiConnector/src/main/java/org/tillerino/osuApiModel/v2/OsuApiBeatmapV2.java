@@ -28,6 +28,31 @@ record OsuApiBeatmapV2(
         Beatmapset beatmapset,
         Attributes attributes) {
 
+    OsuApiBeatmapV2 withAttributes(Attributes attributes) {
+        return new OsuApiBeatmapV2(
+                id,
+                beatmapset_id,
+                user_id,
+                version,
+                status,
+                last_updated,
+                bpm,
+                difficulty_rating,
+                accuracy,
+                ar,
+                cs,
+                drain,
+                hit_length,
+                total_length,
+                mode_int,
+                checksum,
+                playcount,
+                passcount,
+                max_combo,
+                beatmapset,
+                attributes);
+    }
+
     record Beatmapset(
             String title,
             String artist,
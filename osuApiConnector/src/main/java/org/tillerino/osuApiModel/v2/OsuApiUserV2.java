@@ -1,11 +1,28 @@
 package org.tillerino.osuApiModel.v2;
 
+import java.util.Map;
+import javax.annotation.CheckForNull;
 import org.tillerino.osuApiModel.types.GameMode;
 import org.tillerino.osuApiModel.types.OsuName;
 import org.tillerino.osuApiModel.types.UserId;
 
 record OsuApiUserV2(
-        @UserId int id, @OsuName String username, @GameMode int modeInt, Country country, Statistics statistics) {
+        @UserId int id,
+        @OsuName String username,
+        @GameMode int modeInt,
+        Country country,
+        Statistics statistics,
+        @CheckForNull Map<String, Statistics> statistics_rulesets) {
+
+    /**
+     * The users endpoint does not return {@code statistics}, but the statistics of all rulesets.
+     *
+     * @param ruleset see {@link org.tillerino.osuApiModel.GameModes#getRulesetName(int)}
+     */
+    OsuApiUserV2 withRulesetStatistics(String ruleset) {
+        Statistics rulesetStatistics = statistics_rulesets != null ? statistics_rulesets.get(ruleset) : null;
+        return new OsuApiUserV2(id, username, modeInt, country, rulesetStatistics, statistics_rulesets);
+    }
 
     record Country(String code) {}
 
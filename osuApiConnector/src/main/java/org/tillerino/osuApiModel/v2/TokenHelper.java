@@ -1,8 +1,8 @@
 package org.tillerino.osuApiModel.v2;
 
+import static org.tillerino.osuApiModel.deserializer.JsonStreams.JACKSON;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URI;
@@ -12,19 +12,42 @@ import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Pattern;
 import javax.annotation.CheckForNull;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class TokenHelper {
-    private static final ObjectMapper JACKSON =
-            new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private static final ThreadFactory TOKEN_THREADS =
+            Thread.ofVirtual().name("osu-api-token-", 0).factory();
+
+    private static final Executor TOKEN_REQUESTS =
+            task -> TOKEN_THREADS.newThread(task).start();
 
     // Reference: https://osu.ppy.sh/docs/index.html#client-credentials-grant
     private static TokenResponse requestNewToken(URI base, String clientId, String clientSecret) throws IOException {
         log.info("Requesting new osu! API token for client ID {}", clientId);
 
+        TokenRequestEvent event = new TokenRequestEvent();
+        event.begin();
+        try {
+            return requestNewToken(base, clientId, clientSecret, event);
+        } catch (IOException | RuntimeException e) {
+            event.failure = e.getClass().getName();
+            throw e;
+        } finally {
+            event.clientId = clientId;
+            event.commit();
+        }
+    }
+
+    private static TokenResponse requestNewToken(
+            URI base, String clientId, String clientSecret, TokenRequestEvent event) throws IOException {
+
         String urlParams = "client_id=" + URLEncoder.encode(clientId, StandardCharsets.UTF_8) + "&client_secret="
                 + URLEncoder.encode(clientSecret, StandardCharsets.UTF_8) + "&grant_type=client_credentials"
                 + "&scope=public";
@@ -41,6 +64,7 @@ public class TokenHelper {
             os.flush();
         }
 
+        event.status = conn.getResponseCode();
         if (conn.getResponseCode() != 200) {
             throw new IOException("Failed to get token: HTTP " + conn.getResponseCode());
         }
@@ -52,15 +76,25 @@ public class TokenHelper {
         private final URI base;
         private final Credentials credentials;
 
+        /**
+         * The token request which is in flight for {@link #getTokenAsync()}.
+         */
+        @CheckForNull
+        private CompletableFuture<String> tokenRequest;
+
         protected TokenCache(URI base, Credentials credentials) {
             this.base = base;
             this.credentials = credentials;
         }
 
+        public String getClientId() {
+            return credentials.clientId();
+        }
+
         public String getToken() throws IOException {
             CachedToken cached = getCachedToken();
             OffsetDateTime now = OffsetDateTime.now();
-            if (cached == null || cached.expiresAt().minusSeconds(10).isBefore(now)) {
+            if (cached == null || isExpired(cached, now)) {
                 TokenResponse newToken = requestNewToken(base, credentials.clientId, credentials.clientSecret);
                 cached = new CachedToken(newToken.accessToken, now.plusSeconds(newToken.expiresIn));
                 cacheToken(cached);
@@ -68,6 +102,45 @@ public class TokenHelper {
             return cached.token();
         }
 
+        /**
+         * Like {@link #getToken()}, but a new token is requested on a virtual thread, so this does not block.
+         * Concurrent calls share the request.
+         */
+        public CompletableFuture<String> getTokenAsync() {
+            CachedToken cached = getCachedToken();
+            if (cached != null && !isExpired(cached, OffsetDateTime.now())) {
+                return CompletableFuture.completedFuture(cached.token());
+            }
+            synchronized (this) {
+                CompletableFuture<String> request = tokenRequest;
+                if (request == null) {
+                    CompletableFuture<String> started = CompletableFuture.supplyAsync(
+                            () -> {
+                                try {
+                                    return getToken();
+                                } catch (IOException e) {
+                                    throw new CompletionException(e);
+                                }
+                            },
+                            TOKEN_REQUESTS);
+                    tokenRequest = request = started;
+                    started.whenComplete((token, failure) -> {
+                        synchronized (this) {
+                            if (tokenRequest == started) {
+                                tokenRequest = null;
+                            }
+                        }
+                    });
+                }
+                // callers cannot cancel the shared request
+                return request.copy();
+            }
+        }
+
+        private static boolean isExpired(CachedToken cached, OffsetDateTime now) {
+            return cached.expiresAt().minusSeconds(10).isBefore(now);
+        }
+
         protected abstract CachedToken getCachedToken();
 
         protected abstract void cacheToken(CachedToken cached);
@@ -0,0 +1,28 @@
+package org.tillerino.osuApiModel.v2;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for requesting a new token in {@link TokenHelper}.
+ */
+@Name("org.tillerino.osuApiModel.TokenRequest")
+@Label("osu! API Token Request")
+@Category("osu! API")
+@Description("Request of a new osu! API token with the client credentials grant")
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "the fields are read by the flight recorder")
+final class TokenRequestEvent extends jdk.jfr.Event {
+    @Label("Client ID")
+    String clientId;
+
+    @Label("Status")
+    @Description("Status code of the response or 0 if no response was received")
+    int status;
+
+    @Label("Failure")
+    @Description("Class of the exception if the request failed")
+    String failure;
+}
@@ -1,13 +1,15 @@
 package org.tillerino.osuApiModel.v2;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import org.mapstruct.*;
 import org.tillerino.osuApiModel.Mods;
 import org.tillerino.osuApiModel.OsuApiBeatmap;
 import org.tillerino.osuApiModel.OsuApiScore;
 import org.tillerino.osuApiModel.OsuApiUser;
+import org.tillerino.osuApiModel.deserializer.DateToLong;
 import org.tillerino.osuApiModel.types.BitwiseMods;
 import org.tillerino.osuApiModel.types.MillisSinceEpoch;
 
@@ -61,20 +63,30 @@ interface V2Mapper {
         return target;
     }
 
+    /**
+     * Acronyms which this library does not know (e.g. lazer-only mods) are left out.
+     */
     @Named("modsToBitwise")
     @BitwiseMods
     static long modsToBitwise(List<String> modsArray) {
         if (modsArray == null) {
             return 0L;
         }
-        return Mods.getMask(modsArray.stream().map(Mods::fromShortName).toList());
+        long mods = 0L;
+        for (String acronym : modsArray) {
+            Mods mod = Mods.fromShortName(acronym);
+            if (mod != null) {
+                mods = Mods.add(mods, mod);
+            }
+        }
+        return mods;
     }
 
     @Named("isoToEpoch")
     @MillisSinceEpoch
     @SuppressFBWarnings("TQ_UNKNOWN_VALUE_USED_WHERE_ALWAYS_STRICTLY_REQUIRED")
-    static long isoToEpoch(String isoDate) {
-        return isoDate == null ? 0L : Instant.parse(isoDate).toEpochMilli();
+    static long isoToEpoch(@CheckForNull String isoDate) {
+        return isoDate == null ? 0L : DateToLong.parse(isoDate);
     }
 
     @Mapping(source = "id", target = "beatmapId")
@@ -130,11 +142,13 @@ interface V2Mapper {
     @Named("parseDate")
     @MillisSinceEpoch
     @SuppressFBWarnings("TQ_UNKNOWN_VALUE_USED_WHERE_ALWAYS_STRICTLY_REQUIRED")
-    static long parseDate(String dateString) {
+    static long parseDate(@CheckForNull String dateString) {
+        if (dateString == null) {
+            return 0;
+        }
         try {
-            Instant instant = Instant.parse(dateString);
-            return instant.toEpochMilli();
-        } catch (Exception e) {
+            return DateToLong.parse(dateString);
+        } catch (DateTimeParseException e) {
             return 0;
         }
     }
@@ -13,11 +13,18 @@ import static org.mockserver.model.HttpResponse.response;
 import com.google.common.net.MediaType;
 import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.List;
 import org.junit.Test;
+import org.mockserver.matchers.Times;
 import org.mockserver.model.Header;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.model.HttpResponse;
+import org.mockserver.verify.VerificationTimes;
+import org.tillerino.osuApiModel.http.HttpStatusException;
+import org.tillerino.osuApiModel.http.RateLimitExceededException;
+import org.tillerino.osuApiModel.http.RateLimiter;
+import org.tillerino.osuApiModel.http.RetryPolicy;
 
 public class DownloaderTest extends AbstractMockServerTest {
     @Test
@@ -160,4 +167,95 @@ public class DownloaderTest extends AbstractMockServerTest {
                 .withQueryStringParameter("b", "123")
                 .withQueryStringParameter("mods", "16"));
     }
+
+    @Test
+    public void asyncBeatmapCanBePulled() throws Exception {
+        mockServer
+                .when(request("/get_beatmaps")
+                        .withQueryStringParameter("k", "key")
+                        .withQueryStringParameter("b", "123")
+                        .withQueryStringParameter("mods", "16"))
+                .respond(response().withBody("[{\"beatmap_id\":\"123\",\"title\":\"async\"}]", MediaType.JSON_UTF_8));
+
+        assertThat(downloader.getBeatmapAsync(123, 16, OsuApiBeatmap.class).get())
+                .hasFieldOrPropertyWithValue("beatmapId", 123)
+                .hasFieldOrPropertyWithValue("title", "async");
+    }
+
+    @Test
+    public void asyncErrorsContainUrlWithoutKey() throws Exception {
+        mockServer
+                .when(request("/get_user").withQueryStringParameter("u", "123"))
+                .respond(response().withStatusCode(500));
+
+        assertThatThrownBy(
+                        () -> downloader.getUserAsync(123, 0, OsuApiUser.class).join())
+                .hasCauseInstanceOf(IOException.class)
+                .hasMessageContaining("response code 500")
+                .hasMessageContaining("get_user&u=123")
+                .hasMessageNotContaining("k=key");
+    }
+
+    @Test
+    public void rateLimitFailsFast() throws Exception {
+        mockServer
+                .when(request("/get_beatmaps").withQueryStringParameter("b", "123"))
+                .respond(response().withBody("[]", MediaType.JSON_UTF_8));
+
+        RateLimiter rateLimiter = new RateLimiter();
+        rateLimiter.setLimit(0.001, 1);
+        downloader.setRateLimiter(rateLimiter);
+        downloader.setRateLimitWait(Duration.ZERO);
+
+        assertThat(downloader.getBeatmap(123, 0, OsuApiBeatmap.class)).isNull();
+        assertThatThrownBy(() -> downloader.getBeatmap(123, 0, OsuApiBeatmap.class))
+                .isInstanceOf(RateLimitExceededException.class);
+        assertThatThrownBy(() ->
+                        downloader.getBeatmapAsync(123, 0, OsuApiBeatmap.class).join())
+                .hasCauseInstanceOf(RateLimitExceededException.class);
+
+        mockServer.verify(request("/get_beatmaps"), VerificationTimes.once());
+    }
+
+    @Test
+    public void serverErrorsAreRetried() throws Exception {
+        mockServer
+                .when(request("/get_beatmaps").withQueryStringParameter("b", "123"), Times.once())
+                .respond(response().withStatusCode(503).withHeader("Retry-After", "0"));
+        mockServer
+                .when(request("/get_beatmaps").withQueryStringParameter("b", "123"))
+                .respond(response().withBody("[]", MediaType.JSON_UTF_8));
+
+        RetryPolicy retryPolicy = RetryPolicy.builder().maxAttempts(2).build();
+        downloader.setRetryPolicy(retryPolicy);
+
+        assertThat(downloader.getBeatmap(123, 0, OsuApiBeatmap.class)).isNull();
+
+        mockServer.verify(request("/get_beatmaps"), VerificationTimes.exactly(2));
+        assertThat(retryPolicy.getMetrics().getRetries()).isEqualTo(1);
+    }
+
+    @Test
+    public void notFoundIsNotRetried() throws Exception {
+        mockServer.when(request("/get_user")).respond(response().withStatusCode(404));
+
+        downloader.setRetryPolicy(RetryPolicy.builder().maxAttempts(3).build());
+
+        assertThatThrownBy(
+                        () -> downloader.getUserAsync(123, 0, OsuApiUser.class).join())
+                .hasCauseInstanceOf(HttpStatusException.class)
+                .hasMessageContaining("response code 404");
+
+        mockServer.verify(request("/get_user"), VerificationTimes.once());
+    }
+
+    @Test
+    public void getBeatmapsLooksUpEachIdOnce() throws Exception {
+        mockServer.when(request("/get_beatmaps")).respond(response().withBody("[]", MediaType.JSON_UTF_8));
+
+        assertThat(downloader.getBeatmaps(new int[] {123, 124, 123}, 0, OsuApiBeatmap.class))
+                .isEmpty();
+
+        mockServer.verify(request("/get_beatmaps"), VerificationTimes.exactly(2));
+    }
 }
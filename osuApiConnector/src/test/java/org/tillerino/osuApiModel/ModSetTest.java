@@ -0,0 +1,111 @@
+package org.tillerino.osuApiModel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ModSetTest {
+    @Test
+    public void testInterned() {
+        long hdhr = Mods.getMask(Mods.Hidden, Mods.HardRock);
+        assertThat(ModSet.of(hdhr)).isSameAs(ModSet.of(Mods.HardRock, Mods.Hidden));
+        assertThat(ModSet.of(0)).isSameAs(ModSet.NONE);
+        assertThat(ModSet.of(Mods.Key4.bit))
+                .isNotSameAs(ModSet.of(Mods.Key4.bit))
+                .isEqualTo(ModSet.of(Mods.Key4));
+    }
+
+    @Test
+    public void testSetOperations() {
+        ModSet hdhr = ModSet.of(Mods.Hidden, Mods.HardRock);
+        ModSet hddt = ModSet.of(Mods.Hidden, Mods.DoubleTime);
+
+        assertThat(hdhr.contains(Mods.Hidden)).isTrue();
+        assertThat(hdhr.contains(Mods.DoubleTime)).isFalse();
+        assertThat(hdhr.union(hddt)).isEqualTo(ModSet.of(Mods.Hidden, Mods.HardRock, Mods.DoubleTime));
+        assertThat(hdhr.intersection(hddt)).isSameAs(ModSet.of(Mods.Hidden));
+        assertThat(hdhr.containsAll(ModSet.of(Mods.HardRock))).isTrue();
+        assertThat(hdhr.containsAll(hddt)).isFalse();
+        assertThat(hdhr.containsAny(hddt)).isTrue();
+        assertThat(hdhr.with(Mods.DoubleTime).without(Mods.HardRock)).isSameAs(hddt);
+        assertThat(hdhr.size()).isEqualTo(2);
+        assertThat(ModSet.NONE.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testIterationOrder() {
+        ModSet mods = ModSet.of(Mods.Key4, Mods.Hidden, Mods.NoFail);
+
+        List<Mods> iterated = new ArrayList<>();
+        mods.iterator().forEachRemaining(iterated::add);
+        assertThat(iterated).containsExactly(Mods.NoFail, Mods.Hidden, Mods.Key4);
+
+        List<Mods> forEach = new ArrayList<>();
+        mods.forEach(forEach::add);
+        assertThat(forEach).isEqualTo(iterated);
+    }
+
+    @Test
+    public void testUnknownBits() {
+        long unknown = 1L << 40;
+        ModSet mods = ModSet.of(unknown | Mods.Hidden.bit);
+
+        assertThat(mods.getMask()).isEqualTo(unknown | Mods.Hidden.bit);
+        assertThat(mods).containsExactly(Mods.Hidden);
+        assertThat(mods.size()).isEqualTo(1);
+        assertThat(ModSet.of(unknown).isEmpty()).isTrue();
+        assertThat(ModSet.of(Mods.Hidden).containsAll(mods)).isTrue();
+        assertThat(mods.containsAll(ModSet.of(unknown))).isTrue();
+        assertThat(ModSet.of(Mods.Hidden).containsAny(ModSet.of(unknown))).isFalse();
+    }
+
+    @Test
+    public void testEffective() {
+        ModSet mods = ModSet.of(Mods.Hidden, Mods.SuddenDeath, Mods.Perfect, Mods.DoubleTime);
+        assertThat(mods.effective()).isSameAs(ModSet.of(Mods.Hidden, Mods.DoubleTime));
+        assertThat(ModSet.of(Mods.values()).effective()).containsExactlyElementsOf(Mods.getEffectiveMods());
+    }
+
+    @Test
+    public void testShortNames() {
+        ModSet mods = ModSet.of(Mods.HardRock, Mods.Hidden, Mods.TouchDevice);
+        assertThat(mods.getShortNames()).isEqualTo("HDHR");
+        assertThat(mods.getShortNamesCommaSeparated()).isEqualTo("HD,HR").isSameAs(mods.toString());
+        assertThat(ModSet.NONE.getShortNames()).isEmpty();
+        assertThat(ModSet.NONE.getShortNamesCommaSeparated()).isEqualTo("None");
+    }
+
+    @Test
+    public void testFromShortNamesCommaSeparated() {
+        assertThat(ModSet.fromShortNamesCommaSeparated("HD,HR")).isSameAs(ModSet.of(Mods.Hidden, Mods.HardRock));
+        assertThat(ModSet.fromShortNamesCommaSeparated("None")).isSameAs(ModSet.NONE);
+        assertThat(ModSet.fromShortNamesCommaSeparated("")).isSameAs(ModSet.NONE);
+        assertThat(ModSet.fromShortNamesCommaSeparated(",DT,")).isSameAs(ModSet.of(Mods.DoubleTime));
+        assertThatThrownBy(() -> ModSet.fromShortNamesCommaSeparated("HD,XX"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("XX");
+
+        for (long mask = 0; mask < Mods.Key4.bit; mask++) {
+            if ((mask & Mods.TouchDevice.bit) == 0) {
+                ModSet mods = ModSet.of(mask);
+                assertThat(ModSet.fromShortNamesCommaSeparated(mods.getShortNamesCommaSeparated()))
+                        .isSameAs(mods);
+            }
+        }
+    }
+
+    @Test
+    public void testListMethods() {
+        long mask = Mods.getMask(Mods.Flashlight, Mods.Hidden);
+        assertThat(Mods.getMods(mask)).containsExactly(Mods.Hidden, Mods.Flashlight);
+        assertThat(Mods.fromShortNamesCommaSeparated("FL,HD,FL"))
+                .containsExactly(Mods.Flashlight, Mods.Hidden, Mods.Flashlight);
+        assertThat(Mods.fromShortNamesCommaSeparated("None")).isEmpty();
+        assertThat(Mods.fromShortNamesCommaSeparated(",DT,")).containsExactly(Mods.DoubleTime);
+        assertThatThrownBy(() -> Mods.fromShortNamesCommaSeparated("HD,XX"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -10,4 +10,63 @@ public class ModsTest {
         assertEquals(Mods.DoubleTime.bit, Mods.fixNC(Mods.Nightcore.bit));
         assertEquals(Mods.DoubleTime.bit | Mods.Hidden.bit, Mods.fixNC(Mods.Nightcore.bit | Mods.Hidden.bit));
     }
+
+    @Test
+    public void testCanonicalize() {
+        long hdhr = Mods.getMask(Mods.Hidden, Mods.HardRock);
+        assertEquals(Mods.HardRock.bit, Mods.canonicalize(hdhr, GameModes.OSU));
+        assertEquals(
+                Mods.HardRock.bit,
+                Mods.canonicalize(
+                        Mods.getMask(Mods.HardRock, Mods.NoFail, Mods.SuddenDeath, Mods.Perfect, Mods.SpunOut),
+                        GameModes.OSU));
+        assertEquals(Mods.DoubleTime.bit, Mods.canonicalize(Mods.getMask(Mods.Nightcore), GameModes.TAIKO));
+
+        // hidden only matters for the flashlight rating
+        long hdfl = Mods.getMask(Mods.Hidden, Mods.Flashlight);
+        assertEquals(hdfl, Mods.canonicalize(hdfl, GameModes.OSU));
+        assertEquals(0, Mods.canonicalize(hdfl, GameModes.CTB));
+
+        assertEquals(Mods.Key4.bit, Mods.canonicalize(Mods.getMask(Mods.Key4), GameModes.MANIA));
+        assertEquals(0, Mods.canonicalize(Mods.getMask(Mods.Key4), GameModes.OSU));
+        assertEquals(0, Mods.canonicalize(Mods.getMask(Mods.TouchDevice), GameModes.TAIKO));
+    }
+
+    @Test
+    public void testCanonicalizeWithoutMode() {
+        assertEquals(Mods.HardRock.bit, Mods.canonicalize(Mods.getMask(Mods.Hidden, Mods.HardRock)));
+        long keysAndTouch = Mods.getMask(Mods.Key7, Mods.TouchDevice);
+        assertEquals(keysAndTouch, Mods.canonicalize(keysAndTouch | Mods.NoFail.bit));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCanonicalizeInvalidMode() {
+        Mods.canonicalize(0, 4);
+    }
+
+    @Test
+    public void testFromShortName() {
+        for (Mods mod : Mods.values()) {
+            if (mod.getShortName() != null) {
+                assertEquals(mod, Mods.fromShortName(mod.getShortName()));
+            }
+        }
+        assertNull(Mods.fromShortName("hd"));
+        assertNull(Mods.fromShortName("XX"));
+        assertNull(Mods.fromShortName("HDR"));
+        assertNull(Mods.fromShortName(""));
+    }
+
+    @Test
+    public void testFromShortNamesContinuous() {
+        assertEquals(Long.valueOf(0), Mods.fromShortNamesContinuous(""));
+        assertEquals(
+                Long.valueOf(Mods.getMask(Mods.Hidden, Mods.HardRock, Mods.DoubleTime)),
+                Mods.fromShortNamesContinuous("hdHrNC"));
+        // not effective
+        assertEquals(Long.valueOf(Mods.Hidden.bit), Mods.fromShortNamesContinuous("HDSDPF"));
+        assertNull(Mods.fromShortNamesContinuous("HDH"));
+        assertNull(Mods.fromShortNamesContinuous("HDXX"));
+        assertNull(Mods.fromShortNamesContinuous("HD R"));
+    }
 }
@@ -0,0 +1,40 @@
+package org.tillerino.osuApiModel.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class BloomFilterTest {
+    BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+    @Test
+    public void addedValuesAreContained() {
+        for (long i = 0; i < 10_000; i++) {
+            filter.put(i * 7);
+        }
+        for (long i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(i * 7)).isTrue();
+        }
+    }
+
+    @Test
+    public void falsePositiveRateIsRespected() {
+        for (long i = 0; i < 10_000; i++) {
+            filter.put(i);
+        }
+        int falsePositives = 0;
+        for (long i = 10_000; i < 110_000; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    public void clear() {
+        filter.put(5);
+        filter.clear();
+        assertThat(filter.mightContain(5)).isFalse();
+    }
+}
@@ -0,0 +1,401 @@
+package org.tillerino.osuApiModel.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.tillerino.osuApiModel.GameModes;
+import org.tillerino.osuApiModel.Mods;
+import org.tillerino.osuApiModel.OsuApiBeatmap;
+import org.tillerino.osuApiModel.OsuApiClient;
+import org.tillerino.osuApiModel.OsuApiLeaderboardClient;
+import org.tillerino.osuApiModel.OsuApiScore;
+import org.tillerino.osuApiModel.OsuApiUser;
+
+public class CachingOsuApiClientTest {
+    /**
+     * Beatmap ids below 100 are ranked, others are pending.
+     */
+    static class CountingClient implements OsuApiLeaderboardClient {
+        final AtomicInteger beatmapRequests = new AtomicInteger();
+
+        final AtomicInteger userRequests = new AtomicInteger();
+
+        final AtomicInteger recentRequests = new AtomicInteger();
+
+        final AtomicInteger beatmapTopRequests = new AtomicInteger();
+
+        @Override
+        public <T extends OsuApiBeatmap> T getBeatmap(int beatmapId, long mods, Class<T> cls) throws IOException {
+            beatmapRequests.incrementAndGet();
+            if (beatmapId == 0) {
+                return null;
+            }
+            try {
+                T beatmap = cls.getConstructor().newInstance();
+                beatmap.setBeatmapId(beatmapId);
+                beatmap.setApproved(beatmapId < 100 ? OsuApiBeatmap.RANKED : OsuApiBeatmap.PENDING);
+                return beatmap;
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public <T extends OsuApiScore> List<T> getUserTop(int userId, int mode, int limit, Class<T> cls) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public <T extends OsuApiScore> List<T> getBeatmapTop(int beatmapId, int mode, Class<T> cls) {
+            beatmapTopRequests.incrementAndGet();
+            return new ArrayList<>();
+        }
+
+        @Override
+        public <T extends OsuApiUser> T getUser(int userId, int mode, Class<T> cls) {
+            userRequests.incrementAndGet();
+            try {
+                T user = cls.getConstructor().newInstance();
+                user.setUserId(userId);
+                user.setUserName("user" + userId);
+                return user;
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * The id is the length of the name.
+         */
+        @Override
+        public <T extends OsuApiUser> T getUser(String username, int mode, Class<T> cls) {
+            T user = getUser(username.length(), mode, cls);
+            user.setUserName(username);
+            return user;
+        }
+
+        @Override
+        public <T extends OsuApiScore> List<T> getUserRecent(int userid, int mode, Class<T> cls) {
+            recentRequests.incrementAndGet();
+            return new ArrayList<>();
+        }
+    }
+
+    CountingClient delegate = new CountingClient();
+
+    CachingOsuApiClient client = CachingOsuApiClient.builder()
+            .delegate(delegate)
+            .stableBeatmapTtl(Duration.ofDays(1))
+            .beatmapTtl(Duration.ZERO)
+            .userRecentTtl(Duration.ZERO)
+            .build();
+
+    @Test
+    public void rankedBeatmapsAreCachedLonger() throws Exception {
+        client.getBeatmap(1, 0, OsuApiBeatmap.class);
+        client.getBeatmap(1, 0, OsuApiBeatmap.class);
+        assertThat(delegate.beatmapRequests).hasValue(1);
+
+        client.getBeatmap(100, 0, OsuApiBeatmap.class);
+        client.getBeatmap(100, 0, OsuApiBeatmap.class);
+        assertThat(delegate.beatmapRequests).hasValue(3);
+    }
+
+    @Test
+    public void equivalentModsShareEntries() throws Exception {
+        client.getBeatmap(1, Mods.getMask(Mods.Hidden, Mods.HardRock), OsuApiBeatmap.class);
+        client.getBeatmap(1, Mods.getMask(Mods.HardRock), OsuApiBeatmap.class);
+        client.getBeatmap(1, Mods.getMask(Mods.DoubleTime), OsuApiBeatmap.class);
+        assertThat(delegate.beatmapRequests).hasValue(2);
+    }
+
+    @Test
+    public void nullIsNotCached() throws Exception {
+        assertThat(client.getBeatmap(0, 0, OsuApiBeatmap.class)).isNull();
+        assertThat(client.getBeatmap(0, 0, OsuApiBeatmap.class)).isNull();
+        assertThat(delegate.beatmapRequests).hasValue(2);
+    }
+
+    @Test
+    public void missingResultsAreRemembered() throws Exception {
+        CachingOsuApiClient client = CachingOsuApiClient.builder()
+                .delegate(delegate)
+                .missingTtl(Duration.ofMinutes(1))
+                .missingBeatmapFilter(new BloomFilter(100, 0.01))
+                .build();
+
+        assertThat(client.getBeatmap(0, 0, OsuApiBeatmap.class)).isNull();
+        assertThat(client.getBeatmap(0, 0, OsuApiBeatmap.class)).isNull();
+        assertThat(client.getBeatmaps(new int[] {0, 1}, 0, OsuApiBeatmap.class)).containsOnlyKeys(1);
+        assertThat(delegate.beatmapRequests).hasValue(2);
+        assertThat(client.getMissing().getHits()).isEqualTo(2);
+    }
+
+    @Test
+    public void foundResultsAreNoLongerMissing() throws Exception {
+        AtomicBoolean restricted = new AtomicBoolean(true);
+        CountingClient delegate = new CountingClient() {
+            @Override
+            public <T extends OsuApiUser> T getUser(int userId, int mode, Class<T> cls) {
+                return restricted.get() ? null : super.getUser(userId, mode, cls);
+            }
+        };
+        CachingOsuApiClient client = CachingOsuApiClient.builder()
+                .delegate(delegate)
+                .missingTtl(Duration.ofMinutes(1))
+                .build();
+
+        assertThat(client.getUser(4, GameModes.OSU, OsuApiUser.class)).isNull();
+        restricted.set(false);
+        assertThat(client.getUser("abcd", GameModes.OSU, OsuApiUser.class)).isNotNull();
+
+        OsuApiUser user = client.getUser(4, GameModes.OSU, OsuApiUser.class);
+        assertThat(user).isNotNull();
+        assertThat(user.getUserName()).isEqualTo("abcd");
+    }
+
+    @Test
+    public void bulkOnlyRequestsMissing() throws Exception {
+        client.getBeatmap(2, 0, OsuApiBeatmap.class);
+
+        Map<Integer, OsuApiBeatmap> beatmaps = client.getBeatmaps(new int[] {1, 2, 0, 3}, 0, OsuApiBeatmap.class);
+
+        assertThat(beatmaps.keySet()).containsExactly(1, 2, 3);
+        // 2 once, then 1, 0 and 3 via the default bulk implementation
+        assertThat(delegate.beatmapRequests).hasValue(4);
+        client.getBeatmap(3, 0, OsuApiBeatmap.class);
+        assertThat(delegate.beatmapRequests).hasValue(4);
+    }
+
+    @Test
+    public void rankedBeatmapsAreStored() throws Exception {
+        Map<Object, OsuApiBeatmap> stored = new HashMap<>();
+        BeatmapStore store = new BeatmapStore() {
+            @Override
+            public <T extends OsuApiBeatmap> Stored<T> getStored(
+                    int beatmapId, long mods, Class<T> cls, Duration maxAge) {
+                OsuApiBeatmap beatmap = stored.get(List.of(beatmapId, mods));
+                return beatmap != null ? new Stored<>(cls.cast(beatmap), Duration.ZERO) : null;
+            }
+
+            @Override
+            public void put(OsuApiBeatmap beatmap, long mods) {
+                stored.put(List.of(beatmap.getBeatmapId(), mods), beatmap);
+            }
+        };
+        CachingOsuApiClient first = CachingOsuApiClient.builder()
+                .delegate(delegate)
+                .beatmapStore(store)
+                .build();
+        first.getBeatmap(1, Mods.getMask(Mods.Hidden, Mods.HardRock), OsuApiBeatmap.class);
+        first.getBeatmap(100, 0, OsuApiBeatmap.class);
+        assertThat(stored.keySet()).containsExactly(List.of(1, Mods.getMask(Mods.HardRock)));
+
+        // e.g. after a restart
+        CachingOsuApiClient second = CachingOsuApiClient.builder()
+                .delegate(delegate)
+                .beatmapStore(store)
+                .build();
+        assertThat(second.getBeatmaps(new int[] {1}, Mods.getMask(Mods.HardRock), OsuApiBeatmap.class))
+                .containsOnlyKeys(1);
+        assertThat(delegate.beatmapRequests).hasValue(2);
+    }
+
+    @Test
+    public void storedBeatmapsKeepTheirAge() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+        BeatmapStore store = new BeatmapStore() {
+            @Override
+            public <T extends OsuApiBeatmap> Stored<T> getStored(
+                    int beatmapId, long mods, Class<T> cls, Duration maxAge) throws IOException {
+                reads.incrementAndGet();
+                T beatmap = delegate.getBeatmap(beatmapId, mods, cls);
+                // beatmap 1 was stored just now, beatmap 2 as long ago as the TTL
+                return new Stored<>(beatmap, beatmapId == 1 ? Duration.ZERO : maxAge);
+            }
+
+            @Override
+            public void put(OsuApiBeatmap beatmap, long mods) {}
+        };
+        CachingOsuApiClient client = CachingOsuApiClient.builder()
+                .delegate(delegate)
+                .beatmapStore(store)
+                .build();
+
+        client.getBeatmap(1, 0, OsuApiBeatmap.class);
+        client.getBeatmap(1, 0, OsuApiBeatmap.class);
+        assertThat(reads).hasValue(1);
+
+        client.getBeatmap(2, 0, OsuApiBeatmap.class);
+        client.getBeatmap(2, 0, OsuApiBeatmap.class);
+        assertThat(reads).hasValue(3);
+    }
+
+    @Test
+    public void leaderboardsAreCached() throws Exception {
+        CachingOsuApiLeaderboardClient client = new CachingOsuApiLeaderboardClient(delegate);
+
+        client.getBeatmapTop(1, GameModes.OSU, OsuApiScore.class);
+        client.getBeatmapTop(1, GameModes.OSU, OsuApiScore.class);
+        assertThat(delegate.beatmapTopRequests).hasValue(1);
+
+        client.getBeatmapTop(1, GameModes.TAIKO, OsuApiScore.class);
+        assertThat(delegate.beatmapTopRequests).hasValue(2);
+    }
+
+    @Test
+    public void storeFailuresAreNotPassedOn() throws Exception {
+        BeatmapStore store = new BeatmapStore() {
+            @Override
+            public <T extends OsuApiBeatmap> Stored<T> getStored(
+                    int beatmapId, long mods, Class<T> cls, Duration maxAge) throws IOException {
+                throw new IOException("unreadable");
+            }
+
+            @Override
+            public void put(OsuApiBeatmap beatmap, long mods) {
+                throw new IllegalStateException("store is closed");
+            }
+        };
+        CachingOsuApiClient client = CachingOsuApiClient.builder()
+                .delegate(delegate)
+                .beatmapStore(store)
+                .build();
+
+        assertThat(client.getBeatmap(1, 0, OsuApiBeatmap.class)).isNotNull();
+        assertThat(client.getBeatmaps(new int[] {2}, 0, OsuApiBeatmap.class)).containsOnlyKeys(2);
+        assertThat(delegate.beatmapRequests).hasValue(2);
+    }
+
+    @Test
+    public void usersAreCachedByIdAndName() throws Exception {
+        client.getUser("Tillerino", GameModes.OSU, OsuApiUser.class);
+        client.getUser("tillerino", GameModes.OSU, OsuApiUser.class);
+        client.getUser(9, GameModes.OSU, OsuApiUser.class);
+        assertThat(delegate.userRequests).hasValue(1);
+
+        client.getUser(9, GameModes.TAIKO, OsuApiUser.class);
+        assertThat(delegate.userRequests).hasValue(2);
+    }
+
+    @Test
+    public void staleEntriesAreServedWhileRefreshing() throws Exception {
+        List<Runnable> refreshes = new ArrayList<>();
+        CachingOsuApiLeaderboardClient client = CachingOsuApiLeaderboardClient.leaderboardBuilder()
+                .delegate(delegate)
+                .userRefreshAfter(Duration.ZERO)
+                .beatmapTopRefreshAfter(Duration.ZERO)
+                .refreshExecutor(refreshes::add)
+                .build();
+
+        OsuApiUser user = client.getUser(1, GameModes.OSU, OsuApiUser.class);
+        client.getBeatmapTop(1, GameModes.OSU, OsuApiScore.class);
+        assertThat(delegate.userRequests).hasValue(1);
+        assertThat(delegate.beatmapTopRequests).hasValue(1);
+        assertThat(refreshes).isEmpty();
+
+        // stale, so served from the cache and refreshed once
+        assertThat(client.getUser(1, GameModes.OSU, OsuApiUser.class)).isEqualTo(user);
+        assertThat(client.getUser(1, GameModes.OSU, OsuApiUser.class)).isEqualTo(user);
+        client.getBeatmapTop(1, GameModes.OSU, OsuApiScore.class);
+        assertThat(delegate.userRequests).hasValue(1);
+        assertThat(refreshes).hasSize(2);
+
+        refreshes.forEach(Runnable::run);
+        assertThat(delegate.userRequests).hasValue(2);
+        assertThat(delegate.beatmapTopRequests).hasValue(2);
+        assertThat(client.getUser(1, GameModes.OSU, OsuApiUser.class)).isEqualTo(user);
+        assertThat(refreshes).hasSize(3);
+    }
+
+    @Test
+    public void userNamesAreResolvedFromAnyUser() throws Exception {
+        client.getUsers(new int[] {5}, GameModes.OSU, OsuApiUser.class);
+        assertThat(client.getUser("USER5", GameModes.OSU, OsuApiUser.class).getUserId())
+                .isEqualTo(5);
+        assertThat(delegate.userRequests).hasValue(1);
+    }
+
+    @Test
+    public void renamedUsersAreRequestedByName() throws Exception {
+        client.getUser(5, GameModes.OSU, OsuApiUser.class);
+        client.getCache().clear();
+        // user 5 is now called "other", so "user5" may belong to someone else
+        client.getUser("other", GameModes.OSU, OsuApiUser.class);
+        assertThat(client.getUserNameIndex().getRenames()).isEqualTo(1);
+
+        assertThat(client.getUser("user5", GameModes.OSU, OsuApiUser.class).getUserName())
+                .isEqualTo("user5");
+        assertThat(delegate.userRequests).hasValue(3);
+    }
+
+    @Test
+    public void hitsReturnCopies() throws Exception {
+        OsuApiBeatmap beatmap = client.getBeatmap(1, 0, OsuApiBeatmap.class);
+        beatmap.setTitle("modified by the caller");
+        OsuApiBeatmap hit = client.getBeatmap(1, 0, OsuApiBeatmap.class);
+        assertThat(hit.getTitle()).isNull();
+        assertThat(hit).isNotSameAs(client.getBeatmap(1, 0, OsuApiBeatmap.class));
+
+        OsuApiUser user = client.getUser(1, GameModes.OSU, OsuApiUser.class);
+        user.setUserName("modified by the caller");
+        assertThat(client.getUser(1, GameModes.OSU, OsuApiUser.class).getUserName())
+                .isEqualTo("user1");
+        assertThat(delegate.beatmapRequests).hasValue(1);
+        assertThat(delegate.userRequests).hasValue(1);
+    }
+
+    @Test
+    public void cachedResultsAreComplete() throws Exception {
+        OsuApiBeatmap beatmap = new OsuApiBeatmap();
+        beatmap.setBeatmapId(75);
+        beatmap.setApproved(OsuApiBeatmap.RANKED);
+        beatmap.setArtist("Kenji Ninuma");
+        beatmap.setApprovedDate(1191692400000L);
+        beatmap.setStarDifficulty(2.4);
+        OsuApiScore score = new OsuApiScore();
+        score.setBeatmapId(75);
+        score.setMods(Mods.getMask(Mods.Hidden));
+        score.setDate(1462697264000L);
+        score.setPp(12.5);
+        OsuApiClient delegate = new CountingClient() {
+            @Override
+            public <T extends OsuApiBeatmap> T getBeatmap(int beatmapId, long mods, Class<T> cls) {
+                return cls.cast(beatmap);
+            }
+
+            @Override
+            public <T extends OsuApiScore> List<T> getUserTop(int userId, int mode, int limit, Class<T> cls) {
+                return List.of(cls.cast(score));
+            }
+        };
+        CachingOsuApiClient client = new CachingOsuApiClient(delegate);
+
+        client.getBeatmap(75, 0, OsuApiBeatmap.class);
+        assertThat(client.getBeatmap(75, 0, OsuApiBeatmap.class)).isEqualTo(beatmap);
+        client.getUserTop(1, GameModes.OSU, 10, OsuApiScore.class);
+        assertThat(client.getUserTop(1, GameModes.OSU, 10, OsuApiScore.class)).containsExactly(score);
+
+        // the delegate's objects are not cached themselves
+        score.setPp(1.0);
+        assertThat(client.getUserTop(1, GameModes.OSU, 10, OsuApiScore.class)
+                        .get(0)
+                        .getPp())
+                .isEqualTo(12.5);
+    }
+
+    @Test
+    public void recentScoresUseTheirOwnTtl() throws Exception {
+        client.getUserRecent(1, GameModes.OSU, OsuApiScore.class);
+        client.getUserRecent(1, GameModes.OSU, OsuApiScore.class);
+        assertThat(delegate.recentRequests).hasValue(2);
+    }
+}
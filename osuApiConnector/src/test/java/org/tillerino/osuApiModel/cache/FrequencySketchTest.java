@@ -0,0 +1,40 @@
+package org.tillerino.osuApiModel.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class FrequencySketchTest {
+    FrequencySketch sketch = new FrequencySketch(1_000);
+
+    @Test
+    public void keysAreCounted() {
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("a");
+        }
+        sketch.increment("b");
+        assertThat(sketch.frequency("a")).isEqualTo(5);
+        assertThat(sketch.frequency("b")).isEqualTo(1);
+        assertThat(sketch.frequency("c")).isZero();
+    }
+
+    @Test
+    public void countersSaturate() {
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("a");
+        }
+        assertThat(sketch.frequency("a")).isEqualTo(15);
+    }
+
+    @Test
+    public void oldFrequenciesAreHalved() {
+        // a single counter per row, which is halved after ten increments
+        FrequencySketch sketch = new FrequencySketch(1);
+        for (int i = 0; i < 9; i++) {
+            sketch.increment("a");
+        }
+        assertThat(sketch.frequency("a")).isEqualTo(9);
+        sketch.increment("b");
+        assertThat(sketch.frequency("a")).isEqualTo(5);
+    }
+}
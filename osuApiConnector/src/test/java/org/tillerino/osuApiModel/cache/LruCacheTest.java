@@ -0,0 +1,79 @@
+package org.tillerino.osuApiModel.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class LruCacheTest {
+    long now = 0;
+
+    LruCache<String, String> cache = new LruCache<>(2, false, () -> now);
+
+    @Test
+    public void entriesExpire() {
+        cache.put("a", "1", Duration.ofSeconds(10));
+        now += TimeUnit.SECONDS.toNanos(9);
+        assertThat(cache.get("a")).isEqualTo("1");
+        now += TimeUnit.SECONDS.toNanos(1);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        cache.put("a", "1", Duration.ofSeconds(10));
+        cache.put("b", "2", Duration.ofSeconds(10));
+        cache.get("a");
+        cache.put("c", "3", Duration.ofSeconds(10));
+
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("3");
+        assertThat(cache.getEvictions()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(3);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void rareKeysDoNotPushOutFrequentOnes() {
+        LruCache<String, String> cache = new LruCache<>(2, true, () -> now);
+        cache.put("a", "1", Duration.ofSeconds(10));
+        cache.put("b", "2", Duration.ofSeconds(10));
+        for (int i = 0; i < 3; i++) {
+            cache.get("a");
+        }
+        cache.get("b");
+
+        // "a" is the least recently used entry, but was looked up more often than "c"
+        assertThat(cache.get("c")).isNull();
+        cache.put("c", "3", Duration.ofSeconds(10));
+        assertThat(cache.get("c")).isNull();
+        assertThat(cache.get("a")).isEqualTo("1");
+        assertThat(cache.getRejections()).isEqualTo(1);
+
+        // "b" is the least recently used entry now and was looked up less often than "c"
+        cache.put("c", "3", Duration.ofSeconds(10));
+        assertThat(cache.get("c")).isEqualTo("3");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void zeroTtlIsNotCached() {
+        cache.put("a", "1", Duration.ofSeconds(10));
+        cache.put("a", "2", Duration.ZERO);
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    public void entriesBecomeStale() {
+        cache.put("a", "1", Duration.ofSeconds(5), Duration.ofSeconds(10));
+        assertThat(cache.lookup("a")).isEqualTo(new LruCache.Lookup<>("1", false));
+        now += TimeUnit.SECONDS.toNanos(5);
+        assertThat(cache.lookup("a")).isEqualTo(new LruCache.Lookup<>("1", true));
+        now += TimeUnit.SECONDS.toNanos(5);
+        assertThat(cache.lookup("a")).isNull();
+    }
+}
@@ -0,0 +1,122 @@
+package org.tillerino.osuApiModel.cache;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.tillerino.osuApiModel.Mods;
+import org.tillerino.osuApiModel.OsuApiBeatmap;
+
+public class MappedBeatmapStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Clock clock = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    Path directory;
+
+    MappedBeatmapStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.getRoot().toPath();
+        store = MappedBeatmapStore.open(directory, 4096, clock);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.close();
+    }
+
+    static OsuApiBeatmap beatmap(int beatmapId, double starDifficulty) {
+        OsuApiBeatmap beatmap = new OsuApiBeatmap();
+        beatmap.setBeatmapId(beatmapId);
+        beatmap.setApproved(OsuApiBeatmap.RANKED);
+        beatmap.setTitle("title " + beatmapId);
+        beatmap.setStarDifficulty(starDifficulty);
+        return beatmap;
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        OsuApiBeatmap beatmap = beatmap(75, 5.5);
+        store.put(beatmap, 0);
+
+        assertThat(store.get(75, 0, OsuApiBeatmap.class, Duration.ofDays(1))).isEqualTo(beatmap);
+        assertThat(store.get(76, 0, OsuApiBeatmap.class, Duration.ofDays(1))).isNull();
+        assertThat(store.get(75, Mods.getMask(Mods.HardRock), OsuApiBeatmap.class, Duration.ofDays(1)))
+                .isNull();
+    }
+
+    @Test
+    public void modsAreStoredSeparatelyAndReplaced() throws Exception {
+        long hr = Mods.getMask(Mods.HardRock);
+        store.put(beatmap(75, 5.5), 0);
+        store.put(beatmap(75, 6.0), hr);
+        store.put(beatmap(75, 5.6), 0);
+
+        assertThat(store.get(75, 0, OsuApiBeatmap.class, Duration.ofDays(1)).getStarDifficulty())
+                .isEqualTo(5.6);
+        assertThat(store.get(75, hr, OsuApiBeatmap.class, Duration.ofDays(1)).getStarDifficulty())
+                .isEqualTo(6.0);
+    }
+
+    @Test
+    public void oldRecordsAreIgnored() throws Exception {
+        store.put(beatmap(75, 5.5), 0);
+        store.close();
+        store = MappedBeatmapStore.open(directory, 4096, Clock.offset(clock, Duration.ofHours(2)));
+
+        assertThat(store.get(75, 0, OsuApiBeatmap.class, Duration.ofHours(3))).isNotNull();
+        assertThat(store.get(75, 0, OsuApiBeatmap.class, Duration.ofHours(1))).isNull();
+    }
+
+    @Test
+    public void survivesReopening() throws Exception {
+        for (int i = 1; i <= 100; i++) {
+            store.put(beatmap(i * 1000, i), 0);
+        }
+        store.close();
+        store = MappedBeatmapStore.open(directory, 4096, clock);
+
+        for (int i = 1; i <= 100; i++) {
+            assertThat(store.get(i * 1000, 0, OsuApiBeatmap.class, Duration.ofDays(1)))
+                    .isEqualTo(beatmap(i * 1000, i));
+        }
+    }
+
+    @Test
+    public void tornRecordsAreMissing() throws Exception {
+        store.put(beatmap(75, 5.5), 0);
+        store.close();
+        try (FileChannel data = FileChannel.open(directory.resolve(MappedBeatmapStore.DATA_FILE), READ, WRITE)) {
+            // a byte of the JSON, which starts after the data header and the record header
+            data.write(ByteBuffer.wrap(new byte[] {'x'}), 16 + 36 + 5);
+        }
+        store = MappedBeatmapStore.open(directory, 4096, clock);
+
+        assertThat(store.get(75, 0, OsuApiBeatmap.class, Duration.ofDays(1))).isNull();
+        store.put(beatmap(75, 5.6), 0);
+        assertThat(store.get(75, 0, OsuApiBeatmap.class, Duration.ofDays(1))).isEqualTo(beatmap(75, 5.6));
+    }
+
+    @Test
+    public void closedStoreThrows() throws Exception {
+        store.close();
+        assertThatThrownBy(() -> store.get(75, 0, OsuApiBeatmap.class, Duration.ofDays(1)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,39 @@
+package org.tillerino.osuApiModel.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.Test;
+
+public class UserNameIndexTest {
+    UserNameIndex index = new UserNameIndex(100, Duration.ofDays(1));
+
+    @Test
+    public void namesAreCaseInsensitive() {
+        index.put(2070907, "Tillerino");
+        assertThat(index.getUserId("tillerino")).isEqualTo(2070907);
+        assertThat(index.getUserId("TILLERINO")).isEqualTo(2070907);
+        assertThat(index.getUserId("someone")).isNull();
+    }
+
+    @Test
+    public void renamesDropTheOldName() {
+        index.put(1, "old");
+        index.put(1, "new");
+        assertThat(index.getUserId("old")).isNull();
+        assertThat(index.getUserId("new")).isEqualTo(1);
+        assertThat(index.getRenames()).isEqualTo(1);
+    }
+
+    @Test
+    public void namesCanMoveToAnotherUser() {
+        index.put(1, "name");
+        index.put(2, "name");
+        assertThat(index.getUserId("name")).isEqualTo(2);
+
+        // user 1 is not renamed from "name" when seen again
+        index.put(1, "other");
+        assertThat(index.getUserId("name")).isEqualTo(2);
+        assertThat(index.getRenames()).isZero();
+    }
+}
@@ -5,6 +5,11 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
 import lombok.Data;
 import org.junit.Test;
 
@@ -44,4 +49,67 @@ public class DateToLongTest {
                 // nice Jackson error containing the path
                 .hasMessageContaining("ClassWithLongDateField[\"dateField\"]");
     }
+
+    @Test
+    public void fastPathMatchesFormatter() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            Instant instant = Instant.ofEpochSecond(random.nextLong(-5_000_000_000L, 10_000_000_000L));
+            String v1 = DateToLong.dateTimeFormatter.format(instant);
+            assertThat(DateToLong.parse(v1)).as(v1).isEqualTo(instant.toEpochMilli());
+            assertThat(DateToLong.parse(instant.toString()))
+                    .as(instant.toString())
+                    .isEqualTo(instant.toEpochMilli());
+        }
+    }
+
+    @Test
+    public void isoDates() throws Exception {
+        ClassWithLongDateField readValue =
+                jackson.readValue("{ \"dateField\": \"1970-01-01T00:00:01Z\" }", ClassWithLongDateField.class);
+
+        assertThat(readValue).hasFieldOrPropertyWithValue("dateField", 1000L);
+        assertThat(DateToLong.parse("2016-05-08T10:47:44+02:00")).isEqualTo(DateToLong.parse("2016-05-08 08:47:44"));
+    }
+
+    @Test
+    public void parsesFromBuffer() throws Exception {
+        char[] buffer = "xx2016-05-08 08:47:44yy".toCharArray();
+
+        assertThat(DateToLong.parse(buffer, 2, 19))
+                .isEqualTo(Instant.parse("2016-05-08T08:47:44Z").toEpochMilli());
+    }
+
+    @Test
+    public void unusualDatesAreLeftToTheFormatter() throws Exception {
+        // the formatter resolves days which do not exist to the end of the month
+        assertThat(DateToLong.parse("2015-02-29 12:00:00"))
+                .isEqualTo(ZonedDateTime.parse("2015-02-29 12:00:00", DateToLong.dateTimeFormatter)
+                        .toInstant()
+                        .toEpochMilli())
+                .isEqualTo(DateToLong.parse("2015-02-28 12:00:00"));
+        assertThatThrownBy(() -> DateToLong.parse("2015-02-28 12:00:0x")).isInstanceOf(DateTimeParseException.class);
+        assertThatThrownBy(() -> DateToLong.parse("2015-02-28 12:00:00Z")).isInstanceOf(DateTimeParseException.class);
+        assertThatThrownBy(() -> DateToLong.parse("")).isInstanceOf(DateTimeParseException.class);
+    }
+
+    @Test
+    public void isoOffsetsAndFractionsMatchInstant() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 10_000; i++) {
+            Instant instant = Instant.ofEpochSecond(
+                    random.nextLong(-5_000_000_000L, 10_000_000_000L), random.nextInt(1_000_000_000));
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds(random.nextInt(-18 * 60, 18 * 60 + 1) * 60);
+            String iso = instant.atOffset(offset).toString();
+            assertThat(DateToLong.parse(iso))
+                    .as(iso)
+                    .isEqualTo(Instant.parse(iso).toEpochMilli());
+        }
+        assertThat(DateToLong.parse("2008-09-17T15:29:28+00:00"))
+                .isEqualTo(Instant.parse("2008-09-17T15:29:28Z").toEpochMilli());
+        assertThat(DateToLong.parse("1969-12-31T23:59:59.9999Z")).isEqualTo(-1);
+        assertThatThrownBy(() -> DateToLong.parse("2008-09-17T15:29:28+25:00"))
+                .isInstanceOf(DateTimeParseException.class);
+        assertThatThrownBy(() -> DateToLong.parse("2008-09-17T15:29:28")).isInstanceOf(DateTimeParseException.class);
+    }
 }
@@ -0,0 +1,76 @@
+package org.tillerino.osuApiModel.deserializer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import lombok.Data;
+import org.junit.Test;
+
+public class JsonStreamsTest {
+    @Data
+    static class Element {
+        private int id;
+        private int mode;
+    }
+
+    ObjectMapper jackson = new ObjectMapper();
+
+    @Test
+    public void readListPatchesElements() throws Exception {
+        List<Element> elements = JsonStreams.read(
+                jackson,
+                stream("[{\"id\":1},{\"id\":2}]"),
+                parser -> JsonStreams.readList(jackson, parser, Element.class, e -> e.setMode(3)));
+
+        assertThat(elements).extracting(Element::getId, Element::getMode).containsExactly(tuple(1, 3), tuple(2, 3));
+    }
+
+    @Test
+    public void readListOfNull() throws Exception {
+        List<Element> elements = JsonStreams.read(
+                jackson, stream("null"), parser -> JsonStreams.readList(jackson, parser, Element.class, null));
+
+        assertThat(elements).isEmpty();
+    }
+
+    @Test
+    public void readFirst() throws Exception {
+        assertThat(readFirst("[{\"id\":1},{\"id\":2}]")).hasFieldOrPropertyWithValue("id", 1);
+        assertThat(readFirst("{\"id\":1}")).hasFieldOrPropertyWithValue("id", 1);
+        assertThat(readFirst("[]")).isNull();
+        assertThat(readFirst("null")).isNull();
+    }
+
+    private Element readFirst(String json) throws Exception {
+        return JsonStreams.read(jackson, stream(json), parser -> JsonStreams.readFirst(jackson, parser, Element.class));
+    }
+
+    @Test
+    public void readsRemainingStream() throws Exception {
+        InputStream in = stream("[{\"id\":1},{\"id\":2}]   ");
+        JsonStreams.read(jackson, in, parser -> JsonStreams.readFirst(jackson, parser, Element.class));
+        assertThat(in.read()).isEqualTo(-1);
+    }
+
+    @Test
+    public void failOnMessage() throws Exception {
+        assertThatThrownBy(() -> JsonStreams.failOnMessage(stream("Invalid key."), "Invalid key."))
+                .hasMessage("Invalid key.");
+
+        InputStream prefix = JsonStreams.failOnMessage(stream("Invalid key. Not really."), "Invalid key.");
+        assertThat(new String(prefix.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("Invalid key. Not really.");
+
+        InputStream json = JsonStreams.failOnMessage(stream("[]"), "Invalid key.");
+        assertThat(new String(json.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("[]");
+    }
+
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,95 @@
+package org.tillerino.osuApiModel.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BodyTimeoutTest {
+    HttpServer server;
+
+    CountDownLatch release = new CountDownLatch(1);
+
+    HttpTransport transport = HttpTransport.builder().build();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/stall", exchange -> {
+            // the headers and a part of the body arrive, then the body stalls
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().write("[{".getBytes(StandardCharsets.UTF_8));
+            exchange.getResponseBody().flush();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            // every part of the body arrives within the timeout, but the whole body does not
+            exchange.sendResponseHeaders(200, 0);
+            for (int i = 0; i < 5; i++) {
+                exchange.getResponseBody().write('x');
+                exchange.getResponseBody().flush();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    HttpRequest request(String path) {
+        return transport
+                .newRequest(
+                        URI.create("http://localhost:" + server.getAddress().getPort() + path), Duration.ofMillis(300))
+                .build();
+    }
+
+    @Test
+    public void stalledStreamTimesOut() throws Exception {
+        try (InputStream body = transport.send(request("/stall")).body()) {
+            assertThatThrownBy(body::readAllBytes).isInstanceOf(HttpTimeoutException.class);
+        }
+    }
+
+    @Test
+    public void stalledAsyncBodyTimesOut() {
+        assertThatThrownBy(() -> transport.sendAsync(request("/stall")).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(HttpTimeoutException.class);
+    }
+
+    @Test
+    public void slowBodyDoesNotTimeOut() throws Exception {
+        try (InputStream body = transport.send(request("/slow")).body()) {
+            assertThat(body.readAllBytes()).hasSize(5);
+        }
+        assertThat(transport.sendAsync(request("/slow")).join().body()).hasSize(5);
+    }
+}
@@ -0,0 +1,113 @@
+package org.tillerino.osuApiModel.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+
+public class FuturesTest {
+    CompletableFuture<String> a = new CompletableFuture<>();
+
+    CompletableFuture<String> b = new CompletableFuture<>();
+
+    @Test
+    public void bothCombinesValues() throws Exception {
+        CompletableFuture<String> both = Futures.both(a, b, (x, y) -> x + y);
+        b.complete("b");
+        assertThat(both).isNotDone();
+        a.complete("a");
+        assertThat(both.get()).isEqualTo("ab");
+    }
+
+    @Test
+    public void bothCancelsTheOtherOnFailure() throws Exception {
+        CompletableFuture<String> both = Futures.both(a, b, (x, y) -> x + y);
+        b.completeExceptionally(new IOException("b failed"));
+
+        assertThat(a).isCancelled();
+        assertThatThrownBy(() -> Futures.join(both))
+                .isInstanceOf(IOException.class)
+                .hasMessage("b failed");
+    }
+
+    @Test
+    public void cancellingBothCancelsBoth() throws Exception {
+        Futures.both(a, b, (x, y) -> x + y).cancel(true);
+
+        assertThat(a).isCancelled();
+        assertThat(b).isCancelled();
+    }
+
+    @Test
+    public void allCollectsInOrderAndFailsFast() throws Exception {
+        CompletableFuture<List<String>> all = Futures.all(List.of(a, b));
+        b.complete("b");
+        a.complete("a");
+        assertThat(all.get()).containsExactly("a", "b");
+
+        CompletableFuture<String> c = new CompletableFuture<>();
+        CompletableFuture<String> d = new CompletableFuture<>();
+        CompletableFuture<List<String>> failed = Futures.all(List.of(c, d));
+        c.completeExceptionally(new IOException("c failed"));
+        assertThat(d).isCancelled();
+        assertThatThrownBy(() -> Futures.join(failed)).hasMessage("c failed");
+    }
+
+    @Test
+    public void cancellationIsPassedToSource() throws Exception {
+        CompletableFuture<String> dependent = Futures.cancelling(a.thenApply(x -> x + "!"), a);
+        dependent.cancel(true);
+
+        assertThat(a).isCancelled();
+    }
+
+    @Test
+    public void boundedLimitsTasksInFlight() throws Exception {
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+        CompletableFuture<List<Integer>> bounded = Futures.bounded(5, 2, i -> {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            started.add(future);
+            return future;
+        });
+        assertThat(started).hasSize(2);
+
+        started.get(1).complete(1);
+        assertThat(started).hasSize(3);
+        started.get(0).complete(0);
+        started.get(2).complete(null);
+        assertThat(started).hasSize(5);
+        started.get(4).complete(4);
+        assertThat(bounded).isNotDone();
+        started.get(3).complete(3);
+
+        assertThat(bounded.get()).containsExactly(0, 1, null, 3, 4);
+    }
+
+    @Test
+    public void boundedRunsCompletedTasksWithoutRecursion() throws Exception {
+        assertThat(Futures.bounded(100_000, 1, CompletableFuture::completedFuture)
+                        .get())
+                .hasSize(100_000);
+        assertThat(Futures.bounded(0, 1, CompletableFuture::completedFuture).get())
+                .isEmpty();
+    }
+
+    @Test
+    public void boundedStopsAfterFailure() throws Exception {
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+        CompletableFuture<List<Integer>> bounded = Futures.bounded(5, 2, i -> {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            started.add(future);
+            return future;
+        });
+        started.get(0).completeExceptionally(new IOException("0 failed"));
+
+        assertThat(started).hasSize(2);
+        assertThat(started.get(1)).isCancelled();
+        assertThatThrownBy(() -> Futures.join(bounded)).hasMessage("0 failed");
+    }
+}
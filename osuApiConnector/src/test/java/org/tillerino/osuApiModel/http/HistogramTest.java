@@ -0,0 +1,63 @@
+package org.tillerino.osuApiModel.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.Test;
+
+public class HistogramTest {
+    Histogram histogram = new Histogram();
+
+    @Test
+    public void bucketsCoverAllValues() {
+        long previousHighest = -1;
+        for (int bucket = 0; bucket <= Histogram.bucket(Long.MAX_VALUE); bucket++) {
+            long lowest = previousHighest + 1;
+            assertThat(Histogram.lowestValue(bucket)).isEqualTo(lowest);
+            assertThat(Histogram.bucket(lowest)).isEqualTo(bucket);
+            long highest = Histogram.highestValue(bucket);
+            assertThat(Histogram.bucket(highest)).isEqualTo(bucket);
+            assertThat(highest - lowest).isLessThanOrEqualTo(lowest / Histogram.SUB_BUCKETS);
+            previousHighest = highest;
+        }
+        assertThat(previousHighest).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void percentiles() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMax()).isEqualTo(1_000_000);
+        assertThat(histogram.getMean()).isEqualTo(500_500);
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(500_000, within(500_000 * 0.01));
+        assertThat((double) histogram.getValueAtPercentile(99)).isCloseTo(990_000, within(990_000 * 0.01));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(1_000_000);
+    }
+
+    @Test
+    public void middleIsWithinOnePercent() {
+        for (int bucket = 0; bucket <= Histogram.bucket(Long.MAX_VALUE); bucket++) {
+            long middle = Histogram.middleValue(bucket);
+            long lowest = Histogram.lowestValue(bucket);
+            long highest = Histogram.highestValue(bucket);
+            assertThat(middle - lowest).isLessThanOrEqualTo(lowest / 100);
+            assertThat(highest - middle).isLessThanOrEqualTo(lowest / 100);
+        }
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0; value <= Histogram.SUB_BUCKETS; value++) {
+            assertThat(Histogram.highestValue(Histogram.bucket(value))).isEqualTo(value);
+            assertThat(Histogram.middleValue(Histogram.bucket(value))).isEqualTo(value);
+        }
+    }
+
+    @Test
+    public void empty() {
+        assertThat(histogram.getValueAtPercentile(99)).isZero();
+        assertThat(histogram.getMean()).isZero();
+    }
+}
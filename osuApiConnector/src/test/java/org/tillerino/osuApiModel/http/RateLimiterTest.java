@@ -0,0 +1,92 @@
+package org.tillerino.osuApiModel.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class RateLimiterTest {
+    AtomicLong clock = new AtomicLong();
+
+    RateLimiter limiter = new RateLimiter(clock::get);
+
+    @Test
+    public void unlimitedByDefault() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(limiter.reserve(Duration.ZERO)).isZero();
+        }
+    }
+
+    @Test
+    public void burstIsAvailableImmediately() throws Exception {
+        limiter.setLimit(1, 3);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        assertThat(limiter.reserve(Duration.ZERO)).isZero();
+        assertThat(limiter.reserve(Duration.ZERO)).isZero();
+        assertThat(limiter.reserve(Duration.ZERO)).isZero();
+        assertThatThrownBy(() -> limiter.reserve(Duration.ZERO)).isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    public void waitingRequestsQueueUp() throws Exception {
+        limiter.setLimit(2, 1);
+
+        assertThat(limiter.reserve(null)).isZero();
+        assertThat(limiter.reserve(null)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(limiter.reserve(null)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertThat(limiter.reserve(null)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        limiter.setLimit(1, 1);
+
+        assertThat(limiter.reserve(Duration.ofSeconds(1))).isZero();
+        assertThat(limiter.reserve(Duration.ofSeconds(1))).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThatThrownBy(() -> limiter.reserve(Duration.ofSeconds(1)))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting("wait")
+                .isEqualTo(Duration.ofSeconds(2));
+        // the failed request did not take a permit
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.reserve(Duration.ofSeconds(1))).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void sharedPerCredential() throws Exception {
+        assertThat(RateLimiter.forCredential("a")).isSameAs(RateLimiter.forCredential("a"));
+        assertThat(RateLimiter.forCredential("a")).isNotSameAs(RateLimiter.forCredential("b"));
+    }
+
+    @Test
+    public void slowsDownOnLowBudget() throws Exception {
+        limiter.updateBudget(500, 1200);
+        assertThat(limiter.getBudget()).isEqualTo(new RateLimiter.Budget(500, 1200));
+        assertThat(limiter.getEffectivePermitsPerSecond()).isEqualTo(Double.POSITIVE_INFINITY);
+
+        limiter.updateBudget(120, 1200);
+        assertThat(limiter.getEffectivePermitsPerSecond()).isEqualTo(2);
+        assertThat(limiter.reserve(null)).isZero();
+        assertThat(limiter.reserve(null)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+
+        limiter.updateBudget(1100, 1200);
+        assertThat(limiter.getEffectivePermitsPerSecond()).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(limiter.reserve(Duration.ZERO)).isZero();
+    }
+
+    @Test
+    public void configuredLimitStillApplies() throws Exception {
+        limiter.setLimit(1, 1);
+        limiter.updateBudget(1000, 1200);
+        assertThat(limiter.getEffectivePermitsPerSecond()).isEqualTo(1);
+
+        limiter.updateBudget(0, 1200);
+        assertThat(limiter.getEffectivePermitsPerSecond()).isEqualTo(1.0 / 60);
+    }
+}
@@ -0,0 +1,74 @@
+package org.tillerino.osuApiModel.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+public class RequestRecorderTest {
+    @Test
+    public void callsAreReportedToTheListener() throws Exception {
+        List<RequestEvent> events = new ArrayList<>();
+        RequestRecorder recorder = RequestRecorder.start(events::add, "beatmaps/{beatmap}?mode={mode}", "GET");
+        recorder.attempt();
+        recorder.attempt();
+        recorder.headers(200);
+        String body = recorder.decode(
+                new ByteArrayInputStream("{}".getBytes(StandardCharsets.UTF_8)),
+                inputStream -> new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        recorder.finish(null);
+
+        assertThat(body).isEqualTo("{}");
+        assertThat(events).hasSize(1);
+        RequestEvent event = events.get(0);
+        assertThat(event.endpoint()).isEqualTo("beatmaps/{beatmap}");
+        assertThat(event.method()).isEqualTo("GET");
+        assertThat(event.status()).isEqualTo(200);
+        assertThat(event.retries()).isEqualTo(1);
+        assertThat(event.headersNanos()).isNotNegative();
+        assertThat(event.isSuccess()).isTrue();
+    }
+
+    @Test
+    public void callsAreEmittedAsFlightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("osu-api", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.tillerino.osuApiModel.ApiCall");
+            recording.enable("org.tillerino.osuApiModel.Decode");
+            recording.start();
+
+            RequestRecorder recorder = RequestRecorder.start(RequestListener.NONE, "get_beatmaps", "GET");
+            recorder.attempt();
+            recorder.headers(502);
+            recorder.decode(new ByteArrayInputStream(new byte[0]), inputStream -> null);
+            recorder.finish(new HttpStatusException(502, null));
+
+            RequestRecorder.discarding().finish(null);
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertThat(events.stream().map(e -> e.getEventType().getName()).collect(Collectors.toList()))
+                    .containsExactlyInAnyOrder("org.tillerino.osuApiModel.ApiCall", "org.tillerino.osuApiModel.Decode");
+            RecordedEvent call = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("org.tillerino.osuApiModel.ApiCall"))
+                    .findFirst()
+                    .orElseThrow();
+            assertThat(call.getString("endpoint")).isEqualTo("get_beatmaps");
+            assertThat(call.getInt("status")).isEqualTo(502);
+            assertThat(call.getString("failure")).isEqualTo(HttpStatusException.class.getName());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
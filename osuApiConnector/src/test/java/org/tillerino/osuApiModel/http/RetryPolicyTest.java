@@ -0,0 +1,122 @@
+package org.tillerino.osuApiModel.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+    RetryPolicy policy = RetryPolicy.builder()
+            .maxAttempts(3)
+            .initialBackoff(Duration.ofMillis(1))
+            .maxBackoff(Duration.ofMillis(4))
+            .build();
+
+    AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void classification() throws Exception {
+        assertThat(policy.isRetryable(new HttpStatusException(429, null))).isTrue();
+        assertThat(policy.isRetryable(new HttpStatusException(503, null))).isTrue();
+        assertThat(policy.isRetryable(new SocketTimeoutException())).isTrue();
+        assertThat(policy.isRetryable(new HttpStatusException(404, null))).isFalse();
+        assertThat(policy.isRetryable(new HttpStatusException(401, null))).isFalse();
+        assertThat(policy.isRetryable(new IOException("unexpected content-type")))
+                .isFalse();
+    }
+
+    @Test
+    public void backoffIsBoundedAndHonoursRetryAfter() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.backoff(1, new SocketTimeoutException())).isBetween(Duration.ZERO, Duration.ofMillis(1));
+            assertThat(policy.backoff(2, new SocketTimeoutException())).isBetween(Duration.ZERO, Duration.ofMillis(2));
+            assertThat(policy.backoff(10, new SocketTimeoutException())).isBetween(Duration.ZERO, Duration.ofMillis(4));
+        }
+        assertThat(policy.backoff(1, new HttpStatusException(429, Duration.ofSeconds(7))))
+                .isEqualTo(Duration.ofSeconds(7));
+    }
+
+    @Test
+    public void retriesUntilSuccess() throws Exception {
+        assertThat(policy.execute(() -> {
+                    if (calls.incrementAndGet() < 3) {
+                        throw new HttpStatusException(502, null);
+                    }
+                    return "ok";
+                }))
+                .isEqualTo("ok");
+
+        assertThat(policy.getMetrics())
+                .hasFieldOrPropertyWithValue("calls", 1L)
+                .hasFieldOrPropertyWithValue("attempts", 3L)
+                .hasFieldOrPropertyWithValue("retries", 2L)
+                .hasFieldOrPropertyWithValue("exhausted", 0L);
+    }
+
+    @Test
+    public void permanentFailureIsNotRetried() throws Exception {
+        assertThatThrownBy(() -> policy.execute(() -> {
+                    calls.incrementAndGet();
+                    throw new HttpStatusException(404, null);
+                }))
+                .isInstanceOf(HttpStatusException.class);
+
+        assertThat(calls).hasValue(1);
+        assertThat(policy.getMetrics().getExhausted()).isZero();
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() throws Exception {
+        assertThatThrownBy(() -> policy.execute(() -> {
+                    calls.incrementAndGet();
+                    throw new SocketTimeoutException();
+                }))
+                .isInstanceOf(SocketTimeoutException.class);
+
+        assertThat(calls).hasValue(3);
+        assertThat(policy.getMetrics().getExhausted()).isEqualTo(1);
+    }
+
+    @Test
+    public void policyWithoutRetriesIsNotExhausted() throws Exception {
+        RetryPolicy none = RetryPolicy.none();
+        assertThatThrownBy(() -> none.execute(() -> {
+                    calls.incrementAndGet();
+                    throw new HttpStatusException(503, null);
+                }))
+                .isInstanceOf(HttpStatusException.class);
+
+        assertThat(calls).hasValue(1);
+        assertThat(none.getMetrics())
+                .hasFieldOrPropertyWithValue("calls", 1L)
+                .hasFieldOrPropertyWithValue("retries", 0L)
+                .hasFieldOrPropertyWithValue("exhausted", 0L);
+    }
+
+    @Test
+    public void retryAfterBeyondBudgetIsNotAwaited() throws Exception {
+        assertThatThrownBy(() -> policy.execute(() -> {
+                    calls.incrementAndGet();
+                    throw new HttpStatusException(429, Duration.ofMinutes(5));
+                }))
+                .isInstanceOf(HttpStatusException.class);
+
+        assertThat(calls).hasValue(1);
+        assertThat(policy.getMetrics().getExhausted()).isEqualTo(1);
+    }
+
+    @Test
+    public void retriesAsync() throws Exception {
+        CompletableFuture<String> result = policy.executeAsync(() -> calls.incrementAndGet() < 2
+                ? CompletableFuture.failedFuture(new HttpStatusException(500, null))
+                : CompletableFuture.completedFuture("ok"));
+
+        assertThat(result.get()).isEqualTo("ok");
+        assertThat(policy.getMetrics().getAttempts()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,74 @@
+package org.tillerino.osuApiModel.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class SingleFlightTest {
+    SingleFlight singleFlight = new SingleFlight();
+
+    AtomicInteger calls = new AtomicInteger();
+
+    CompletableFuture<String> upstream = new CompletableFuture<>();
+
+    CompletableFuture<String> call() {
+        calls.incrementAndGet();
+        return upstream;
+    }
+
+    @Test
+    public void concurrentCallsAreCoalesced() throws Exception {
+        CompletableFuture<String> first = singleFlight.execute("a", this::call);
+        CompletableFuture<String> second = singleFlight.execute("a", this::call);
+        CompletableFuture<String> other = singleFlight.execute("b", this::call);
+
+        upstream.complete("result");
+
+        assertThat(first.get()).isEqualTo("result");
+        assertThat(second.get()).isEqualTo("result");
+        assertThat(other.get()).isEqualTo("result");
+        assertThat(calls).hasValue(2);
+        assertThat(singleFlight.getCoalesced()).isEqualTo(1);
+        assertThat(singleFlight.getInFlight()).isZero();
+    }
+
+    @Test
+    public void completedCallsAreNotReused() throws Exception {
+        upstream.complete("result");
+        singleFlight.execute("a", this::call).get();
+        singleFlight.execute("a", this::call).get();
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    public void failuresAreShared() throws Exception {
+        CompletableFuture<String> first = singleFlight.execute("a", this::call);
+        CompletableFuture<String> second = singleFlight.execute("a", this::call);
+
+        upstream.completeExceptionally(new IOException("failed"));
+
+        for (CompletableFuture<String> future : new CompletableFuture[] {first, second}) {
+            Assertions.assertThatThrownBy(future::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IOException.class);
+        }
+        assertThat(singleFlight.getInFlight()).isZero();
+    }
+
+    @Test
+    public void cancellingOneCallerDoesNotAffectOthers() throws Exception {
+        CompletableFuture<String> first = singleFlight.execute("a", this::call);
+        CompletableFuture<String> second = singleFlight.execute("a", this::call);
+
+        first.cancel(true);
+        upstream.complete("result");
+
+        assertThat(second.get()).isEqualTo("result");
+    }
+}
@@ -0,0 +1,78 @@
+package org.tillerino.osuApiModel.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.tillerino.osuApiModel.v2.DownloaderV2.BeatmapAttributesResponse;
+
+public class BeatmapCacheTest {
+    long now = 0;
+
+    BeatmapCache cache = new BeatmapCache(2, 2, Duration.ofMinutes(1), () -> now);
+
+    AtomicInteger loads = new AtomicInteger();
+
+    CompletableFuture<BeatmapAttributesResponse> load() {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(new BeatmapAttributesResponse(null));
+    }
+
+    @Test
+    public void attributesAreCachedPerMods() throws Exception {
+        cache.attributes(1, 0, this::load).get();
+        cache.attributes(1, 0, this::load).get();
+        cache.attributes(1, 16, this::load).get();
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        cache.attributes(1, 0, this::load).get();
+        now += TimeUnit.MINUTES.toNanos(1);
+        cache.attributes(1, 0, this::load).get();
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws Exception {
+        cache.attributes(1, 0, this::load).get();
+        cache.attributes(2, 0, this::load).get();
+        cache.attributes(1, 0, this::load).get();
+        cache.attributes(3, 0, this::load).get();
+
+        cache.attributes(1, 0, this::load).get();
+        assertThat(loads).hasValue(3);
+        cache.attributes(2, 0, this::load).get();
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    public void failuresAreNotCached() throws Exception {
+        CompletableFuture<BeatmapAttributesResponse> failed =
+                cache.attributes(1, 0, () -> CompletableFuture.failedFuture(new IOException("failed")));
+        assertThat(failed).isCompletedExceptionally();
+
+        cache.attributes(1, 0, this::load).get();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void cancellingDoesNotAffectTheCachedEntry() throws Exception {
+        CompletableFuture<BeatmapAttributesResponse> pending = new CompletableFuture<>();
+        cache.attributes(1, 0, () -> pending).cancel(true);
+        CompletableFuture<BeatmapAttributesResponse> second = cache.attributes(1, 0, this::load);
+
+        pending.complete(new BeatmapAttributesResponse(null));
+        assertThat(second.get()).isNotNull();
+        assertThat(loads).hasValue(0);
+    }
+}
@@ -14,12 +14,22 @@ import com.google.common.net.MediaType;
 import java.io.IOException;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import lombok.Getter;
 import org.junit.Test;
 import org.mockserver.model.Header;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.model.HttpResponse;
+import org.mockserver.model.JsonBody;
+import org.mockserver.verify.VerificationTimes;
 import org.tillerino.osuApiModel.*;
+import org.tillerino.osuApiModel.http.EndpointMetrics;
+import org.tillerino.osuApiModel.http.HttpStatusException;
+import org.tillerino.osuApiModel.http.RateLimiter;
+import org.tillerino.osuApiModel.http.SingleFlight;
 
 public class DownloaderV2Test extends AbstractMockServerV2Test {
 
@@ -38,6 +48,17 @@ public class DownloaderV2Test extends AbstractMockServerV2Test {
                 invalidTokenRealUriDownloader.formURI("verb?parameter={value}", "{value}", "/"));
     }
 
+    @Test
+    public void testFormURISpaces() throws IOException {
+        assertEquals(
+                URI.create("https://osu.ppy.sh/api/v2/users/some%20one?mode=osu&key=username"),
+                invalidTokenRealUriDownloader.formURI(
+                        "users/{user}?mode={mode}&key=username", "{user}", "some one", "{mode}", "osu"));
+        assertEquals(
+                URI.create("https://osu.ppy.sh/api/v2/search?query=some+one%2B"),
+                invalidTokenRealUriDownloader.formURI("search?query={query}", "{query}", "some one+"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testFormURIWrongArgNumber() throws IOException {
         invalidTokenRealUriDownloader.formURI("verb", "parameterWithoutValue");
@@ -186,6 +207,283 @@ public class DownloaderV2Test extends AbstractMockServerV2Test {
         mockServer.verify(request("/api/v2/beatmaps/123/attributes"));
     }
 
+    @Test
+    public void asyncUserCanBePulled() throws Exception {
+        mockServer
+                .when(request("/api/v2/users/2070907").withQueryStringParameter("mode", "taiko"))
+                .respond(response()
+                        .withBody(
+                                "{\"id\":2070907,\"username\":\"Tillerino\",\"statistics\":{\"pp\":1234.5}}",
+                                MediaType.JSON_UTF_8));
+
+        assertThat(downloader
+                        .getUserAsync(2070907, GameModes.TAIKO, OsuApiUser.class)
+                        .get())
+                .hasFieldOrPropertyWithValue("userName", "Tillerino")
+                .hasFieldOrPropertyWithValue("pp", 1234.5)
+                .hasFieldOrPropertyWithValue("mode", GameModes.TAIKO);
+    }
+
+    @Test
+    public void rateLimitBudgetIsRead() throws Exception {
+        mockServer
+                .when(request("/api/v2/users/2070907"))
+                .respond(response()
+                        .withHeader("X-RateLimit-Limit", "1200")
+                        .withHeader("X-RateLimit-Remaining", "100")
+                        .withBody("{\"id\":2070907,\"username\":\"Tillerino\"}", MediaType.JSON_UTF_8));
+
+        RateLimiter rateLimiter = new RateLimiter();
+        downloader.setRateLimiter(rateLimiter);
+
+        downloader.getUser(2070907, GameModes.OSU, OsuApiUser.class);
+        assertThat(rateLimiter.getBudget()).isEqualTo(new RateLimiter.Budget(100, 1200));
+        assertThat(rateLimiter.getEffectivePermitsPerSecond()).isLessThan(2);
+    }
+
+    @Test
+    public void identicalConcurrentRequestsAreCoalesced() throws Exception {
+        mockServer
+                .when(request("/api/v2/users/2070907"))
+                .respond(response()
+                        .withDelay(TimeUnit.MILLISECONDS, 300)
+                        .withBody("{\"id\":2070907,\"username\":\"Tillerino\"}", MediaType.JSON_UTF_8));
+
+        SingleFlight singleFlight = new SingleFlight();
+        downloader.setSingleFlight(singleFlight);
+
+        CompletableFuture<OsuApiUser> first = downloader.getUserAsync(2070907, GameModes.OSU, OsuApiUser.class);
+        CompletableFuture<OsuApiUser> second = downloader.getUserAsync(2070907, GameModes.OSU, OsuApiUser.class);
+
+        assertThat(first.get()).hasFieldOrPropertyWithValue("userName", "Tillerino");
+        assertThat(second.get()).hasFieldOrPropertyWithValue("userName", "Tillerino");
+        // every caller gets its own object
+        assertThat(first.get()).isNotSameAs(second.get());
+
+        mockServer.verify(request("/api/v2/users/2070907"), VerificationTimes.once());
+        assertThat(singleFlight.getCoalesced()).isEqualTo(1);
+    }
+
+    @Test
+    public void asyncLookupsDoNotWaitForTheToken() throws Exception {
+        mockServer
+                .when(request("/oauth/token").withMethod("POST"))
+                .respond(response()
+                        .withDelay(TimeUnit.MILLISECONDS, 500)
+                        .withBody("{\"access_token\":\"new-token\",\"expires_in\":86400}", MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/users/2070907").withHeader("Authorization", "Bearer new-token"))
+                .respond(response().withBody("{\"id\":2070907,\"username\":\"Tillerino\"}", MediaType.JSON_UTF_8));
+        URI base = URI.create("http://localhost:" + mockServerRule.getPort());
+        DownloaderV2 downloader = new DownloaderV2(
+                base,
+                TokenHelper.TokenCache.inMemory(
+                        base, new TokenHelper.Credentials("12345", "0123456789012345678901234567890123456789")));
+
+        long start = System.nanoTime();
+        CompletableFuture<OsuApiUser> first = downloader.getUserAsync(2070907, GameModes.OSU, OsuApiUser.class);
+        CompletableFuture<OsuApiUser> second = downloader.getUserAsync(2070907, GameModes.OSU, OsuApiUser.class);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(250));
+
+        assertThat(first.get()).hasFieldOrPropertyWithValue("userName", "Tillerino");
+        assertThat(second.get()).hasFieldOrPropertyWithValue("userName", "Tillerino");
+        // the calls share the token request
+        mockServer.verify(request("/oauth/token"), VerificationTimes.once());
+    }
+
+    @Test
+    public void beatmapRequestsAreConcurrent() throws Exception {
+        mockServer
+                .when(request("/api/v2/beatmaps/53"))
+                .respond(response()
+                        .withDelay(TimeUnit.MILLISECONDS, 500)
+                        .withBody("{\"id\":53,\"status\":\"ranked\"}", MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/beatmaps/53/attributes").withMethod("POST"))
+                .respond(response()
+                        .withDelay(TimeUnit.MILLISECONDS, 500)
+                        .withBody("{\"attributes\":{\"aim_difficulty\":1.2}}", MediaType.JSON_UTF_8));
+
+        long start = System.nanoTime();
+        OsuApiBeatmap beatmap = downloader.getBeatmap(53, 0, OsuApiBeatmap.class);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(900);
+        assertThat(beatmap).hasFieldOrPropertyWithValue("aimDifficulty", 1.2);
+    }
+
+    @Test
+    public void beatmapFailsOnceEitherRequestFails() throws Exception {
+        mockServer
+                .when(request("/api/v2/beatmaps/53"))
+                .respond(response()
+                        .withDelay(TimeUnit.SECONDS, 3)
+                        .withBody("{\"id\":53,\"status\":\"ranked\"}", MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/beatmaps/53/attributes").withMethod("POST"))
+                .respond(response().withStatusCode(500));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> downloader.getBeatmap(53, 0, OsuApiBeatmap.class))
+                .isInstanceOf(HttpStatusException.class)
+                .hasMessageContaining("response code 500");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2000);
+    }
+
+    @Test
+    public void beatmapInfoIsCachedAcrossMods() throws Exception {
+        mockServer
+                .when(request("/api/v2/beatmaps/53"))
+                .respond(response().withBody("{\"id\":53,\"status\":\"ranked\"}", MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/beatmaps/53/attributes").withMethod("POST"))
+                .respond(response().withBody("{\"attributes\":{\"aim_difficulty\":1.2}}", MediaType.JSON_UTF_8));
+
+        BeatmapCache beatmapCache = new BeatmapCache();
+        downloader.setBeatmapCache(beatmapCache);
+
+        downloader.getBeatmap(53, 0, OsuApiBeatmap.class);
+        downloader.getBeatmap(53, Mods.getMask(Mods.HardRock), OsuApiBeatmap.class);
+        assertThat(downloader.getBeatmap(53, 0, OsuApiBeatmap.class))
+                .hasFieldOrPropertyWithValue("aimDifficulty", 1.2);
+
+        mockServer.verify(request("/api/v2/beatmaps/53"), VerificationTimes.once());
+        mockServer.verify(request("/api/v2/beatmaps/53/attributes"), VerificationTimes.exactly(2));
+
+        // the bulk lookup does not request the info again
+        assertThat(downloader.getBeatmaps(new int[] {53}, 0, OsuApiBeatmap.class))
+                .containsOnlyKeys(53);
+        mockServer.verify(request("/api/v2/beatmaps"), VerificationTimes.exactly(0));
+        mockServer.verify(request("/api/v2/beatmaps/53/attributes"), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void equivalentModsShareAttributes() throws Exception {
+        mockServer
+                .when(request("/api/v2/beatmaps/53"))
+                .respond(response().withBody("{\"id\":53,\"status\":\"ranked\",\"mode_int\":0}", MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/beatmaps/53/attributes").withMethod("POST"))
+                .respond(response().withBody("{\"attributes\":{\"aim_difficulty\":1.2}}", MediaType.JSON_UTF_8));
+
+        downloader.setBeatmapCache(new BeatmapCache());
+
+        downloader.getBeatmap(53, Mods.getMask(Mods.Hidden, Mods.HardRock), OsuApiBeatmap.class);
+        downloader.getBeatmap(53, Mods.getMask(Mods.HardRock, Mods.NoFail), OsuApiBeatmap.class);
+        downloader.getBeatmap(53, Mods.getMask(Mods.HardRock), OsuApiBeatmap.class);
+
+        mockServer.verify(
+                request("/api/v2/beatmaps/53/attributes").withBody(JsonBody.json("{\"mods\":16}")),
+                VerificationTimes.once());
+    }
+
+    @Test
+    public void attributesKeyDoesNotDependOnCachedInfo() throws Exception {
+        mockServer
+                .when(request("/api/v2/beatmaps/53"))
+                .respond(response().withBody("{\"id\":53,\"status\":\"ranked\",\"mode_int\":0}", MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/beatmaps/53/attributes").withMethod("POST"))
+                .respond(response().withBody("{\"attributes\":{\"aim_difficulty\":1.2}}", MediaType.JSON_UTF_8));
+
+        downloader.setBeatmapCache(new BeatmapCache());
+
+        // Key4 only matters in mania, but the mode is only known once the info is cached
+        downloader.getBeatmap(53, Mods.getMask(Mods.Key4), OsuApiBeatmap.class);
+        downloader.getBeatmap(53, Mods.getMask(Mods.Key4), OsuApiBeatmap.class);
+
+        mockServer.verify(request("/api/v2/beatmaps/53/attributes"), VerificationTimes.once());
+    }
+
+    @Test
+    public void getBeatmapsOmitsMissingIds() throws Exception {
+        mockServer
+                .when(request("/api/v2/beatmaps").withQueryStringParameter("ids[]", "129891", "1", "53"))
+                .respond(response()
+                        .withBody(
+                                "{\"beatmaps\":[{\"id\":53,\"beatmapset_id\":3,\"status\":\"ranked\","
+                                        + "\"version\":\"Normal\"},"
+                                        + "{\"id\":129891,\"beatmapset_id\":39804,\"status\":\"approved\","
+                                        + "\"version\":\"FOUR DIMENSIONS\"}]}",
+                                MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/beatmaps/129891/attributes").withMethod("POST"))
+                .respond(response().withBody("{\"attributes\":{\"aim_difficulty\":3.4}}", MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/beatmaps/53/attributes").withMethod("POST"))
+                .respond(response().withBody("{\"attributes\":{\"aim_difficulty\":1.2}}", MediaType.JSON_UTF_8));
+
+        Map<Integer, OsuApiBeatmap> beatmaps =
+                downloader.getBeatmaps(new int[] {129891, 1, 53, 129891}, 0, OsuApiBeatmap.class);
+
+        assertThat(beatmaps).containsOnlyKeys(129891, 53);
+        assertThat(beatmaps.keySet()).containsExactly(129891, 53);
+        assertThat(beatmaps.get(129891).getAimDifficulty()).isEqualTo(3.4);
+        assertThat(beatmaps.get(53).getVersion()).isEqualTo("Normal");
+    }
+
+    @Test
+    public void getBeatmapsIsChunked() throws Exception {
+        mockServer
+                .when(request("/api/v2/beatmaps"))
+                .respond(response().withBody("{\"beatmaps\":[]}", MediaType.JSON_UTF_8));
+
+        int[] beatmapIds = IntStream.rangeClosed(1, DownloaderV2.IDS_CHUNK_SIZE + 1).toArray();
+        assertThat(downloader.getBeatmaps(beatmapIds, 0, OsuApiBeatmap.class)).isEmpty();
+
+        mockServer.verify(request("/api/v2/beatmaps"), VerificationTimes.exactly(2));
+        mockServer.verify(
+                request("/api/v2/beatmaps").withQueryStringParameter("ids[]", "51"), VerificationTimes.once());
+    }
+
+    @Test
+    public void getUsersReadsStatisticsOfMode() throws Exception {
+        mockServer
+                .when(request("/api/v2/users").withQueryStringParameter("ids[]", "2070907", "1"))
+                .respond(response()
+                        .withBody(
+                                "{\"users\":[{\"id\":2070907,\"username\":\"Tillerino\",\"statistics_rulesets\":{"
+                                        + "\"osu\":{\"pp\":1000.5,\"play_count\":10},"
+                                        + "\"taiko\":{\"pp\":12.5,\"play_count\":2}}}]}",
+                                MediaType.JSON_UTF_8));
+
+        Map<Integer, OsuApiUser> users =
+                downloader.getUsers(new int[] {2070907, 1, 2070907}, GameModes.TAIKO, OsuApiUser.class);
+
+        assertThat(users).containsOnlyKeys(2070907);
+        OsuApiUser user = users.get(2070907);
+        assertThat(user.getUserName()).isEqualTo("Tillerino");
+        assertThat(user.getMode()).isEqualTo(GameModes.TAIKO);
+        assertThat(user.getPp()).isEqualTo(12.5);
+        assertThat(user.getPlayCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void requestsAreReportedPerEndpoint() throws Exception {
+        String body = "{\"id\":2070907,\"username\":\"Tillerino\"}";
+        mockServer
+                .when(request("/api/v2/users/2070907"))
+                .respond(response().withBody(body, MediaType.JSON_UTF_8));
+        mockServer
+                .when(request("/api/v2/users/1"))
+                .respond(response().withStatusCode(500));
+        EndpointMetrics metrics = new EndpointMetrics();
+        downloader.setRequestListener(metrics);
+
+        downloader.getUser(2070907, GameModes.OSU, OsuApiUser.class);
+        downloader.getUserAsync(2070907, GameModes.OSU, OsuApiUser.class).get();
+        assertThatThrownBy(() -> downloader.getUser(1, GameModes.OSU, OsuApiUser.class))
+                .isInstanceOf(HttpStatusException.class);
+
+        assertThat(metrics.getEndpoints()).hasSize(1);
+        EndpointMetrics.Endpoint endpoint =
+                metrics.getEndpoints().values().iterator().next();
+        assertThat(endpoint.getCalls()).isEqualTo(3);
+        assertThat(endpoint.getFailures()).isEqualTo(1);
+        assertThat(endpoint.getStatuses()).containsEntry(200, 2L).containsEntry(500, 1L);
+        assertThat(endpoint.getDecompressedBytes()).isEqualTo(2L * body.length());
+        assertThat(endpoint.getHeadersTime().getCount()).isEqualTo(3);
+    }
+
     static List<String> bitwiseToModsArray(int bitwise) {
         if (bitwise == 0) {
             return List.of("NM");
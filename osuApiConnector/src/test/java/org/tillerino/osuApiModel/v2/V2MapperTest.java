@@ -0,0 +1,38 @@
+package org.tillerino.osuApiModel.v2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import org.junit.Test;
+import org.tillerino.osuApiModel.Mods;
+
+public class V2MapperTest {
+    @Test
+    public void isoToEpoch() throws Exception {
+        assertThat(V2Mapper.isoToEpoch("2016-05-08T08:47:44Z"))
+                .isEqualTo(Instant.parse("2016-05-08T08:47:44Z").toEpochMilli());
+        assertThat(V2Mapper.isoToEpoch("2016-05-08T10:47:44+02:00"))
+                .isEqualTo(Instant.parse("2016-05-08T08:47:44Z").toEpochMilli());
+        assertThat(V2Mapper.isoToEpoch(null)).isZero();
+        assertThatThrownBy(() -> V2Mapper.isoToEpoch("yesterday")).isInstanceOf(DateTimeParseException.class);
+    }
+
+    @Test
+    public void parseDate() throws Exception {
+        assertThat(V2Mapper.parseDate("2012-01-04T09:08:06+00:00"))
+                .isEqualTo(Instant.parse("2012-01-04T09:08:06Z").toEpochMilli());
+        assertThat(V2Mapper.parseDate(null)).isZero();
+        assertThat(V2Mapper.parseDate("yesterday")).isZero();
+    }
+
+    @Test
+    public void modsToBitwise() throws Exception {
+        assertThat(V2Mapper.modsToBitwise(List.of("HD", "DT"))).isEqualTo(Mods.getMask(Mods.Hidden, Mods.DoubleTime));
+        assertThat(V2Mapper.modsToBitwise(List.of("HR", "CL"))).isEqualTo(Mods.getMask(Mods.HardRock));
+        assertThat(V2Mapper.modsToBitwise(List.of())).isZero();
+        assertThat(V2Mapper.modsToBitwise(null)).isZero();
+    }
+}
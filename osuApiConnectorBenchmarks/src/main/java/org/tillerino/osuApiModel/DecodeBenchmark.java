@@ -0,0 +1,106 @@
+package org.tillerino.osuApiModel;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tillerino.osuApiModel.benchmarks.Payloads;
+import org.tillerino.osuApiModel.deserializer.DateToLong;
+import org.tillerino.osuApiModel.deserializer.JsonStreams;
+
+/**
+ * Binding of v1 responses. {@link Downloader} binds them straight from the response stream, see
+ * {@link #scoresFromStream()}. {@link #scoresFromJsonArray()} binds a tree which was parsed before, as callers of
+ * {@link OsuApiScore#fromJsonArray(ArrayNode, Class, int)} do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    private static final DateToLong DATE_TO_LONG = new DateToLong();
+
+    private ArrayNode scores;
+
+    private byte[] scoresJson;
+
+    private String beatmap;
+
+    private byte[] date;
+
+    @Setup
+    public void setup() throws IOException {
+        JsonNode score = JsonStreams.JACKSON.readTree(Payloads.read("score.json"));
+        scores = JsonStreams.JACKSON.createArrayNode();
+        for (int i = 0; i < 100; i++) {
+            scores.add(score.deepCopy());
+        }
+        scoresJson = JsonStreams.JACKSON.writeValueAsBytes(scores);
+        beatmap = Payloads.read("beatmap.json");
+        date = "\"2016-05-08 08:47:44\"".getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A full response of {@code get_scores} or {@code get_user_best}.
+     */
+    @Benchmark
+    public List<OsuApiScore> scoresFromJsonArray() throws IOException {
+        return OsuApiScore.fromJsonArray(scores, OsuApiScore.class, GameModes.OSU);
+    }
+
+    /**
+     * The same response as {@link #scoresFromJsonArray()}, including parsing, bound the way {@link Downloader}
+     * does.
+     */
+    @Benchmark
+    public List<OsuApiScore> scoresFromStream() throws IOException {
+        return JsonStreams.read(
+                JsonStreams.JACKSON,
+                new ByteArrayInputStream(scoresJson),
+                parser -> JsonStreams.readList(
+                        JsonStreams.JACKSON, parser, OsuApiScore.class, score -> score.setMode(GameModes.OSU)));
+    }
+
+    @Benchmark
+    public OsuApiBeatmap beatmap() throws IOException {
+        return JsonStreams.JACKSON.readValue(beatmap, OsuApiBeatmap.class);
+    }
+
+    /**
+     * Includes creating the parser, see {@link #dateParser()}.
+     */
+    @Benchmark
+    public Long dateToLong() throws IOException {
+        try (JsonParser parser = JsonStreams.JACKSON.createParser(date)) {
+            parser.nextToken();
+            return DATE_TO_LONG.deserialize(parser, null);
+        }
+    }
+
+    /**
+     * Baseline of {@link #dateToLong()}: only creates the parser and reads the string.
+     */
+    @Benchmark
+    public String dateParser() throws IOException {
+        try (JsonParser parser = JsonStreams.JACKSON.createParser(date)) {
+            parser.nextToken();
+            return parser.getValueAsString();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.tillerino.osuApiModel;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversions between the representations of {@link Mods}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModsBenchmark {
+    @Param({"", "HD", "HDHRDTFL"})
+    public String shortNames;
+
+    private long mask;
+
+    private List<Mods> mods;
+
+    @Setup
+    public void setup() {
+        Long parsed = Mods.fromShortNamesContinuous(shortNames);
+        if (parsed == null) {
+            throw new IllegalArgumentException(shortNames);
+        }
+        mask = parsed;
+        mods = Mods.getMods(mask);
+    }
+
+    @Benchmark
+    public List<Mods> getMods() {
+        return Mods.getMods(mask);
+    }
+
+    @Benchmark
+    public Long fromShortNamesContinuous() {
+        return Mods.fromShortNamesContinuous(shortNames);
+    }
+
+    @Benchmark
+    public long getMask() {
+        return Mods.getMask(mods);
+    }
+
+    @Benchmark
+    public ModSet modSet() {
+        return ModSet.of(mask);
+    }
+
+    @Benchmark
+    public int modSetForEach() {
+        int[] ordinals = {0};
+        ModSet.of(mask).forEach(mod -> ordinals[0] += mod.ordinal());
+        return ordinals[0];
+    }
+
+    @Benchmark
+    public String modSetShortNames() {
+        return ModSet.of(mask).getShortNames();
+    }
+
+    @Benchmark
+    public String toShortNamesContinuous() {
+        return Mods.toShortNamesContinuous(mods);
+    }
+}
@@ -0,0 +1,30 @@
+package org.tillerino.osuApiModel.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that results include the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}) next to the throughput. Accepts the usual JMH arguments, e.g. a regex of the
+ * benchmarks to run:
+ *
+ * <pre>
+ * mvn -f osuApiConnector install -DskipTests
+ * mvn -f osuApiConnectorBenchmarks package
+ * java -jar osuApiConnectorBenchmarks/target/benchmarks.jar Mods
+ * </pre>
+ */
+public class Benchmarks {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
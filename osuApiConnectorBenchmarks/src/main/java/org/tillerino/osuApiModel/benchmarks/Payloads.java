@@ -0,0 +1,25 @@
+package org.tillerino.osuApiModel.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Responses of the osu! API which the benchmarks decode.
+ */
+public class Payloads {
+    /**
+     * @param name file name in {@code /payloads}, which are shared with the load test, e.g. {@code score.json}
+     */
+    public static String read(String name) {
+        try (InputStream inputStream = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("Unknown payload " + name);
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.tillerino.osuApiModel.v2;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tillerino.osuApiModel.OsuApiBeatmap;
+import org.tillerino.osuApiModel.OsuApiScore;
+import org.tillerino.osuApiModel.benchmarks.Payloads;
+import org.tillerino.osuApiModel.deserializer.JsonStreams;
+
+/**
+ * Mapping of v2 responses to the v1 model, which {@link DownloaderV2} does for every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class V2MapperBenchmark {
+    private OsuApiScoreV2 score;
+
+    private OsuApiBeatmapV2 beatmap;
+
+    private String date;
+
+    private String dateWithOffset;
+
+    @Setup
+    public void setup() throws IOException {
+        score = JsonStreams.JACKSON.readValue(Payloads.read("score-v2.json"), OsuApiScoreV2.class);
+        beatmap = JsonStreams.JACKSON.readValue(Payloads.read("beatmap-v2.json"), OsuApiBeatmapV2.class);
+        date = score.created_at();
+        dateWithOffset = date.replace("Z", "+00:00");
+    }
+
+    @Benchmark
+    public OsuApiScore mapScoreToV1() {
+        return DownloaderV2.MAPPER.mapScoreToV1(score, OsuApiScore.class);
+    }
+
+    @Benchmark
+    public OsuApiBeatmap mapBeatmapToV1() {
+        return DownloaderV2.MAPPER.mapBeatmapToV1(beatmap, OsuApiBeatmap.class);
+    }
+
+    @Benchmark
+    public long isoToEpoch() {
+        return V2Mapper.isoToEpoch(date);
+    }
+
+    /**
+     * Baseline of {@link #isoToEpoch()}.
+     */
+    @Benchmark
+    public long instantParse() {
+        return Instant.parse(date).toEpochMilli();
+    }
+
+    @Benchmark
+    public long isoToEpochWithOffset() {
+        return V2Mapper.isoToEpoch(dateWithOffset);
+    }
+
+    /**
+     * Baseline of {@link #isoToEpochWithOffset()}.
+     */
+    @Benchmark
+    public long instantParseWithOffset() {
+        return Instant.parse(dateWithOffset).toEpochMilli();
+    }
+}
@@ -0,0 +1,94 @@
+package org.tillerino.osuApiModel.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.CheckForNull;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * How the {@link FakeOsuApiServer} answers requests. Every property has a default, so
+ * {@code Behavior.builder().build()} is a fast server which never fails.
+ */
+@Getter
+public class Behavior {
+    /**
+     * Time before the response headers are sent.
+     */
+    private final Duration latency;
+
+    /**
+     * Upper bound of a random delay which is added to the {@link #latency} of each response.
+     */
+    private final Duration latencyJitter;
+
+    /**
+     * Fraction of requests which are answered with 500.
+     */
+    private final double errorRate;
+
+    /**
+     * Number of requests per second which are answered before the server responds with 429. The server reports
+     * the remaining requests of the current second in {@code X-RateLimit-Remaining}. Zero disables the limit.
+     */
+    private final int requestsPerSecond;
+
+    /**
+     * Number of elements of responses which contain lists, e.g. scores. Requests which ask for fewer elements
+     * receive fewer.
+     */
+    private final int listSize;
+
+    /**
+     * Number of characters which are added to every object in a response to increase the payload size.
+     */
+    private final int padding;
+
+    /**
+     * Whether responses are compressed if the client accepts gzip.
+     */
+    private final boolean gzip;
+
+    /**
+     * @param latency defaults to zero
+     * @param latencyJitter defaults to zero
+     * @param errorRate defaults to zero
+     * @param requestsPerSecond defaults to zero, i.e. unlimited
+     * @param listSize defaults to 50
+     * @param padding defaults to zero
+     * @param gzip defaults to true
+     */
+    @Builder(toBuilder = true)
+    private Behavior(
+            @CheckForNull Duration latency,
+            @CheckForNull Duration latencyJitter,
+            @CheckForNull Double errorRate,
+            @CheckForNull Integer requestsPerSecond,
+            @CheckForNull Integer listSize,
+            @CheckForNull Integer padding,
+            @CheckForNull Boolean gzip) {
+        this.latency = latency != null ? latency : Duration.ZERO;
+        this.latencyJitter = latencyJitter != null ? latencyJitter : Duration.ZERO;
+        this.errorRate = errorRate != null ? errorRate : 0;
+        this.requestsPerSecond = requestsPerSecond != null ? requestsPerSecond : 0;
+        this.listSize = listSize != null ? listSize : 50;
+        this.padding = padding != null ? padding : 0;
+        this.gzip = gzip != null ? gzip : true;
+    }
+
+    Duration nextLatency() {
+        long jitter = latencyJitter.toNanos();
+        return jitter > 0 ? latency.plusNanos(ThreadLocalRandom.current().nextLong(jitter + 1)) : latency;
+    }
+
+    boolean nextIsError() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    @Override
+    public String toString() {
+        return "latency=" + latency.toMillis() + "ms+" + latencyJitter.toMillis() + "ms, errors=" + errorRate
+                + ", requestsPerSecond=" + (requestsPerSecond > 0 ? requestsPerSecond : "unlimited") + ", listSize="
+                + listSize + ", padding=" + padding + ", gzip=" + gzip;
+    }
+}
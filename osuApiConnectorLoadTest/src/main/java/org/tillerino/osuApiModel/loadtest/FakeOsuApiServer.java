@@ -0,0 +1,375 @@
+package org.tillerino.osuApiModel.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.CheckForNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process stand-in for the osu! API. It answers the v1 endpoints which
+ * {@link org.tillerino.osuApiModel.Downloader} calls, the v2 endpoints which
+ * {@link org.tillerino.osuApiModel.v2.DownloaderV2} calls and {@code /oauth/token}. Every id and name exists.
+ * Latency, errors, rate limits and payload sizes are controlled by the {@link Behavior}, which can be replaced
+ * while the server is running.
+ *
+ * <p>Each request is handled on its own virtual thread, so latency does not limit the throughput of the server.
+ */
+@Slf4j
+public class FakeOsuApiServer implements AutoCloseable {
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile Config config;
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder rateLimited = new LongAdder();
+
+    private long rateLimitSecond = -1;
+
+    private int rateLimitRequests = 0;
+
+    private FakeOsuApiServer(Behavior behavior) throws IOException {
+        setBehavior(behavior);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts a server on a free port of the loopback interface.
+     */
+    public static FakeOsuApiServer start(Behavior behavior) throws IOException {
+        FakeOsuApiServer server = new FakeOsuApiServer(behavior);
+        server.server.start();
+        return server;
+    }
+
+    public Behavior getBehavior() {
+        return config.behavior();
+    }
+
+    public void setBehavior(Behavior behavior) {
+        config = new Config(behavior, new Payloads(behavior.getPadding()));
+    }
+
+    private record Config(Behavior behavior, Payloads payloads) {}
+
+    /**
+     * Base for {@link org.tillerino.osuApiModel.v2.DownloaderV2} and its token cache.
+     */
+    public URI getBaseUri() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort());
+    }
+
+    /**
+     * Base URL for {@link org.tillerino.osuApiModel.Downloader}.
+     */
+    public URI getV1BaseUri() {
+        return getBaseUri().resolve("/api/");
+    }
+
+    /**
+     * Number of requests which were received, including those which were answered with an error.
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Number of requests which were answered with 500 because of {@link Behavior#getErrorRate()}.
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Number of requests which were answered with 429 because of {@link Behavior#getRequestsPerSecond()}.
+     */
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    public void resetCounters() {
+        requests.reset();
+        errors.reset();
+        rateLimited.reset();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            Config config = this.config;
+            Behavior behavior = config.behavior();
+            // the body must be consumed before the response can be sent on a persistent connection
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            Thread.sleep(behavior.nextLatency());
+
+            int remaining = admit(behavior);
+            if (remaining >= 0) {
+                exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(behavior.getRequestsPerSecond()));
+                exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf(remaining));
+            } else if (remaining == RATE_LIMITED) {
+                rateLimited.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, behavior, 429, "{\"error\":\"rate limited\"}");
+                return;
+            }
+            if (behavior.nextIsError()) {
+                errors.increment();
+                respond(exchange, behavior, 500, "{\"error\":\"fake error\"}");
+                return;
+            }
+
+            JsonNode response = route(
+                    config,
+                    exchange.getRequestMethod(),
+                    exchange.getRequestURI().getRawPath(),
+                    parseQuery(exchange.getRequestURI().getRawQuery()));
+            if (response == null) {
+                respond(exchange, behavior, 404, "{\"error\":null}");
+            } else {
+                respond(exchange, behavior, 200, Payloads.JACKSON.writeValueAsString(response));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to answer {}", exchange.getRequestURI(), e);
+            throw e;
+        }
+    }
+
+    private static final int UNLIMITED = -1;
+
+    private static final int RATE_LIMITED = -2;
+
+    /**
+     * @return the remaining requests of the current second, {@link #UNLIMITED} or {@link #RATE_LIMITED}
+     */
+    private synchronized int admit(Behavior behavior) {
+        int limit = behavior.getRequestsPerSecond();
+        if (limit <= 0) {
+            return UNLIMITED;
+        }
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        if (second != rateLimitSecond) {
+            rateLimitSecond = second;
+            rateLimitRequests = 0;
+        }
+        if (rateLimitRequests >= limit) {
+            return RATE_LIMITED;
+        }
+        rateLimitRequests++;
+        return limit - rateLimitRequests;
+    }
+
+    private static void respond(HttpExchange exchange, Behavior behavior, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (behavior.isGzip() && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private static Map<String, List<String>> parseQuery(@CheckForNull String rawQuery) {
+        Map<String, List<String>> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = URLDecoder.decode(equals >= 0 ? pair.substring(0, equals) : pair, StandardCharsets.UTF_8);
+            String value = equals >= 0 ? URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8) : "";
+            query.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return query;
+    }
+
+    /**
+     * @return null for 404
+     */
+    @CheckForNull
+    private static JsonNode route(Config config, String method, String rawPath, Map<String, List<String>> query) {
+        if (rawPath.equals("/oauth/token") && method.equals("POST")) {
+            return Payloads.JACKSON
+                    .createObjectNode()
+                    .put("token_type", "Bearer")
+                    .put("expires_in", 86400)
+                    .put("access_token", "fake-token");
+        }
+        if (rawPath.startsWith("/api/v2/")) {
+            String[] path = rawPath.substring("/api/v2/".length()).split("/");
+            for (int i = 0; i < path.length; i++) {
+                path[i] = URLDecoder.decode(path[i], StandardCharsets.UTF_8);
+            }
+            return routeV2(config, method, path, query);
+        }
+        if (rawPath.startsWith("/api/")) {
+            return routeV1(config, rawPath.substring("/api/".length()), query);
+        }
+        return null;
+    }
+
+    @CheckForNull
+    private static JsonNode routeV1(Config config, String command, Map<String, List<String>> query) {
+        Payloads payloads = config.payloads();
+        int listSize = config.behavior().getListSize();
+        return switch (command) {
+            case "get_beatmaps" -> {
+                ArrayNode beatmaps = Payloads.array();
+                String beatmapId = first(query, "b");
+                if (beatmapId != null) {
+                    beatmaps.add(payloads.beatmap(Integer.parseInt(beatmapId)));
+                } else {
+                    int setId = parseInt(first(query, "s"), 1);
+                    for (int i = 0; i < Math.min(listSize, 10); i++) {
+                        beatmaps.add(payloads.beatmap(setId * 10 + i));
+                    }
+                }
+                yield beatmaps;
+            }
+            case "get_user" -> {
+                String user = first(query, "u");
+                if (user == null) {
+                    yield Payloads.array();
+                }
+                int userId = "string".equals(first(query, "type")) ? userId(user) : Integer.parseInt(user);
+                String username = "string".equals(first(query, "type")) ? user : username(userId);
+                yield Payloads.array().add(payloads.user(userId, username));
+            }
+            case "get_scores", "get_user_best", "get_user_recent" -> {
+                int beatmapId = parseInt(first(query, "b"), 129891);
+                int userId = parseInt(first(query, "u"), 124493);
+                int count = Math.min(listSize, parseInt(first(query, "limit"), Integer.MAX_VALUE));
+                ArrayNode scores = Payloads.array();
+                for (int i = 0; i < count; i++) {
+                    scores.add(
+                            command.equals("get_scores")
+                                    ? payloads.score(beatmapId, userId + i)
+                                    : payloads.score(beatmapId + i, userId));
+                }
+                yield scores;
+            }
+            default -> null;
+        };
+    }
+
+    @CheckForNull
+    private static JsonNode routeV2(Config config, String method, String[] path, Map<String, List<String>> query) {
+        Payloads payloads = config.payloads();
+        int listSize = config.behavior().getListSize();
+        int limit = Math.min(listSize, parseInt(first(query, "limit"), Integer.MAX_VALUE));
+        if (path[0].equals("beatmaps")) {
+            if (path.length == 1) {
+                ArrayNode beatmaps = Payloads.array();
+                for (String id : query.getOrDefault("ids[]", List.of())) {
+                    beatmaps.add(payloads.beatmapV2(Integer.parseInt(id)));
+                }
+                return Payloads.wrap("beatmaps", beatmaps);
+            }
+            int beatmapId = Integer.parseInt(path[1]);
+            if (path.length == 2) {
+                return payloads.beatmapV2(beatmapId);
+            }
+            if (path.length == 3 && path[2].equals("attributes") && method.equals("POST")) {
+                return payloads.attributesV2();
+            }
+            if (path.length == 3 && path[2].equals("scores")) {
+                ArrayNode scores = Payloads.array();
+                for (int i = 0; i < listSize; i++) {
+                    scores.add(payloads.beatmapScoreV2(beatmapId, 124493 + i));
+                }
+                return Payloads.wrap("scores", scores);
+            }
+            if (path.length == 5 && path[2].equals("scores") && path[3].equals("users")) {
+                return Payloads.wrap("score", payloads.scoreV2(beatmapId, Integer.parseInt(path[4])));
+            }
+            return null;
+        }
+        if (path[0].equals("users")) {
+            if (path.length == 1) {
+                ArrayNode users = Payloads.array();
+                for (String id : query.getOrDefault("ids[]", List.of())) {
+                    int userId = Integer.parseInt(id);
+                    users.add(payloads.usersEntryV2(userId, username(userId)));
+                }
+                return Payloads.wrap("users", users);
+            }
+            if (path.length == 2) {
+                boolean byName = "username".equals(first(query, "key"));
+                int userId = byName ? userId(path[1]) : Integer.parseInt(path[1]);
+                return payloads.userV2(userId, byName ? path[1] : username(userId));
+            }
+            if (path.length == 4 && path[2].equals("scores")) {
+                int userId = Integer.parseInt(path[1]);
+                ArrayNode scores = Payloads.array();
+                for (int i = 0; i < limit; i++) {
+                    scores.add(payloads.scoreV2(129891 + i, userId));
+                }
+                return scores;
+            }
+        }
+        return null;
+    }
+
+    @CheckForNull
+    private static String first(Map<String, List<String>> query, String key) {
+        List<String> values = query.get(key);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    private static int parseInt(@CheckForNull String value, int defaultValue) {
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    /**
+     * Every name belongs to a user.
+     */
+    static int userId(String username) {
+        return Math.floorMod(username.toLowerCase(Locale.ROOT).hashCode(), 10_000_000) + 1;
+    }
+
+    static String username(int userId) {
+        return "user" + userId;
+    }
+}
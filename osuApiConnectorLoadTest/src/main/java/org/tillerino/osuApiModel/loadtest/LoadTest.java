@@ -0,0 +1,215 @@
+package org.tillerino.osuApiModel.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import org.tillerino.osuApiModel.Downloader;
+import org.tillerino.osuApiModel.GameModes;
+import org.tillerino.osuApiModel.OsuApiBeatmap;
+import org.tillerino.osuApiModel.OsuApiLeaderboardClient;
+import org.tillerino.osuApiModel.OsuApiScore;
+import org.tillerino.osuApiModel.OsuApiUser;
+import org.tillerino.osuApiModel.http.EndpointMetrics;
+import org.tillerino.osuApiModel.http.Histogram;
+import org.tillerino.osuApiModel.http.HttpTransport;
+import org.tillerino.osuApiModel.http.RetryPolicy;
+import org.tillerino.osuApiModel.v2.DownloaderV2;
+import org.tillerino.osuApiModel.v2.TokenHelper.Credentials;
+import org.tillerino.osuApiModel.v2.TokenHelper.TokenCache;
+
+/**
+ * Drives a downloader against a {@link FakeOsuApiServer} at increasing concurrency and reports throughput and
+ * latency percentiles per level. Each worker is a virtual thread which calls a random lookup (beatmap, user,
+ * user top, user recent or beatmap top) with random ids in a loop.
+ *
+ * <p>Arguments are given as {@code --name=value}, e.g.
+ *
+ * <pre>
+ * java -jar osuApiConnectorLoadTest/target/load-test.jar --api=v2 --concurrency=1,16,256 --latency=50ms
+ * </pre>
+ *
+ * <ul>
+ *   <li>{@code api}: {@code v1} or {@code v2}, default {@code v2}
+ *   <li>{@code concurrency}: comma-separated numbers of workers, default {@code 1,4,16,64,256}
+ *   <li>{@code duration}: measurement time per level, default {@code 10s}
+ *   <li>{@code warmup}: time per level before measuring, default {@code 2s}
+ *   <li>{@code attempts}: maximum attempts per call, see {@link RetryPolicy}, default {@code 1}
+ *   <li>{@code latency}, {@code jitter}, {@code errors}, {@code rps}, {@code list-size}, {@code padding},
+ *       {@code gzip}: see {@link Behavior}
+ * </ul>
+ */
+@RequiredArgsConstructor
+public class LoadTest {
+    private final OsuApiLeaderboardClient client;
+
+    private final EndpointMetrics metrics;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArguments(args);
+        Behavior behavior = Behavior.builder()
+                .latency(parseDuration(options.getOrDefault("latency", "0ms")))
+                .latencyJitter(parseDuration(options.getOrDefault("jitter", "0ms")))
+                .errorRate(Double.parseDouble(options.getOrDefault("errors", "0")))
+                .requestsPerSecond(Integer.parseInt(options.getOrDefault("rps", "0")))
+                .listSize(Integer.parseInt(options.getOrDefault("list-size", "50")))
+                .padding(Integer.parseInt(options.getOrDefault("padding", "0")))
+                .gzip(Boolean.parseBoolean(options.getOrDefault("gzip", "true")))
+                .build();
+        String api = options.getOrDefault("api", "v2");
+        int[] concurrencies = Arrays.stream(
+                        options.getOrDefault("concurrency", "1,4,16,64,256").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration duration = parseDuration(options.getOrDefault("duration", "10s"));
+        Duration warmup = parseDuration(options.getOrDefault("warmup", "2s"));
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxAttempts(Integer.parseInt(options.getOrDefault("attempts", "1")))
+                .build();
+
+        try (FakeOsuApiServer server = FakeOsuApiServer.start(behavior)) {
+            EndpointMetrics metrics = new EndpointMetrics();
+            OsuApiLeaderboardClient client = client(api, server, retryPolicy, metrics);
+            PrintStream out = System.out;
+            out.println("api=" + api + ", " + behavior);
+            out.printf(
+                    "%11s %9s %9s %10s %9s %9s %9s %9s %9s%n",
+                    "concurrency", "calls", "failures", "calls/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            LoadTest loadTest = new LoadTest(client, metrics);
+            for (int concurrency : concurrencies) {
+                loadTest.run(concurrency, warmup);
+                metrics.clear();
+                server.resetCounters();
+                Result result = loadTest.run(concurrency, duration);
+                out.println(result.format());
+                out.println("  server: " + server.getRequests() + " requests, " + server.getErrors() + " errors, "
+                        + server.getRateLimited() + " rate limited");
+                metrics.getEndpoints()
+                        .forEach((endpoint, endpointMetrics) -> out.println("  " + endpoint + ": " + endpointMetrics));
+            }
+        }
+    }
+
+    static OsuApiLeaderboardClient client(
+            String api, FakeOsuApiServer server, RetryPolicy retryPolicy, EndpointMetrics metrics)
+            throws MalformedURLException {
+        HttpTransport transport = HttpTransport.builder().build();
+        switch (api) {
+            case "v1" -> {
+                Downloader downloader = new Downloader(
+                        server.getV1BaseUri().toURL(), "0123456789abcdef0123456789abcdef01234567", transport);
+                downloader.setRetryPolicy(retryPolicy);
+                downloader.setRequestListener(metrics);
+                return downloader;
+            }
+            case "v2" -> {
+                TokenCache tokenCache = TokenCache.inMemory(
+                        server.getBaseUri(), new Credentials("12345", "0123456789012345678901234567890123456789"));
+                DownloaderV2 downloader = new DownloaderV2(server.getBaseUri(), tokenCache, transport);
+                downloader.setRetryPolicy(retryPolicy);
+                downloader.setRequestListener(metrics);
+                return downloader;
+            }
+            default -> throw new IllegalArgumentException("Unknown api " + api);
+        }
+    }
+
+    /**
+     * Calls the client from the given number of workers for the given time.
+     */
+    Result run(int concurrency, Duration duration) {
+        Histogram latencies = new Histogram();
+        LongAdder failures = new LongAdder();
+        long end = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        long callStart = System.nanoTime();
+                        try {
+                            call(ThreadLocalRandom.current());
+                        } catch (IOException | RuntimeException e) {
+                            failures.increment();
+                        }
+                        latencies.record(System.nanoTime() - callStart);
+                    }
+                });
+            }
+        }
+        return new Result(concurrency, System.nanoTime() - start, latencies, failures.sum());
+    }
+
+    private void call(ThreadLocalRandom random) throws IOException {
+        int beatmapId = random.nextInt(1, 5_000_000);
+        int userId = random.nextInt(1, 30_000_000);
+        switch (random.nextInt(5)) {
+            case 0 -> client.getBeatmap(beatmapId, 0L, OsuApiBeatmap.class);
+            case 1 -> client.getUser(userId, GameModes.OSU, OsuApiUser.class);
+            case 2 -> client.getUserTop(userId, GameModes.OSU, 50, OsuApiScore.class);
+            case 3 -> client.getUserRecent(userId, GameModes.OSU, OsuApiScore.class);
+            default -> client.getBeatmapTop(beatmapId, GameModes.OSU, OsuApiScore.class);
+        }
+    }
+
+    record Result(int concurrency, long nanos, Histogram latencies, long failures) {
+        double callsPerSecond() {
+            return latencies.getCount() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+
+        String format() {
+            return String.format(
+                    "%11d %9d %9d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f",
+                    concurrency,
+                    latencies.getCount(),
+                    failures,
+                    callsPerSecond(),
+                    millis(latencies.getValueAtPercentile(50)),
+                    millis(latencies.getValueAtPercentile(90)),
+                    millis(latencies.getValueAtPercentile(99)),
+                    millis(latencies.getValueAtPercentile(99.9)),
+                    millis(latencies.getMax()));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    static Map<String, String> parseArguments(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * @param value e.g. {@code 500ms}, {@code 10s} or {@code 1m}
+     */
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        throw new IllegalArgumentException("Expected a duration like 500ms, 10s or 1m: " + value);
+    }
+}
@@ -0,0 +1,118 @@
+package org.tillerino.osuApiModel.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Builds the responses of the {@link FakeOsuApiServer} from recorded responses of the real API.
+ */
+class Payloads {
+    static final ObjectMapper JACKSON = new ObjectMapper();
+
+    private static final List<String> RULESETS = List.of("osu", "taiko", "fruits", "mania");
+
+    private final ObjectNode beatmap = read("beatmap.json");
+
+    private final ObjectNode score = read("score.json");
+
+    private final ObjectNode user = read("user.json");
+
+    private final ObjectNode beatmapV2 = read("beatmap-v2.json");
+
+    private final ObjectNode scoreV2 = read("score-v2.json");
+
+    private final ObjectNode userV2 = read("user-v2.json");
+
+    private final String padding;
+
+    Payloads(int padding) {
+        this.padding = "x".repeat(padding);
+    }
+
+    private static ObjectNode read(String name) {
+        try (InputStream inputStream = Payloads.class.getResourceAsStream("/payloads/" + name)) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("Unknown payload " + name);
+            }
+            return (ObjectNode) JACKSON.readTree(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ObjectNode copy(ObjectNode template) {
+        ObjectNode copy = template.deepCopy();
+        if (!padding.isEmpty()) {
+            copy.put("padding", padding);
+        }
+        return copy;
+    }
+
+    ObjectNode beatmap(int beatmapId) {
+        return copy(beatmap).put("beatmap_id", String.valueOf(beatmapId));
+    }
+
+    ObjectNode score(int beatmapId, int userId) {
+        return copy(score).put("beatmap_id", String.valueOf(beatmapId)).put("user_id", String.valueOf(userId));
+    }
+
+    ObjectNode user(int userId, String username) {
+        return copy(user).put("user_id", String.valueOf(userId)).put("username", username);
+    }
+
+    ObjectNode beatmapV2(int beatmapId) {
+        return copy(beatmapV2).put("id", beatmapId);
+    }
+
+    ObjectNode attributesV2() {
+        ObjectNode response = JACKSON.createObjectNode();
+        response.set("attributes", beatmapV2.get("attributes").deepCopy());
+        return response;
+    }
+
+    ObjectNode scoreV2(int beatmapId, int userId) {
+        ObjectNode copy = copy(scoreV2).put("user_id", userId);
+        ((ObjectNode) copy.get("beatmap")).put("id", beatmapId);
+        return copy;
+    }
+
+    /**
+     * Scores of the beatmap scores endpoint carry the beatmap id at the top level.
+     */
+    ObjectNode beatmapScoreV2(int beatmapId, int userId) {
+        return scoreV2(beatmapId, userId).put("beatmap_id", beatmapId);
+    }
+
+    ObjectNode userV2(int userId, String username) {
+        return copy(userV2).put("id", userId).put("username", username);
+    }
+
+    /**
+     * Users of the users endpoint have statistics for every ruleset instead of {@code statistics}.
+     */
+    ObjectNode usersEntryV2(int userId, String username) {
+        ObjectNode user = userV2(userId, username);
+        JsonNode statistics = user.remove("statistics");
+        ObjectNode rulesets = user.putObject("statistics_rulesets");
+        for (String ruleset : RULESETS) {
+            rulesets.set(ruleset, statistics.deepCopy());
+        }
+        return user;
+    }
+
+    static ArrayNode array() {
+        return JACKSON.createArrayNode();
+    }
+
+    static ObjectNode wrap(String field, JsonNode value) {
+        ObjectNode response = JACKSON.createObjectNode();
+        response.set(field, value);
+        return response;
+    }
+}
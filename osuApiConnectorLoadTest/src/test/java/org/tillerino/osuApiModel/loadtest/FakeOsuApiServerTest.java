@@ -0,0 +1,122 @@
+package org.tillerino.osuApiModel.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import org.junit.After;
+import org.junit.Test;
+import org.tillerino.osuApiModel.GameModes;
+import org.tillerino.osuApiModel.OsuApiBeatmap;
+import org.tillerino.osuApiModel.OsuApiLeaderboardClient;
+import org.tillerino.osuApiModel.OsuApiScore;
+import org.tillerino.osuApiModel.OsuApiUser;
+import org.tillerino.osuApiModel.http.EndpointMetrics;
+import org.tillerino.osuApiModel.http.HttpStatusException;
+import org.tillerino.osuApiModel.http.RetryPolicy;
+
+public class FakeOsuApiServerTest {
+    FakeOsuApiServer server;
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void answersV1() throws Exception {
+        server = FakeOsuApiServer.start(Behavior.builder().listSize(7).build());
+        OsuApiLeaderboardClient client = LoadTest.client("v1", server, RetryPolicy.none(), new EndpointMetrics());
+
+        assertThat(client.getBeatmap(123, 0L, OsuApiBeatmap.class))
+                .hasFieldOrPropertyWithValue("beatmapId", 123)
+                .hasFieldOrPropertyWithValue("title", "FREEDOM DiVE");
+        assertThat(client.getUser(456, GameModes.OSU, OsuApiUser.class))
+                .hasFieldOrPropertyWithValue("userId", 456)
+                .hasFieldOrPropertyWithValue("userName", "user456");
+        assertThat(client.getUser("Some Name", GameModes.OSU, OsuApiUser.class))
+                .hasFieldOrPropertyWithValue("userId", FakeOsuApiServer.userId("Some Name"))
+                .hasFieldOrPropertyWithValue("userName", "Some Name");
+        assertThat(client.getUserTop(456, GameModes.OSU, 5, OsuApiScore.class))
+                .hasSize(5)
+                .allSatisfy(score -> assertThat(score.getUserId()).isEqualTo(456));
+        assertThat(client.getBeatmapTop(123, GameModes.OSU, OsuApiScore.class)).hasSize(7);
+    }
+
+    @Test
+    public void answersV2() throws Exception {
+        server = FakeOsuApiServer.start(
+                Behavior.builder().listSize(7).padding(1000).build());
+        EndpointMetrics metrics = new EndpointMetrics();
+        OsuApiLeaderboardClient client = LoadTest.client("v2", server, RetryPolicy.none(), metrics);
+
+        assertThat(client.getBeatmap(123, 0L, OsuApiBeatmap.class))
+                .hasFieldOrPropertyWithValue("beatmapId", 123)
+                .hasFieldOrPropertyWithValue("aimDifficulty", 3.61469);
+        assertThat(client.getUser(456, GameModes.OSU, OsuApiUser.class))
+                .hasFieldOrPropertyWithValue("userId", 456)
+                .hasFieldOrPropertyWithValue("pp", 14873.3);
+        assertThat(client.getUser("Some Name", GameModes.OSU, OsuApiUser.class))
+                .hasFieldOrPropertyWithValue("userName", "Some Name");
+        assertThat(client.getUsers(new int[] {1, 2, 3}, GameModes.OSU, OsuApiUser.class))
+                .containsOnlyKeys(1, 2, 3);
+        assertThat(client.getUserRecent(456, GameModes.OSU, OsuApiScore.class)).hasSize(7);
+        assertThat(client.getBeatmapTop(123, GameModes.OSU, OsuApiScore.class))
+                .hasSize(7)
+                .allSatisfy(score -> assertThat(score.getBeatmapId()).isEqualTo(123));
+
+        EndpointMetrics.Endpoint beatmap = metrics.getEndpoint("beatmaps/{beatmap}");
+        assertThat(beatmap.getDecompressedBytes()).isGreaterThan(1000);
+        assertThat(beatmap.getCompressedBytes()).isLessThan(beatmap.getDecompressedBytes());
+    }
+
+    @Test
+    public void failsAtTheErrorRate() throws Exception {
+        server = FakeOsuApiServer.start(Behavior.builder().errorRate(1.0).build());
+        OsuApiLeaderboardClient client = LoadTest.client("v1", server, RetryPolicy.none(), new EndpointMetrics());
+
+        assertThatThrownBy(() -> client.getBeatmap(123, 0L, OsuApiBeatmap.class))
+                .isInstanceOfSatisfying(HttpStatusException.class, e -> assertThat(e.getStatusCode())
+                        .isEqualTo(500));
+        assertThat(server.getErrors()).isEqualTo(1);
+    }
+
+    @Test
+    public void rateLimits() throws Exception {
+        server = FakeOsuApiServer.start(Behavior.builder().requestsPerSecond(2).build());
+        OsuApiLeaderboardClient client = LoadTest.client("v1", server, RetryPolicy.none(), new EndpointMetrics());
+
+        int rateLimited = 0;
+        for (int i = 0; i < 3; i++) {
+            try {
+                client.getUser(456, GameModes.OSU, OsuApiUser.class);
+            } catch (HttpStatusException e) {
+                assertThat(e.getStatusCode()).isEqualTo(429);
+                assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(1));
+                rateLimited++;
+            }
+        }
+        // the requests may be spread over two seconds
+        assertThat(rateLimited).isBetween(0, 1);
+        assertThat(server.getRateLimited()).isEqualTo(rateLimited);
+    }
+
+    @Test
+    public void driverReportsThroughput() throws Exception {
+        server = FakeOsuApiServer.start(
+                Behavior.builder().latency(Duration.ofMillis(5)).build());
+        EndpointMetrics metrics = new EndpointMetrics();
+        LoadTest loadTest = new LoadTest(LoadTest.client("v2", server, RetryPolicy.none(), metrics), metrics);
+
+        LoadTest.Result result = loadTest.run(4, Duration.ofMillis(500));
+
+        assertThat(result.failures()).isZero();
+        assertThat(result.latencies().getCount()).isPositive();
+        assertThat(result.latencies().getValueAtPercentile(50))
+                .isGreaterThanOrEqualTo(Duration.ofMillis(5).toNanos());
+        assertThat(result.callsPerSecond()).isPositive();
+        assertThat(metrics.getEndpoints()).isNotEmpty();
+    }
+}